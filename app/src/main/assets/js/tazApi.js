@@ -113,24 +113,72 @@ var tazApi = (function() {
         parent.appendChild(style);
     }
 
-    /**
-    * Load the Bookmarks for the current Section.
-    * setupBookmarksCallback(articleNames) is called with an array of the names of all
-    * bookmarked articles (without the .html suffix).
+    /*
+        Requests to the native code that are answered asynchronously.
+        Each request gets an id and the native code passes the result to resolveRequest(id, result)
+        once it is ready, so that neither the JS nor the native code has to block while waiting.
     */
-    function getBookmarks(setupBookmarksCallback) {
+    var pendingRequests = {};
+    var nextRequestId = 1;
+    var articleStatesPromise = null;
+
+    function sendRequest(send) {
+        var requestId = nextRequestId++;
+        return new Promise(function(resolve) {
+            pendingRequests[requestId] = resolve;
+            send(requestId);
+        });
+    }
+
+    function resolveRequest(requestId, result) {
+        var resolve = pendingRequests[requestId];
+        if (resolve) {
+            delete pendingRequests[requestId];
+            resolve(result);
+        }
+    }
+
+    function getArticleNames(className) {
         // Find all articles names listed on the current section
         // this is necessary for title sections where the graphql does *not* return all articles
         var articleNames = [];
-        var bookmarkStars = document.getElementsByClassName("bookmarkStar");
-        for (var i = 0; i < bookmarkStars.length; i++) {
-            articleNames.push(bookmarkStars[i].id);
+        var elements = document.getElementsByClassName(className);
+        for (var i = 0; i < elements.length; i++) {
+            articleNames.push(elements[i].id);
         }
+        return articleNames;
+    }
 
-        var bookmarkedArticleNamesJson = ANDROIDAPI.getBookmarkedArticleNames(JSON.stringify(articleNames));
+    /**
+    * Load the bookmark and playlist state of all articles of the current Section in a single
+    * round trip. The pending promise is shared by getBookmarks and getEnqueuedArticles.
+    */
+    function getArticleStates() {
+        if (articleStatesPromise == null) {
+            var bookmarkNames = getArticleNames("bookmarkStar");
+            var enqueuedNames = getArticleNames("playlistAdd");
+            articleStatesPromise = sendRequest(function(requestId) {
+                ANDROIDAPI.requestArticleStates(
+                    requestId, JSON.stringify(bookmarkNames), JSON.stringify(enqueuedNames)
+                );
+            });
+            // Later calls request the then current state again
+            articleStatesPromise.then(function() {
+                articleStatesPromise = null;
+            });
+        }
+        return articleStatesPromise;
+    }
 
-        var bookmarkedArticleNames = JSON.parse(bookmarkedArticleNamesJson);
-        setupBookmarksCallback(bookmarkedArticleNames);
+    /**
+    * Load the Bookmarks for the current Section.
+    * setupBookmarksCallback(articleNames) is called with an array of the names of all
+    * bookmarked articles (without the .html suffix).
+    */
+    function getBookmarks(setupBookmarksCallback) {
+        getArticleStates().then(function(articleStates) {
+            setupBookmarksCallback(articleStates.bookmarked);
+        });
     }
 
     function setBookmark(articleName, isBookmarked, showNotification) {
@@ -143,18 +191,9 @@ var tazApi = (function() {
     * enqueued articles (without the .html suffix).
     */
     function getEnqueuedArticles(setupEnqueuedCallback) {
-        // Find all articles names listed on the current section
-        // this is necessary for title sections where the graphql does *not* return all articles
-        var articleNames = [];
-        var enqueuedElements = document.getElementsByClassName("playlistAdd");
-        for (var i = 0; i < enqueuedElements.length; i++) {
-            articleNames.push(enqueuedElements[i].id);
-        }
-
-        var enqueuedArticleNamesJson = ANDROIDAPI.getEnqueuedArticleNames(JSON.stringify(articleNames));
-
-        var enqueuedArticleNames = JSON.parse(enqueuedArticleNamesJson);
-        setupEnqueuedCallback(enqueuedArticleNames);
+        getArticleStates().then(function(articleStates) {
+            setupEnqueuedCallback(articleStates.enqueued);
+        });
     }
 
     function setEnqueued(articleName, isEnqueued) {
@@ -355,6 +394,7 @@ var tazApi = (function() {
         openUrl : openUrl,
         injectCss: injectCss,
         openImage : openImage,
+        resolveRequest: resolveRequest,
         getBookmarks: getBookmarks,
         setBookmark: setBookmark,
         getEnqueuedArticles: getEnqueuedArticles,
@@ -16,6 +16,9 @@ import de.taz.app.android.sentry.SentryWrapper
 import de.taz.app.android.singletons.AuthHelper
 import de.taz.app.android.singletons.TazCssHelper
 import de.taz.app.android.tracking.Tracker
+import de.taz.app.android.ui.pdfViewer.mupdf.MuPDFDocumentCache
+import de.taz.app.android.ui.pdfViewer.mupdf.TileCache
+import de.taz.app.android.ui.webview.WebViewPool
 import de.taz.app.android.util.Log
 import de.taz.app.android.util.UncaughtExceptionHandler
 import kotlinx.coroutines.CoroutineScope
@@ -73,6 +76,9 @@ abstract class AbstractTazApplication : Application() {
 
     override fun onLowMemory() {
         _tracker?.dispatch()
+        WebViewPool.getInstance(applicationContext).clear()
+        MuPDFDocumentCache.clear()
+        TileCache.clear()
         super.onLowMemory()
     }
 
@@ -80,6 +86,12 @@ abstract class AbstractTazApplication : Application() {
         if (level == TRIM_MEMORY_UI_HIDDEN || level == TRIM_MEMORY_COMPLETE) {
             _tracker?.dispatch()
         }
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // The pool is filled again once an article is shown
+            WebViewPool.getInstance(applicationContext).clear()
+            MuPDFDocumentCache.clear()
+            TileCache.clear()
+        }
         super.onTrimMemory(level)
     }
 
@@ -29,7 +29,10 @@ const val ARTICLE_PAGER_FRAGMENT_FROM_PDF_MODE = "ARTICLE_PAGER_FRAGMENT_FROM_PD
 
 // General Preferences
 const val MAX_SIMULTANEOUS_QUERIES = 8
-const val MAX_SIMULTANEOUS_DOWNLOADS = 8
+// The number of simultaneous downloads is adapted to the connection within these bounds
+const val MIN_SIMULTANEOUS_DOWNLOADS = 2
+const val INITIAL_SIMULTANEOUS_DOWNLOADS = 8
+const val MAX_SIMULTANEOUS_DOWNLOADS = 16
 const val TAP_ICON_FADE_OUT_TIME = 100L
 const val LOADING_SCREEN_FADE_OUT_TIME = 500L
 const val CONNECTION_FAILURE_BACKOFF_TIME_MS = 100L
@@ -69,6 +72,10 @@ const val KEEP_LATEST_MOMENTS_COUNT = 15
 // The scrubber will be started every X days
 const val SCRUBBER_INTERVAL_DAYS = 30L
 
+// While the app is open the scrubber runs in slices of X ms with a pause of Y ms in between
+const val SCRUBBER_SLICE_DURATION_MS = 200L
+const val SCRUBBER_SLICE_PAUSE_MS = 30_000L
+
 // Resource file names
 const val TAZ_API_JS_FILENAME = "tazApi.js"
 const val TAZ_API_CSS_FILENAME = "tazApi.css"
@@ -1,9 +1,13 @@
 package de.taz.app.android.api
 
 import de.taz.app.android.data.ConnectionHelper
+import de.taz.app.android.data.ConnectivityMonitor
 
 
-class APIConnectionHelper(private val graphQlClient: GraphQlClient): ConnectionHelper() {
+class APIConnectionHelper(
+    private val graphQlClient: GraphQlClient,
+    connectivityMonitor: ConnectivityMonitor,
+) : ConnectionHelper(connectivityMonitor) {
     override suspend fun checkConnectivity(): Boolean {
         return try {
             transformToConnectivityException {
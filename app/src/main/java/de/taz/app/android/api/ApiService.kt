@@ -64,6 +64,7 @@ import de.taz.app.android.api.variables.SubscriptionId2TazIdVariables
 import de.taz.app.android.api.variables.SubscriptionPollVariables
 import de.taz.app.android.api.variables.SubscriptionResetVariables
 import de.taz.app.android.api.variables.TrialSubscriptionVariables
+import de.taz.app.android.data.ConnectivityMonitor
 import de.taz.app.android.data.INFINITE
 import de.taz.app.android.dataStore.DownloadDataStore
 import de.taz.app.android.firebase.FirebaseDataStore
@@ -89,6 +90,7 @@ class ApiService @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) const
     private val fireBaseDataStore: FirebaseDataStore,
     private val deviceFormat: DeviceFormat,
     private val downloadDataStore: DownloadDataStore,
+    private val connectivityMonitor: ConnectivityMonitor,
 ) {
 
     private constructor(applicationContext: Context) : this(
@@ -100,12 +102,13 @@ class ApiService @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) const
         } else {
             DeviceFormat.mobile
         },
-        downloadDataStore = DownloadDataStore.getInstance(applicationContext)
+        downloadDataStore = DownloadDataStore.getInstance(applicationContext),
+        connectivityMonitor = ConnectivityMonitor.getInstance(applicationContext)
     )
 
     companion object : SingletonHolder<ApiService, Context>(::ApiService)
 
-    private val connectionHelper = APIConnectionHelper(graphQlClient)
+    private val connectionHelper = APIConnectionHelper(graphQlClient, connectivityMonitor)
 
     /**
      * Wrap a block potentially throwing [ConnectivityException.Recoverable] in a [connectionHelper]
@@ -414,23 +417,52 @@ class ApiService @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) const
         feedName: String,
         issueDate: Date
     ): Moment? {
+        // The moment is stored under the requested date, even if the API returns an earlier issue
+        return getMoments(feedName, issueDate, 1, simpleDateFormat.format(issueDate)).firstOrNull()
+    }
+
+    /**
+     * function to get the moments of multiple issues with a single request
+     * @param feedName - the name of the feed
+     * @param issueDate - date of the newest issue
+     * @param limit - how many moments of issues published at or before [issueDate] will be returned
+     * @return [List]<[Moment]> of the moments of a feed starting at the given date
+     */
+    @Throws(ConnectivityException::class)
+    suspend fun getMomentsByFeedAndDate(
+        feedName: String,
+        issueDate: Date,
+        limit: Int
+    ): List<Moment> {
+        return getMoments(feedName, issueDate, limit, null)
+    }
+
+    /**
+     * @param keyDate - the date to store the moments under, or null to use the date of their issue
+     */
+    private suspend fun getMoments(
+        feedName: String,
+        issueDate: Date,
+        limit: Int,
+        keyDate: String?
+    ): List<Moment> {
         val dateString = simpleDateFormat.format(issueDate)
         return transformToConnectivityException {
             graphQlClient.query(
-                QueryType.Moment, IssueVariables(feedName, dateString, 1)
+                QueryType.Moment, IssueVariables(feedName, dateString, limit)
             ).data?.product
                 ?.feedList
-                ?.first()
+                ?.firstOrNull()
                 ?.issueList
-                ?.first()
-                ?.let {
+                ?.map {
                     val status = IssueStatusMapper.from(it.status)
                     MomentMapper.from(
-                        IssueKey(feedName, dateString, status),
+                        IssueKey(feedName, keyDate ?: it.date, status),
                         it.baseUrl,
                         it.moment
                     )
                 }
+                ?: emptyList()
         }
     }
 
@@ -438,34 +470,64 @@ class ApiService @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) const
      * function to get the front page of an issue by feedName and date
      * @param feedName - the name of the feed
      * @param issueDate - date of an issue
-     * @return [List]<[Issue]> of the issues of a feed at given date
+     * @return the front [Page] and the [IssueStatus] of the issue at the given date
      */
     @Throws(ConnectivityException::class)
     suspend fun getFrontPageByFeedAndDate(
         feedName: String,
         issueDate: Date
     ): Pair<Page, IssueStatus>? {
+        // The page is stored under the requested date, even if the API returns an earlier issue
+        return getFrontPages(feedName, issueDate, 1, simpleDateFormat.format(issueDate))
+            .firstOrNull()
+            ?.let { (page, issueKey) -> page to issueKey.status }
+    }
+
+    /**
+     * function to get the front pages of multiple issues with a single request
+     * @param feedName - the name of the feed
+     * @param issueDate - date of the newest issue
+     * @param limit - how many front pages of issues published at or before [issueDate] will be returned
+     * @return [List] of the front [Page]s with the [IssueKey] of their issue
+     */
+    @Throws(ConnectivityException::class)
+    suspend fun getFrontPagesByFeedAndDate(
+        feedName: String,
+        issueDate: Date,
+        limit: Int
+    ): List<Pair<Page, IssueKey>> {
+        return getFrontPages(feedName, issueDate, limit, null)
+    }
+
+    /**
+     * @param keyDate - the date to store the pages under, or null to use the date of their issue
+     */
+    private suspend fun getFrontPages(
+        feedName: String,
+        issueDate: Date,
+        limit: Int,
+        keyDate: String?
+    ): List<Pair<Page, IssueKey>> {
         val dateString = simpleDateFormat.format(issueDate)
         return transformToConnectivityException {
             graphQlClient.query(
-                QueryType.FrontpageByFeedAndDate, IssueVariables(feedName, dateString, 1)
+                QueryType.FrontpageByFeedAndDate, IssueVariables(feedName, dateString, limit)
             ).data?.product
                 ?.feedList
                 ?.firstOrNull()
                 ?.issueList
-                ?.firstOrNull()
-                ?.let { issue ->
+                ?.mapNotNull { issue ->
                     issue.pageList?.firstOrNull()
                         ?.let { pageDto ->
-                            val status = IssueStatusMapper.from(issue.status)
-                            val page = PageMapper.from(
-                                IssueKey(feedName, dateString, status),
-                                issue.baseUrl,
-                                pageDto
+                            val issueKey = IssueKey(
+                                feedName,
+                                keyDate ?: issue.date,
+                                IssueStatusMapper.from(issue.status)
                             )
-                            page to status
+                            PageMapper.from(issueKey, issue.baseUrl, pageDto) to issueKey
                         }
                 }
+                ?: emptyList()
         }
     }
 
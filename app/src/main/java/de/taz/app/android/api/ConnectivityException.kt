@@ -37,7 +37,7 @@ private val networkExceptions = listOf(
     SSLPeerUnverifiedException::class,
     ErrnoException::class,
     IOException::class,
-    io.ktor.network.sockets.SocketTimeoutException::class
+    io.ktor.network.sockets.SocketTimeoutException::class,
 )
 
 sealed class ConnectivityException(
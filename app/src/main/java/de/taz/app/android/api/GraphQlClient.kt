@@ -9,33 +9,49 @@ import de.taz.app.android.api.dto.DataDto
 import de.taz.app.android.api.dto.WrapperDto
 import de.taz.app.android.api.mappers.AuthInfoMapper
 import de.taz.app.android.api.variables.Variables
-import de.taz.app.android.data.HTTP_CLIENT_ENGINE
+import de.taz.app.android.data.HttpTransport
 import de.taz.app.android.singletons.AuthHelper
 import de.taz.app.android.util.Json
 import de.taz.app.android.util.SingletonHolder
 import de.taz.app.android.util.reportAndRethrowExceptions
 import io.ktor.client.HttpClient
-import io.ktor.client.call.body
 import io.ktor.client.plugins.contentnegotiation.ContentNegotiation
 import io.ktor.client.request.header
-import io.ktor.client.request.post
+import io.ktor.client.request.preparePost
 import io.ktor.client.request.setBody
+import io.ktor.client.statement.bodyAsChannel
 import io.ktor.http.ContentType
 import io.ktor.http.Url
 import io.ktor.http.contentType
-import io.ktor.serialization.JsonConvertException
 import io.ktor.serialization.kotlinx.json.json
 import io.ktor.serialization.kotlinx.serialization
+import io.ktor.utils.io.ByteReadChannel
+import io.ktor.utils.io.jvm.javaio.toInputStream
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
 import kotlinx.coroutines.sync.Semaphore
 import kotlinx.coroutines.sync.withPermit
-import java.util.concurrent.ConcurrentHashMap
+import kotlinx.coroutines.withContext
+import kotlinx.serialization.SerializationException
+import kotlinx.serialization.json.decodeFromStream
+import java.util.concurrent.atomic.AtomicLong
+
+// Responses are cached for a short time to prevent identical queries fired in a row
+private const val DEFAULT_CACHE_DURATION_MS = 5_000L
+
+// Moments and front pages of past issues change rarely but are requested repeatedly by the cover flow
+private const val COVER_CACHE_DURATION_MS = 60_000L
+
+private const val QUERY_CACHE_MAX_SIZE = 200
 
-private const val CACHE_DURATION_MS = 5000L
 /**
  * class to get DTOs from the [BuildConfig.GRAPHQL_ENDPOINT]
  */
 class GraphQlClient @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) constructor(
-    private val httpClient: HttpClient = HttpClient(HTTP_CLIENT_ENGINE) {
+    private val httpClient: HttpClient = HttpTransport.httpClient.config {
         install(ContentNegotiation) {
             json(Json)
             serialization(ContentType.Any, Json)
@@ -57,10 +73,69 @@ class GraphQlClient @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) co
 
     private val maxSimultaneousRequestSemaphore = Semaphore(MAX_SIMULTANEOUS_QUERIES)
 
-    private val queryCache = ConcurrentHashMap<Pair<QueryType, Variables?>, Pair<Long, WrapperDto>>()
+    private val queryCache = QueryCache<Pair<QueryType, Variables?>, WrapperDto>(QUERY_CACHE_MAX_SIZE)
+    private val inFlightQueries = HashMap<Pair<QueryType, Variables?>, CompletableDeferred<WrapperDto>>()
+
+    private val joinedQueryCount = AtomicLong(0L)
+
+    /**
+     * The number of queries answered from the cache
+     */
+    val cacheHitCount: Long
+        get() = queryCache.hitCount
+
+    /**
+     * The number of queries that could not be answered from the cache
+     */
+    val cacheMissCount: Long
+        get() = queryCache.missCount
+
+    /**
+     * The number of cache misses answered by joining an identical query already in flight
+     */
+    val joinedQueries: Long
+        get() = joinedQueryCount.get()
+
+    /**
+     * Return how long the response of a [queryType] may be cached.
+     * Queries changing or polling state on the server must never be cached or shared.
+     */
+    private fun getCacheDurationMs(queryType: QueryType): Long = when (queryType) {
+        QueryType.Moment,
+        QueryType.FrontpageByFeedAndDate -> COVER_CACHE_DURATION_MS
+
+        QueryType.App,
+        QueryType.AppInfo,
+        QueryType.Feed,
+        QueryType.IssueByFeedAndDate,
+        QueryType.IssueVersionByFeedAndDate,
+        QueryType.LastIssues,
+        QueryType.ResourceInfo,
+        QueryType.Search,
+        QueryType.SubscriptionFormData -> DEFAULT_CACHE_DURATION_MS
+
+        QueryType.Authentication,
+        QueryType.Cancellation,
+        QueryType.CheckSubscriptionId,
+        QueryType.CustomerInfo,
+        QueryType.DeleteCustomerData,
+        QueryType.DownloadStart,
+        QueryType.DownloadStop,
+        QueryType.ErrorReport,
+        QueryType.GetCustomerData,
+        QueryType.Notification,
+        QueryType.PasswordReset,
+        QueryType.SaveCustomerData,
+        QueryType.SubscriptionId2TazId,
+        QueryType.SubscriptionPoll,
+        QueryType.SubscriptionReset,
+        QueryType.TrialSubscription -> 0L
+    }
 
     /**
      * function to get DTO from query
+     * Responses are cached depending on the [queryType] and concurrent identical queries share a
+     * single request.
      * @param queryType - the type of the query to execute
      * @param variables - the variables to set on query
      * @return the [DataDto] generated by parsing the returned json
@@ -71,20 +146,56 @@ class GraphQlClient @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) co
         GraphQlRecoverableServerException::class
     )
     suspend fun query(queryType: QueryType, variables: Variables? = null): WrapperDto {
-        val now = System.currentTimeMillis()
+        val cacheDurationMs = getCacheDurationMs(queryType)
+        if (cacheDurationMs <= 0L) {
+            return executeQuery(queryType, variables)
+        }
+
         val cacheKey = Pair(queryType, variables)
-        queryCache[cacheKey]?.let { (expiry, cachedResponse) ->
-            if (now < expiry) {
-                return cachedResponse
+        while (true) {
+            // Either return the cached response, join the identical query in flight or start it
+            var isOwner = false
+            val inFlightQuery = synchronized(inFlightQueries) {
+                queryCache.get(cacheKey)?.let { return it }
+                inFlightQueries.getOrPut(cacheKey) {
+                    isOwner = true
+                    CompletableDeferred()
+                }
+            }
+
+            if (isOwner) {
+                try {
+                    val wrapper = executeQuery(queryType, variables)
+                    queryCache.put(cacheKey, wrapper, cacheDurationMs)
+                    inFlightQuery.complete(wrapper)
+                    return wrapper
+                } catch (e: Throwable) {
+                    inFlightQuery.completeExceptionally(e)
+                    throw e
+                } finally {
+                    synchronized(inFlightQueries) {
+                        inFlightQueries.remove(cacheKey)
+                    }
+                }
+            }
+
+            joinedQueryCount.incrementAndGet()
+            try {
+                return inFlightQuery.await()
+            } catch (e: CancellationException) {
+                // The coroutine executing the query was cancelled: try again unless we were cancelled too
+                currentCoroutineContext().ensureActive()
             }
         }
+    }
 
+    private suspend fun executeQuery(queryType: QueryType, variables: Variables?): WrapperDto {
         val query = queryService.get(queryType)
         variables?.let { query.variables = variables }
 
         val wrapper: WrapperDto = try {
             maxSimultaneousRequestSemaphore.withPermit {
-                httpClient.post(Url(url)) {
+                httpClient.preparePost(Url(url)) {
                     contentType(ContentType.Application.Json)
                     setBody(query)
                     val token = authHelper.token.get()
@@ -93,13 +204,15 @@ class GraphQlClient @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) co
                     ) {
                         header(TAZ_AUTH_HEADER, token)
                     }
-                }.body()
+                }.execute { response ->
+                    decodeWrapper(response.bodyAsChannel())
+                }
             }
         } catch (e: NullPointerException) {
             reportAndRethrowExceptions {
                 throw MalformedServerResponseException(e)
             }
-        } catch (e: JsonConvertException) {
+        } catch (e: SerializationException) {
             reportAndRethrowExceptions {
                 throw MalformedServerResponseException(e)
             }
@@ -126,11 +239,21 @@ class GraphQlClient @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) co
             }
         }
 
-        queryCache[cacheKey] = Pair(System.currentTimeMillis() + CACHE_DURATION_MS, wrapper)
-
         return wrapper
     }
 
+    /**
+     * Decode the [WrapperDto] while the response [body] is still being received.
+     * Responses like a full issue are multiple megabytes of JSON, so the raw body is never
+     * buffered as a whole but only the decoded DTOs are kept in memory.
+     */
+    private suspend fun decodeWrapper(body: ByteReadChannel): WrapperDto =
+        withContext(Dispatchers.IO) {
+            body.toInputStream().buffered().use {
+                Json.decodeFromStream<WrapperDto>(it)
+            }
+        }
+
     class MalformedServerResponseException(cause: Throwable? = null) :
         Exception("GraphQL server returned unexpected response", cause)
 
@@ -0,0 +1,77 @@
+package de.taz.app.android.api
+
+/**
+ * A size bounded LRU cache whose entries expire after an individual time to live.
+ *
+ * Expired entries are dropped when they are accessed and whenever a new entry is stored, so that
+ * large responses are not kept beyond their time to live. The least recently used entries are
+ * evicted as soon as more than [maxSize] entries are stored.
+ *
+ * @param maxSize The maximum number of entries to keep
+ * @param clock Returns the current time in milliseconds
+ */
+class QueryCache<K : Any, V : Any>(
+    private val maxSize: Int,
+    private val clock: () -> Long = { System.currentTimeMillis() }
+) {
+    private class Entry<V>(val value: V, val expiresAt: Long)
+
+    // A LinkedHashMap in access order keeps the least recently used entry first
+    private val entries = object : LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<K, Entry<V>>?): Boolean {
+            return size > maxSize
+        }
+    }
+
+    /**
+     * The number of [get] calls that returned a cached value
+     */
+    @Volatile
+    var hitCount = 0L
+        private set
+
+    /**
+     * The number of [get] calls that found no valid cached value
+     */
+    @Volatile
+    var missCount = 0L
+        private set
+
+    val size: Int
+        get() = synchronized(this) { entries.size }
+
+    /**
+     * Return the cached value for [key] or null if there is none or it has expired.
+     */
+    fun get(key: K): V? = synchronized(this) {
+        val entry = entries[key]
+        if (entry != null && clock() < entry.expiresAt) {
+            hitCount++
+            entry.value
+        } else {
+            if (entry != null) {
+                entries.remove(key)
+            }
+            missCount++
+            null
+        }
+    }
+
+    /**
+     * Cache [value] for [key] for the next [timeToLiveMs] milliseconds.
+     */
+    fun put(key: K, value: V, timeToLiveMs: Long) {
+        synchronized(this) {
+            val now = clock()
+            // Iterating does not change the access order
+            entries.values.removeAll { it.expiresAt <= now }
+            entries[key] = Entry(value, now + timeToLiveMs)
+        }
+    }
+
+    fun clear() {
+        synchronized(this) {
+            entries.clear()
+        }
+    }
+}
@@ -2,8 +2,7 @@ package de.taz.app.android.api.mappers
 
 import de.taz.app.android.api.dto.FeedDto
 import de.taz.app.android.api.models.Feed
-import de.taz.app.android.api.models.PublicationDate
-import de.taz.app.android.simpleDateFormat
+import de.taz.app.android.api.models.PublicationDateList
 
 object FeedMapper {
     fun from(feedDto: FeedDto): Feed {
@@ -14,12 +13,7 @@ object FeedMapper {
             requireNotNull(feedDto.momentRatio),
             feedDto.publicationDates.let { publicationDates ->
                 val validityMap = feedDto.validityDates.associate { it.date to it.validityDate }
-                publicationDates.sortedDescending().map {
-                    PublicationDate(
-                        requireNotNull(simpleDateFormat.parse(it)),
-                        validityMap[it]?.let(simpleDateFormat::parse)
-                    )
-                }
+                PublicationDateList.fromIsoDates(publicationDates.sortedDescending(), validityMap)
             },
             requireNotNull(feedDto.issueMinDate),
             requireNotNull(feedDto.issueMaxDate)
@@ -26,6 +26,9 @@ import java.util.Date
     indices = [
         Index("audioFileName"),
         Index("pdfFileName"),
+        Index("issueFeedName", "issueDate", "bookmarkedTime"),
+        Index("mediaSyncId", "dateDownload"),
+        Index("bookmarkedTime"),
     ]
 )
 data class ArticleStub(
@@ -34,3 +34,11 @@ data class FileEntry(
         storageLocation = image.storageLocation
     )
 }
+
+/**
+ * The size of a [FileEntry] by its path, used to sum up the storage used per folder
+ */
+data class FileEntrySize(
+    val path: String,
+    val size: Long,
+)
@@ -2,13 +2,15 @@ package de.taz.app.android.api.models
 
 import androidx.room.ColumnInfo
 import androidx.room.Entity
+import androidx.room.Index
 import de.taz.app.android.api.interfaces.IssueOperations
 import de.taz.app.android.persistence.repository.IssueKey
 import java.util.Date
 
 @Entity(
     tableName = "Issue",
-    primaryKeys = ["feedName", "date", "status"]
+    primaryKeys = ["feedName", "date", "status"],
+    indices = [Index("feedName", "status", "date")]
 )
 data class IssueStub(
     override val feedName: String,
@@ -48,3 +50,19 @@ data class IssueStub(
     override val issueKey: IssueKey
         get() = IssueKey(feedName, date, status)
 }
+
+/**
+ * The information of a downloaded issue required to decide whether it should be evicted.
+ * @param isPinned true if the issue contains bookmarked articles
+ */
+data class IssueStorageInfo(
+    val feedName: String,
+    val date: String,
+    val status: IssueStatus,
+    val dateDownload: Date,
+    val lastViewedDate: Date?,
+    val isPinned: Boolean,
+) {
+    val issueKey: IssueKey
+        get() = IssueKey(feedName, date, status)
+}
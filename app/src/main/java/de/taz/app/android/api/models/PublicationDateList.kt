@@ -0,0 +1,141 @@
+package de.taz.app.android.api.models
+
+import java.time.Instant
+import java.time.LocalDate
+import java.time.ZoneId
+import java.util.Date
+
+/**
+ * A read-only list of [PublicationDate]s, sorted descending, that only stores the epoch days of
+ * the dates. The [PublicationDate] objects are materialized lazily when they are accessed,
+ * so that a feed with thousands of publication dates can be loaded and searched cheaply.
+ *
+ * The epoch days refer to the local date of the [Date]s in the default time zone, which is how
+ * the dates are parsed by [de.taz.app.android.simpleDateFormat].
+ */
+class PublicationDateList(
+    val epochDays: IntArray,
+    val validityEpochDays: IntArray,
+) : AbstractList<PublicationDate>(), RandomAccess {
+
+    init {
+        require(epochDays.size == validityEpochDays.size) {
+            "Each publication date requires a validity entry"
+        }
+    }
+
+    private val materialized = arrayOfNulls<PublicationDate>(epochDays.size)
+
+    override val size: Int
+        get() = epochDays.size
+
+    override fun get(index: Int): PublicationDate {
+        materialized[index]?.let { return it }
+        val validity = validityEpochDays[index]
+        return PublicationDate(
+            epochDayToDate(epochDays[index]),
+            if (validity != NO_VALIDITY) epochDayToDate(validity) else null
+        ).also {
+            materialized[index] = it
+        }
+    }
+
+    /**
+     * Two [PublicationDateList]s are compared by their epoch days, without materializing the
+     * [PublicationDate]s. Any other [List] is compared element by element.
+     */
+    override fun equals(other: Any?): Boolean {
+        if (other is PublicationDateList) {
+            return epochDays.contentEquals(other.epochDays) &&
+                validityEpochDays.contentEquals(other.validityEpochDays)
+        }
+        return super.equals(other)
+    }
+
+    // Computed like the hash code of a List of the PublicationDates, so that it is consistent with
+    // equals for any List, but without keeping the materialized PublicationDates
+    private val contentHashCode by lazy {
+        var hashCode = 1
+        for (index in epochDays.indices) {
+            val validity = validityEpochDays[index]
+            val validityHashCode =
+                if (validity != NO_VALIDITY) epochDayToDate(validity).hashCode() else 0
+            val publicationDateHashCode =
+                epochDayToDate(epochDays[index]).hashCode() * 31 + validityHashCode
+            hashCode = 31 * hashCode + publicationDateHashCode
+        }
+        hashCode
+    }
+
+    override fun hashCode(): Int = contentHashCode
+
+    /**
+     * Returns the index of the epoch day of [search] like [binarySearch] would on an ascending list.
+     */
+    fun binarySearchDate(search: Date): Int {
+        val searchEpochDay = dateToEpochDay(search)
+        var low = 0
+        var high = epochDays.size - 1
+        while (low <= high) {
+            val mid = (low + high).ushr(1)
+            val epochDay = epochDays[mid]
+            when {
+                // The list is sorted descending, so larger epoch days come first
+                epochDay > searchEpochDay -> low = mid + 1
+                epochDay < searchEpochDay -> high = mid - 1
+                else -> return mid
+            }
+        }
+        return -(low + 1)
+    }
+
+    companion object {
+        // Marks a missing validity date in [validityEpochDays]
+        const val NO_VALIDITY = Int.MIN_VALUE
+
+        fun from(publicationDates: List<PublicationDate>): PublicationDateList {
+            if (publicationDates is PublicationDateList) {
+                return publicationDates
+            }
+            return PublicationDateList(
+                IntArray(publicationDates.size) { dateToEpochDay(publicationDates[it].date) },
+                IntArray(publicationDates.size) {
+                    publicationDates[it].validity?.let(::dateToEpochDay) ?: NO_VALIDITY
+                },
+            )
+        }
+
+        /**
+         * Create a [PublicationDateList] from ISO dates (yyyy-MM-dd) without parsing each of
+         * them to a [Date].
+         * @param dates The publication dates, sorted descending
+         * @param validityDates The validity dates by their publication date
+         */
+        fun fromIsoDates(dates: List<String>, validityDates: Map<String, String?>): PublicationDateList {
+            return PublicationDateList(
+                IntArray(dates.size) { LocalDate.parse(dates[it]).toEpochDay().toInt() },
+                IntArray(dates.size) {
+                    validityDates[dates[it]]?.let { validity ->
+                        LocalDate.parse(validity).toEpochDay().toInt()
+                    } ?: NO_VALIDITY
+                },
+            )
+        }
+
+        fun dateToEpochDay(date: Date): Int {
+            return Instant.ofEpochMilli(date.time)
+                .atZone(ZoneId.systemDefault())
+                .toLocalDate()
+                .toEpochDay()
+                .toInt()
+        }
+
+        fun epochDayToDate(epochDay: Int): Date {
+            val millis = LocalDate.ofEpochDay(epochDay.toLong())
+                .atStartOfDay(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli()
+            return Date(millis)
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package de.taz.app.android.content
+
+import android.content.Context
+import android.database.sqlite.SQLiteException
+import androidx.core.text.HtmlCompat
+import de.taz.app.android.api.models.Article
+import de.taz.app.android.api.models.Author
+import de.taz.app.android.api.models.SearchHit
+import de.taz.app.android.api.models.Sorting
+import de.taz.app.android.persistence.repository.ArticleRepository
+import de.taz.app.android.persistence.repository.IssueRepository
+import de.taz.app.android.persistence.search.ArticleSearchDocument
+import de.taz.app.android.persistence.search.ArticleSearchIndex
+import de.taz.app.android.persistence.search.ArticleSearchResult
+import de.taz.app.android.singletons.StorageService
+import de.taz.app.android.util.Log
+import de.taz.app.android.util.SingletonHolder
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.io.IOException
+
+private val NOT_CONTENT_REGEX = Regex(
+    "<(head|script|style)[^>]*>.*?</\\1>", setOf(RegexOption.IGNORE_CASE, RegexOption.DOT_MATCHES_ALL)
+)
+private val WHITESPACE_REGEX = Regex("\\s+")
+
+/**
+ * Search the articles of the downloaded issues without any network request.
+ *
+ * Articles are added to the [ArticleSearchIndex] once their download is complete and removed
+ * once their content is deleted. Issues downloaded before are added once by [backfill]. The text of the body is extracted from the article HTML files.
+ */
+class ArticleSearchService private constructor(applicationContext: Context) {
+    companion object : SingletonHolder<ArticleSearchService, Context>(::ArticleSearchService)
+
+    private val log by Log
+
+    private val articleSearchIndex = ArticleSearchIndex.getInstance(applicationContext)
+    private val articleRepository = ArticleRepository.getInstance(applicationContext)
+    private val issueRepository = IssueRepository.getInstance(applicationContext)
+    private val storageService = StorageService.getInstance(applicationContext)
+
+    /**
+     * Add the downloaded [articles] to the index with a single transaction.
+     * @param replacedArticleFileNames The articles whose files were downloaded again. They are
+     *   indexed again, all other [articles] are only indexed if they are missing.
+     */
+    suspend fun index(articles: List<Article>, replacedArticleFileNames: Set<String> = emptySet()) {
+        val indexed = articleSearchIndex.getIndexed(articles.map { it.articleFileName })
+        val articlesToIndex = articles.filter {
+            it.articleFileName in replacedArticleFileNames || it.articleFileName !in indexed
+        }
+        if (articlesToIndex.isEmpty()) {
+            return
+        }
+
+        val documents = withContext(Dispatchers.IO) {
+            articlesToIndex.mapNotNull { article ->
+                val body = readHtml(article)?.let(::extractText) ?: return@mapNotNull null
+                ArticleSearchDocument(
+                    article.articleFileName,
+                    article.issueFeedName,
+                    article.issueDate,
+                    article.title ?: "",
+                    article.teaser ?: "",
+                    article.getAuthorNames(),
+                    body,
+                )
+            }
+        }
+        articleSearchIndex.save(documents)
+        log.verbose("Indexed ${documents.size} of ${articlesToIndex.size} articles")
+    }
+
+    /**
+     * Index the articles of all issues that were downloaded before the index existed or before it
+     * was recreated. This is only done once, as all further downloads are indexed on completion.
+     */
+    suspend fun backfill() {
+        try {
+            if (articleSearchIndex.isBackfilled()) {
+                return
+            }
+            val issueStubs = issueRepository.getAllDownloadedIssueStubs()
+            issueStubs.forEach { issueStub ->
+                index(articleRepository.getArticleListForIssue(issueStub.issueKey))
+            }
+            articleSearchIndex.setBackfilled()
+            log.info("Indexed the articles of ${issueStubs.size} downloaded issues")
+        } catch (e: SQLiteException) {
+            // Articles that are indexed already are skipped on the next try
+            log.warn("Could not index the downloaded issues", e)
+        }
+    }
+
+    /**
+     * Remove the articles with the given [articleFileNames] from the index.
+     */
+    suspend fun remove(articleFileNames: List<String>) {
+        articleSearchIndex.delete(articleFileNames)
+    }
+
+    /**
+     * Search the downloaded articles.
+     * @param fromDate Optional minimum issue date in the format yyyy-MM-dd
+     * @param untilDate Optional maximum issue date in the format yyyy-MM-dd
+     * @param limit The maximum number of hits returned
+     * @return The hits in the order defined by [sorting]
+     */
+    suspend fun search(
+        text: String?,
+        title: String?,
+        author: String?,
+        fromDate: String?,
+        untilDate: String?,
+        sorting: Sorting,
+        limit: Int,
+    ): List<SearchHit> {
+        if (limit <= 0) {
+            return emptyList()
+        }
+        val results = articleSearchIndex.search(text, title, author, fromDate, untilDate)
+        val sortedResults = when (sorting) {
+            Sorting.relevance -> results
+            Sorting.actuality -> results.sortedByDescending { it.issueDate }
+            Sorting.appearance -> results.sortedBy { it.issueDate }
+        }
+
+        // Stale results, whose article or file is gone, are skipped until limit hits are found
+        val hits = mutableListOf<SearchHit>()
+        for (chunk in sortedResults.chunked(limit)) {
+            val articles = articleRepository
+                .get(chunk.map { it.articleFileName })
+                .associateBy { it.articleFileName }
+            withContext(Dispatchers.IO) {
+                chunk.mapNotNullTo(hits) { result ->
+                    articles[result.articleFileName]?.let { toSearchHit(it, result) }
+                }
+            }
+            if (hits.size >= limit) {
+                break
+            }
+        }
+        return hits.take(limit)
+    }
+
+    private fun toSearchHit(article: Article, result: ArticleSearchResult): SearchHit? {
+        val articleHtml = article.articleHtml ?: return null
+        val fileUri = storageService.getFileUri(articleHtml) ?: return null
+        val html = readHtml(article) ?: return null
+
+        return SearchHit(
+            article.articleFileName,
+            article.mediaSyncId,
+            article.authorJoins.map { Author(it.authorJoin.authorName, it.fileEntry) },
+            article.onlineLink,
+            fileUri.substringBeforeLast('/'),
+            result.snippet?.takeIf { it.isNotBlank() } ?: article.teaser,
+            article.title ?: "",
+            article.teaser,
+            article.section?.title,
+            article.issueDate,
+            html,
+            article.pdfFileName,
+            article.audioFileName,
+        )
+    }
+
+    private fun readHtml(article: Article): String? {
+        val file = article.articleHtml?.let { storageService.getFile(it) } ?: return null
+        return try {
+            file.readText()
+        } catch (e: IOException) {
+            log.warn("Could not read ${article.articleFileName} to be searched", e)
+            null
+        }
+    }
+
+    private fun extractText(html: String): String {
+        val content = html.replace(NOT_CONTENT_REGEX, " ")
+        return HtmlCompat.fromHtml(content, HtmlCompat.FROM_HTML_MODE_LEGACY)
+            .toString()
+            .replace(WHITESPACE_REGEX, " ")
+            .trim()
+    }
+}
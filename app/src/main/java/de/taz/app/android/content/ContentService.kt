@@ -31,7 +31,6 @@ import de.taz.app.android.persistence.repository.AppInfoRepository
 import de.taz.app.android.persistence.repository.ArticleRepository
 import de.taz.app.android.persistence.repository.FrontPageKey
 import de.taz.app.android.persistence.repository.FrontpagePublication
-import de.taz.app.android.persistence.repository.IssueKey
 import de.taz.app.android.persistence.repository.IssueKeyWithPages
 import de.taz.app.android.persistence.repository.IssuePublication
 import de.taz.app.android.persistence.repository.IssuePublicationWithPages
@@ -71,6 +70,7 @@ class ContentService(
     private val momentRepository = MomentRepository.getInstance(applicationContext)
     private val downloadDataStore = DownloadDataStore.getInstance(applicationContext)
     private val apiService = ApiService.getInstance(applicationContext)
+    private val issueVersionService = IssueVersionService.getInstance(applicationContext)
 
 
     /**
@@ -330,25 +330,12 @@ class ContentService(
     }
 
     /**
-     * Checks whether the locally cached version of an issue is up-to-date
+     * Checks whether the locally cached version of an issue is up-to-date, see [IssueVersionService]
+     * @param allowCache false if the latest version must be requested from the API
      * @returns false if no issueKey is given, the issue is not yet in the database or the issue is not up to date
      * @returns true if the issue is up to date
      */
-    suspend fun issueIsUpToDate(issueKey: AbstractIssueKey?): Boolean {
-        val startTime = android.os.SystemClock.elapsedRealtime()
-        if (issueKey == null) return false
-
-        val cachedIssue = issueRepository.get(IssueKey(issueKey)) ?: return false
-        val latestIssueVersion = try {
-            apiService.getIssueVersionByFeedAndDate(issueKey.feedName, issueKey.date)
-        } catch (_: Exception) {
-            // Fallback to cached metadata if the API call fails (e.g., no internet)
-            log.warn("Could not get the latest issue version from API")
-            cachedIssue.version
-        } ?: return false
-
-
-        log.debug("time passed: ${android.os.SystemClock.elapsedRealtime()- startTime}ms")
-        return cachedIssue.version == latestIssueVersion
+    suspend fun issueIsUpToDate(issueKey: AbstractIssueKey?, allowCache: Boolean = true): Boolean {
+        return issueVersionService.isUpToDate(issueKey, allowCache)
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package de.taz.app.android.content
+
+import android.content.Context
+import de.taz.app.android.api.ApiService
+import de.taz.app.android.api.ConnectivityException
+import de.taz.app.android.api.QueryCache
+import de.taz.app.android.persistence.repository.AbstractIssueKey
+import de.taz.app.android.persistence.repository.IssuePublication
+import de.taz.app.android.persistence.repository.IssueRepository
+import de.taz.app.android.util.Log
+import de.taz.app.android.util.SingletonHolder
+
+// Number of issues whose latest version is kept in memory
+private const val LATEST_VERSION_CACHE_MAX_SIZE = 50
+// The latest version of an issue is only requested again after this time
+private const val LATEST_VERSION_CACHE_DURATION_MS = 60_000L
+
+/**
+ * Checks whether the stored version of an issue is the latest one.
+ *
+ * Only the version column of the stored issue is read, and the latest version of each issue
+ * returned by the API is cached for [LATEST_VERSION_CACHE_DURATION_MS], so that opening the same
+ * issue again or checking it from different places does not cost another request.
+ */
+class IssueVersionService private constructor(applicationContext: Context) {
+    companion object : SingletonHolder<IssueVersionService, Context>(::IssueVersionService)
+
+    private val log by Log
+
+    private val apiService = ApiService.getInstance(applicationContext)
+    private val issueRepository = IssueRepository.getInstance(applicationContext)
+
+    private val latestVersions =
+        QueryCache<IssuePublication, Int>(LATEST_VERSION_CACHE_MAX_SIZE)
+
+    /**
+     * Checks whether the locally cached version of an issue is up-to-date
+     * @param allowCache false if the latest version must be requested from the API
+     * @returns false if no issueKey is given, the issue is not yet in the database or the issue is not up to date
+     * @returns true if the issue is up to date or its latest version could not be requested
+     */
+    suspend fun isUpToDate(issueKey: AbstractIssueKey?, allowCache: Boolean = true): Boolean {
+        if (issueKey == null) return false
+
+        val storedVersion = issueRepository.getVersion(issueKey) ?: return false
+        val latestVersion = try {
+            getLatestVersion(issueKey, allowCache)
+        } catch (e: Exception) {
+            // Fallback to cached metadata if the API call fails (e.g., no internet)
+            log.warn("Could not get the latest issue version from API", e)
+            storedVersion
+        } ?: return false
+
+        return storedVersion == latestVersion
+    }
+
+    @Throws(ConnectivityException::class)
+    private suspend fun getLatestVersion(issueKey: AbstractIssueKey, allowCache: Boolean): Int? {
+        val issuePublication = IssuePublication(issueKey.feedName, issueKey.date)
+        if (allowCache) {
+            latestVersions.get(issuePublication)?.let { return it }
+        }
+
+        return apiService.getIssueVersionByFeedAndDate(issueKey.feedName, issueKey.date)?.also {
+            latestVersions.put(issuePublication, it, LATEST_VERSION_CACHE_DURATION_MS)
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package de.taz.app.android.content
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.os.Build
+import androidx.annotation.VisibleForTesting
+import de.taz.app.android.api.interfaces.FileEntryOperations
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.singletons.ExternalStorageNotAvailableException
+import de.taz.app.android.singletons.StorageService
+import de.taz.app.android.ui.pdfViewer.MuPDFThumbnail
+import de.taz.app.android.ui.pdfViewer.mupdf.MuPDFDocumentCache
+import de.taz.app.android.util.Log
+import de.taz.app.android.util.SingletonHolder
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.asCoroutineDispatcher
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.util.concurrent.Executors
+
+const val THUMBNAIL_DIR = "page_thumbnails"
+private const val THUMBNAIL_QUALITY = 80
+
+/**
+ * The widths in pixels of the pre-rendered page thumbnails: small ones for the half width items
+ * of the page drawer and medium ones for the panorama pages and the front page.
+ */
+enum class PageThumbnailSize(val width: Int) {
+    SMALL(400),
+    MEDIUM(800),
+}
+
+/**
+ * Stores pre-rendered thumbnails of the page PDFs.
+ *
+ * Both sizes are rendered once, right after a page PDF has been downloaded, and stored as WebP
+ * files named by the sha256 of the PDF. So opening the page drawer only has to decode small
+ * images instead of parsing and rendering every page with MuPDF. The medium thumbnail is rendered
+ * and the small one is scaled down from it, so that each page is only rendered once.
+ * Pages downloaded before the thumbnails existed are rendered the first time they are requested
+ * by [getOrCreateThumbnail], which waits for them instead of rendering the page PDF a second time.
+ * The thumbnails are stored at the [StorageLocation] of their PDF. Thumbnails without a PDF, for
+ * example after the PDF was deleted by the Scrubber or moved to another storage location, are
+ * deleted by the disk sweep of the [de.taz.app.android.scrubber.Scrubber].
+ */
+class PageThumbnailStore private constructor(applicationContext: Context) {
+    companion object : SingletonHolder<PageThumbnailStore, Context>(::PageThumbnailStore)
+
+    private val log by Log
+
+    private val storageService = StorageService.getInstance(applicationContext)
+
+    // Render a single page at a time, so that the downloads and the pager are not slowed down
+    private val renderScope = CoroutineScope(
+        SupervisorJob() + Executors.newSingleThreadExecutor().asCoroutineDispatcher()
+    )
+    private val pendingJobs = mutableMapOf<String, Job>()
+
+    /**
+     * Get the smallest stored thumbnail of the page PDF [fileEntry] that is at least [width] wide.
+     * @return The thumbnail file or null if there is none that is big enough
+     */
+    suspend fun getThumbnail(fileEntry: FileEntryOperations, width: Int): File? =
+        withContext(Dispatchers.IO) {
+            val thumbnailDir = getThumbnailDir(fileEntry.storageLocation) ?: return@withContext null
+            PageThumbnailSize.values()
+                .filter { it.width >= width }
+                .map { getThumbnailFile(thumbnailDir, fileEntry.sha256, it) }
+                .firstOrNull { it.exists() }
+        }
+
+    /**
+     * Get the thumbnail like [getThumbnail]. If there is none yet, the thumbnails of the page PDF
+     * [fileEntry] stored at [pdfPath] are rendered first.
+     * @return The thumbnail file or null if no thumbnail is big enough or it could not be rendered
+     */
+    suspend fun getOrCreateThumbnail(fileEntry: FileEntryOperations, pdfPath: String, width: Int): File? {
+        getThumbnail(fileEntry, width)?.let { return it }
+        if (PageThumbnailSize.values().none { it.width >= width }) {
+            return null
+        }
+        createInBackground(fileEntry, pdfPath)?.join()
+        return getThumbnail(fileEntry, width)
+    }
+
+    /**
+     * Render the thumbnails of the page PDF [fileEntry] stored at [pdfPath] in the background,
+     * unless they already exist or are being rendered.
+     * @return The job rendering the thumbnails or null if they cannot be stored
+     */
+    fun createInBackground(fileEntry: FileEntryOperations, pdfPath: String): Job? {
+        val sha256 = fileEntry.sha256
+        val thumbnailDir = getThumbnailDir(fileEntry.storageLocation) ?: return null
+        synchronized(pendingJobs) {
+            pendingJobs[sha256]?.let { return it }
+
+            val job = renderScope.launch(start = CoroutineStart.LAZY) {
+                try {
+                    if (PageThumbnailSize.values().any { !getThumbnailFile(thumbnailDir, sha256, it).exists() }) {
+                        create(thumbnailDir, sha256, pdfPath)
+                    }
+                } catch (e: Exception) {
+                    log.warn("Could not create the thumbnails of ${fileEntry.name}", e)
+                } finally {
+                    synchronized(pendingJobs) {
+                        pendingJobs.remove(sha256)
+                    }
+                }
+            }
+            // Only start the job once it is registered, so that it is always removed again
+            pendingJobs[sha256] = job
+            job.start()
+            return job
+        }
+    }
+
+    /**
+     * Delete the thumbnails of the page PDF [fileEntry].
+     */
+    fun delete(fileEntry: FileEntryOperations) {
+        val thumbnailDir = getThumbnailDir(fileEntry.storageLocation) ?: return
+        PageThumbnailSize.values().forEach {
+            getThumbnailFile(thumbnailDir, fileEntry.sha256, it).delete()
+        }
+    }
+
+    /**
+     * Get all thumbnail files stored at [storageLocation], including incomplete ones, grouped by
+     * the sha256 of their page PDF.
+     */
+    fun getThumbnailFilesBySha256(storageLocation: StorageLocation): Map<String, List<File>> {
+        val thumbnailDir = getThumbnailDir(storageLocation) ?: return emptyMap()
+        return thumbnailDir.listFiles { file -> file.isFile }.orEmpty()
+            .groupBy { it.name.substringBefore('_') }
+    }
+
+    private fun create(thumbnailDir: File, sha256: String, pdfPath: String) {
+        val documentReference = MuPDFDocumentCache.acquire(pdfPath)
+        val medium = try {
+            MuPDFThumbnail(documentReference.core).thumbnail(PageThumbnailSize.MEDIUM.width)
+        } finally {
+            documentReference.release()
+        }
+
+        thumbnailDir.mkdirs()
+        try {
+            save(medium, getThumbnailFile(thumbnailDir, sha256, PageThumbnailSize.MEDIUM))
+            val smallHeight = medium.height * PageThumbnailSize.SMALL.width / medium.width
+            val small = Bitmap.createScaledBitmap(
+                medium, PageThumbnailSize.SMALL.width, smallHeight, true
+            )
+            save(small, getThumbnailFile(thumbnailDir, sha256, PageThumbnailSize.SMALL))
+            small.recycle()
+        } finally {
+            medium.recycle()
+        }
+    }
+
+    /**
+     * Write the [bitmap] to a temporary file first and rename it, so that a thumbnail is never
+     * read while it is incomplete.
+     */
+    @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+    fun save(bitmap: Bitmap, file: File) {
+        val tmpFile = File(file.path + ".tmp")
+        FileOutputStream(tmpFile).use { outputStream ->
+            if (!bitmap.compress(getCompressFormat(), THUMBNAIL_QUALITY, outputStream)) {
+                throw IOException("Could not compress ${file.name}")
+            }
+        }
+        if (!tmpFile.renameTo(file)) {
+            tmpFile.delete()
+            throw IOException("Could not move ${tmpFile.name} to ${file.name}")
+        }
+    }
+
+    @Suppress("DEPRECATION")
+    private fun getCompressFormat(): Bitmap.CompressFormat {
+        return if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            Bitmap.CompressFormat.WEBP_LOSSY
+        } else {
+            Bitmap.CompressFormat.WEBP
+        }
+    }
+
+    private fun getThumbnailDir(storageLocation: StorageLocation): File? {
+        return try {
+            storageService.getDirForLocation(storageLocation)?.let { File(it, THUMBNAIL_DIR) }
+        } catch (e: ExternalStorageNotAvailableException) {
+            null
+        }
+    }
+
+    private fun getThumbnailFile(thumbnailDir: File, sha256: String, size: PageThumbnailSize): File {
+        return File(thumbnailDir, "${sha256}_${size.width}.webp")
+    }
+}
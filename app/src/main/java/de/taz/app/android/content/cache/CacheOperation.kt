@@ -15,6 +15,8 @@ import kotlinx.coroutines.flow.MutableSharedFlow
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
 import java.util.Date
 import java.util.concurrent.ConcurrentHashMap
@@ -59,6 +61,21 @@ abstract class CacheOperation<ITEM : CacheItem, RESULT>(
     companion object {
         internal val activeCacheOperations = ConcurrentHashMap<String, AnyCacheOperation>()
         internal val cacheStatusFlow = MutableSharedFlow<Pair<String, CacheStateUpdate>>()
+
+        /**
+         * Every [CacheOperation] is registered while holding this lock. The
+         * [de.taz.app.android.scrubber.Scrubber] holds it while it deletes orphaned entries, so
+         * that no operation can start meanwhile.
+         */
+        internal val registrationLock = Mutex()
+
+        /**
+         * The number of [CacheOperation]s registered so far. It is only changed while holding the
+         * [registrationLock], so a changed value tells that an operation has started since.
+         */
+        @Volatile
+        internal var registrationCount = 0L
+            private set
     }
 
     val log by Log
@@ -146,7 +163,9 @@ abstract class CacheOperation<ITEM : CacheItem, RESULT>(
      */
     suspend fun execute(forceExecution: Boolean = false): RESULT = withContext(NonCancellable) {
         try {
-            registerOperation()
+            registrationLock.withLock {
+                registerOperation()
+            }
         } catch (e: SameOperationActiveException) {
             log.warn("Operation with tag $tag and class ${this@CacheOperation::class.simpleName} is already scheduled")
 
@@ -250,6 +269,7 @@ abstract class CacheOperation<ITEM : CacheItem, RESULT>(
                 )
             }
         }
+        registrationCount++
 
         CoroutineScope(Dispatchers.Default).launch {
             stateFlow.collect { update ->
@@ -4,6 +4,7 @@ import android.content.Context
 import de.taz.app.android.api.interfaces.DownloadableCollection
 import de.taz.app.android.api.models.Article
 import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.content.PageThumbnailStore
 import de.taz.app.android.download.DownloadPriority
 import de.taz.app.android.persistence.repository.ArticleRepository
 import de.taz.app.android.singletons.StorageService
@@ -27,6 +28,7 @@ class ContentDeletion(
     override val loadingState: CacheState = CacheState.DELETING_CONTENT
 
     private val storageService = StorageService.getInstance(applicationContext)
+    private val pageThumbnailStore = PageThumbnailStore.getInstance(applicationContext)
 
     companion object {
         /**
@@ -97,7 +99,11 @@ class ContentDeletion(
         // better to assume the content deleted
         collection.setDownloadDate(null, applicationContext)
         for (item in cacheItems) {
-            storageService.deleteFile(item.fileEntryOperation.fileEntry)
+            val fileEntry = item.fileEntryOperation.fileEntry
+            storageService.deleteFile(fileEntry)
+            if (fileEntry.name.endsWith(".pdf")) {
+                pageThumbnailStore.delete(fileEntry)
+            }
         }
     }
 }
\ No newline at end of file
@@ -2,7 +2,10 @@ package de.taz.app.android.content.cache
 
 import android.content.Context
 import de.taz.app.android.api.interfaces.DownloadableCollection
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.api.models.AbstractIssue
 import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.Page
 import de.taz.app.android.dataStore.StorageDataStore
 import de.taz.app.android.download.DownloadPriority
 import de.taz.app.android.download.FileDownloader
@@ -13,6 +16,7 @@ import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
+import java.io.File
 import java.util.Date
 
 /**
@@ -36,11 +40,23 @@ class ContentDownload(
     override val loadingState: CacheState = CacheState.LOADING_CONTENT
     private val fileDownloader = FileDownloader.getInstance(applicationContext)
 
+    // The page PDFs of the collection, whose thumbnails are rendered once they are downloaded
+    private val pagePdfNames: Set<String> = when (collection) {
+        is AbstractIssue -> collection.pageList.map { it.pagePdf.name }.toSet()
+        is Page -> setOf(collection.pagePdf.name)
+        else -> emptySet()
+    }
+
     init {
         // Ensure all items dynamically reflect the current priority of this operation
         items.forEach { it.priority = { this.priority } }
     }
 
+    /**
+     * Return true if the file [fileName] is the PDF of a page of the collection.
+     */
+    fun isPagePdf(fileName: String): Boolean = fileName in pagePdfNames
+
     override fun onPriorityRaised(newPriority: DownloadPriority) {
         log.debug("Priority of $tag raised to $newPriority, re-enqueuing")
         CoroutineScope(Dispatchers.Default).launch {
@@ -81,29 +97,40 @@ class ContentDownload(
             val storageService = StorageService.getInstance(applicationContext)
             val storageLocation = storageDataStore.storageLocation.get()
             val fileEntryRepository = FileEntryRepository.getInstance(applicationContext)
-            val prioritizedDownloads = collection.getAllFiles(applicationContext)
-                .map {
-                    // Set the storage type to the currently selected storage
-                    val fileEntry = fileEntryRepository.saveOrReplace(
-                        it.copy(storageLocation = storageLocation)
-                    )
-                    // Determine the url from where this file entry should be downloaded as well as
-                    // the path where this file should be saved
-                    val absolutePath = storageService.getAbsolutePath(fileEntry)!!
-                    val baseUrl = storagePathService.determineBaseUrl(
+
+            // Only files that changed since they were downloaded have to be downloaded again.
+            // This keeps updates of an issue (e.g. corrections in the morning) small.
+            val allFileEntries = collection.getAllFiles(applicationContext)
+            val storedFileEntries = fileEntryRepository.get(allFileEntries.map { it.name })
+                .associateBy { it.name }
+            val changedFileEntries = withContext(Dispatchers.IO) {
+                allFileEntries.filterNot {
+                    isUpToDate(storageService, it, storedFileEntries[it.name], storageLocation)
+                }
+            }
+
+            // Set the storage type to the currently selected storage and save all entries at once
+            val fileEntries = fileEntryRepository.saveOrReplace(
+                changedFileEntries.map {
+                    it.copy(storageLocation = storageLocation)
+                }
+            )
+            // Determine the url from where the file entries should be downloaded as well as
+            // the path where they should be saved
+            val baseUrls = storagePathService.determineBaseUrls(fileEntries, collection)
+            val prioritizedDownloads = fileEntries.map { fileEntry ->
+                val absolutePath = storageService.getAbsolutePath(fileEntry)!!
+                val baseUrl = baseUrls.getValue(fileEntry.storageType)
+                FileCacheItem(
+                    fileEntry.name,
+                    { priority },
+                    FileEntryOperation(
                         fileEntry,
-                        collection
+                        absolutePath,
+                        "$baseUrl/${fileEntry.name}",
                     )
-                    FileCacheItem(
-                        fileEntry.name,
-                        { priority },
-                        FileEntryOperation(
-                            fileEntry,
-                            absolutePath,
-                            "$baseUrl/${fileEntry.name}",
-                        )
-                    )
-                }
+                )
+            }
             return ContentDownload(
                 applicationContext,
                 prioritizedDownloads,
@@ -113,6 +140,25 @@ class ContentDownload(
             )
         }
 
+        /**
+         * Check whether the stored [FileEntry] of [fileEntry] is already downloaded to
+         * [storageLocation] with the same content, that is the same modification time and hash.
+         * Must not be called from the main thread, as it checks whether the file exists on disk.
+         */
+        private fun isUpToDate(
+            storageService: StorageService,
+            fileEntry: FileEntry,
+            storedFileEntry: FileEntry?,
+            storageLocation: StorageLocation,
+        ): Boolean {
+            return storedFileEntry != null
+                    && storedFileEntry.dateDownload != null
+                    && storedFileEntry.storageLocation == storageLocation
+                    && storedFileEntry.moTime >= fileEntry.moTime
+                    && storedFileEntry.sha256 == fileEntry.sha256
+                    && storageService.getAbsolutePath(storedFileEntry)?.let { File(it).exists() } == true
+        }
+
         /**
          * Preparing a [ContentDownload] object for a single file by determining the origin and destination uri
          *
@@ -159,10 +205,13 @@ class ContentDownload(
     }
 
     override suspend fun doWork() = withContext(Dispatchers.Default) {
-        // Enqueue all downloads asynchronously
-        launch { fileDownloader.enqueueDownload(this@ContentDownload) }
+        // All files might be up to date already, then there is nothing to wait for
+        if (cacheItems.isNotEmpty()) {
+            // Enqueue all downloads asynchronously
+            launch { fileDownloader.enqueueDownload(this@ContentDownload) }
 
-        waitOnCompletion()
+            waitOnCompletion()
+        }
         // download is done
         collection?.setDownloadDate(Date(), applicationContext)
 
@@ -1,9 +1,11 @@
 package de.taz.app.android.content.cache
 
 import android.content.Context
+import android.database.sqlite.SQLiteException
 import de.taz.app.android.api.models.AbstractIssue
 import de.taz.app.android.api.models.IssueWithPages
 import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.content.ArticleSearchService
 import de.taz.app.android.download.DownloadPriority
 import de.taz.app.android.persistence.repository.AbstractIssuePublication
 import de.taz.app.android.persistence.repository.IssuePublicationWithPages
@@ -57,6 +59,7 @@ class IssueDeletion(
         )
         val contentDeletionCacheItems: MutableList<SubOperationCacheItem> = mutableListOf()
         val metadataDeletionCacheItems: MutableList<SubOperationCacheItem> = mutableListOf()
+        val articleFileNamesToUnindex: MutableList<String> = mutableListOf()
 
         for (issue in issues) {
             // Maybe the issue is IssueWithPages, we do not know at this moment,
@@ -69,6 +72,9 @@ class IssueDeletion(
                         issue.sectionList +
                         articles.filter { !it.bookmarked } +
                         issue.pageList
+            articleFileNamesToUnindex.addAll(
+                articles.filter { !it.bookmarked }.map { it.articleFileName }
+            )
 
             // If no bookmarked article is attached, delete metadata, too
             if (articles.none { it.bookmarked }) {
@@ -108,6 +114,13 @@ class IssueDeletion(
             }
         }
 
+        // The article files are gone, so they can not be found by the local search anymore
+        try {
+            ArticleSearchService.getInstance(applicationContext).remove(articleFileNamesToUnindex)
+        } catch (e: SQLiteException) {
+            log.warn("Could not remove the deleted articles from the search index", e)
+        }
+
         if (failedCount.get() > 0) {
             // If we encountered errors while deleting content skip deleting metadata.
             throw CacheOperationFailedException("Operation aborted due to previous errors")
@@ -1,6 +1,7 @@
 package de.taz.app.android.content.cache
 
 import android.content.Context
+import android.database.sqlite.SQLiteException
 import de.taz.app.android.METADATA_DOWNLOAD_RETRY_INDEFINITELY
 import de.taz.app.android.api.ApiService
 import de.taz.app.android.api.interfaces.DownloadableCollection
@@ -15,6 +16,7 @@ import de.taz.app.android.api.models.Issue
 import de.taz.app.android.api.models.IssueWithPages
 import de.taz.app.android.api.models.ResourceInfo
 import de.taz.app.android.api.models.Section
+import de.taz.app.android.content.ArticleSearchService
 import de.taz.app.android.content.ContentService
 import de.taz.app.android.download.DownloadPriority
 import de.taz.app.android.persistence.repository.AbstractIssueKey
@@ -174,9 +176,17 @@ class WrappedDownload(
 
         issueDownloadNotifier?.start()
 
-        subOperationCacheItems = dependentCollections
-            .filter { !it.isDownloaded(applicationContext) }
-            .map { createSubOperationCacheItem(it) }
+        val pendingCollections = dependentCollections.filter { !it.isDownloaded(applicationContext) }
+        subOperationCacheItems = pendingCollections.map { createSubOperationCacheItem(it) }
+
+        // Articles with files that had to be downloaded again have to be indexed again
+        val replacedArticleFileNames = pendingCollections.zip(subOperationCacheItems)
+            .mapNotNull { (collection, item) ->
+                (collection as? Article)?.articleFileName?.takeIf {
+                    (item.subOperation as ContentDownload).cacheItems.isNotEmpty()
+                }
+            }
+            .toSet()
 
         // Add all content downloads to the items
         addItems(subOperationCacheItems)
@@ -205,6 +215,7 @@ class WrappedDownload(
             if (parentCollection is DownloadableStub) {
                 parentCollection.setDownloadDate(Date(), applicationContext)
             }
+            indexArticles(parentCollection, replacedArticleFileNames)
         } else {
             throw CacheOperationFailedException(
                 "One or more sub operations failed or were cancelled"
@@ -212,6 +223,28 @@ class WrappedDownload(
         }
     }
 
+    /**
+     * Add the downloaded articles of [parentCollection] to the [ArticleSearchService] with a single
+     * transaction, so they can be searched offline.
+     */
+    private suspend fun indexArticles(
+        parentCollection: ObservableDownload,
+        replacedArticleFileNames: Set<String>,
+    ) {
+        val articles = when (parentCollection) {
+            is AbstractIssue -> parentCollection.getArticles()
+            is Article -> listOf(parentCollection)
+            else -> return
+        }
+        try {
+            ArticleSearchService.getInstance(applicationContext)
+                .index(articles, replacedArticleFileNames)
+        } catch (e: SQLiteException) {
+            // The download itself succeeded, the articles will be indexed on their next download
+            log.warn("Could not index the articles of $tag", e)
+        }
+    }
+
     private suspend fun createSubOperationCacheItem(collection: DownloadableCollection): SubOperationCacheItem {
         val contentDownload = ContentDownload.prepare(
             applicationContext,
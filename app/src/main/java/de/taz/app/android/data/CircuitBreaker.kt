@@ -0,0 +1,123 @@
+package de.taz.app.android.data
+
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlin.random.Random
+
+/**
+ * A thread safe circuit breaker guarding the requests to a single host.
+ *
+ * While [State.CLOSED] requests are sent as usual. A connectivity failure opens the circuit for
+ * a jittered back off time, during which no requests should be sent. Once the back off time has
+ * passed, a single probe may be sent in the [State.HALF_OPEN] state: on success the circuit is
+ * closed again, on failure ([onProbeFailure]) it is opened for a longer back off time.
+ *
+ * @param initialOpenTimeMs The back off time after the first failure
+ * @param maxOpenTimeMs The maximum back off time
+ * @param backOffFactor The factor the back off time is multiplied with after each failed probe
+ */
+class CircuitBreaker(
+    private val initialOpenTimeMs: Long,
+    private val maxOpenTimeMs: Long,
+    private val backOffFactor: Float,
+    private val random: Random = Random.Default,
+    private val currentTimeMs: () -> Long = System::currentTimeMillis,
+) {
+    enum class State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private val _state = MutableStateFlow(State.CLOSED)
+    val state: StateFlow<State> = _state.asStateFlow()
+
+    private val _failedProbes = MutableStateFlow(0L)
+
+    /**
+     * The number of probes that failed so far
+     */
+    val failedProbes: StateFlow<Long> = _failedProbes.asStateFlow()
+
+    private var openTimeMs = initialOpenTimeMs
+    private var openUntilMs = 0L
+
+    /**
+     * Close the circuit after a successful request or probe.
+     */
+    @Synchronized
+    fun onSuccess() {
+        openTimeMs = initialOpenTimeMs
+        _state.value = State.CLOSED
+    }
+
+    /**
+     * Open the circuit after a connectivity failure. Failures of requests sent concurrently while
+     * the circuit is already open do not prolong the back off time, and failures while the probe
+     * is sent do not count as its result.
+     */
+    @Synchronized
+    fun onFailure() {
+        if (_state.value == State.CLOSED) {
+            open()
+        }
+    }
+
+    /**
+     * Open the circuit for a longer back off time after the probe failed.
+     */
+    @Synchronized
+    fun onProbeFailure() {
+        if (_state.value == State.HALF_OPEN) {
+            _failedProbes.value++
+            open()
+        }
+    }
+
+    /**
+     * Allow a probe immediately, for example because a new network became available.
+     * The back off time is reset, as the previous failures are probably unrelated to the new network.
+     */
+    @Synchronized
+    fun onNetworkAvailable() {
+        if (_state.value == State.OPEN) {
+            openTimeMs = initialOpenTimeMs
+            openUntilMs = currentTimeMs()
+        }
+    }
+
+    /**
+     * The time until a probe may be sent or 0 if the circuit is not open anymore.
+     */
+    @Synchronized
+    fun getRemainingOpenTimeMs(): Long {
+        return if (_state.value == State.OPEN) {
+            (openUntilMs - currentTimeMs()).coerceAtLeast(0L)
+        } else {
+            0L
+        }
+    }
+
+    /**
+     * Switch to [State.HALF_OPEN] if the back off time has passed.
+     * @return true if the caller must send the single probe and report its result
+     */
+    @Synchronized
+    fun tryHalfOpen(): Boolean {
+        if (_state.value != State.OPEN || currentTimeMs() < openUntilMs) {
+            return false
+        }
+        _state.value = State.HALF_OPEN
+        return true
+    }
+
+    private fun open() {
+        // Equal jitter: wait at least half of the back off time, so that the probes of
+        // different hosts and devices do not happen all at the same time
+        val jitteredOpenTimeMs = openTimeMs / 2 + random.nextLong(openTimeMs / 2 + 1)
+        openUntilMs = currentTimeMs() + jitteredOpenTimeMs
+        openTimeMs = (openTimeMs * backOffFactor).toLong().coerceAtMost(maxOpenTimeMs)
+        _state.value = State.OPEN
+    }
+}
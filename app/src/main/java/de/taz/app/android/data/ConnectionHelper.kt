@@ -4,133 +4,150 @@ import de.taz.app.android.CONNECTION_FAILURE_BACKOFF_TIME_MS
 import de.taz.app.android.MAX_CONNECTION_FAILURE_BACKOFF_TIME_MS
 import de.taz.app.android.api.ConnectivityException
 import de.taz.app.android.util.Log
-import io.ktor.client.engine.android.Android
 import kotlinx.coroutines.CancellationException
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.currentCoroutineContext
-import kotlinx.coroutines.delay
 import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.first
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withTimeoutOrNull
 import kotlinx.coroutines.yield
-import kotlinx.coroutines.suspendCancellableCoroutine
-import java.util.concurrent.ConcurrentLinkedQueue
-import kotlin.coroutines.Continuation
-import kotlin.coroutines.resume
-import kotlin.coroutines.resumeWithException
 
 const val BACK_OFF_FACTOR = 1.75f
 
-data class WaitingCall(
-    val continuation: Continuation<Unit>,
-    val maxRetries: Int
-)
-
 const val INFINITE = -1
 
-// Default ktor client engine to be used
-val HTTP_CLIENT_ENGINE = Android.create()
-
-
-abstract class ConnectionHelper {
+/**
+ * Retries the requests to a single host that failed because of connectivity problems.
+ *
+ * A failure opens the [CircuitBreaker] of the host. While it is open, calls wait instead of
+ * sending requests. A single recovery job probes the host with [checkConnectivity] once the back
+ * off time has passed, or as soon as the [ConnectivityMonitor] reports a newly validated network.
+ * No probes are sent while the device has no network at all: the probe is counted as failed right
+ * away, so that calls with a limited number of retries still fail once they are used up.
+ * All waiting calls are resumed once a probe succeeds.
+ */
+abstract class ConnectionHelper(
+    private val connectivityMonitor: ConnectivityMonitor,
+    private val circuitBreaker: CircuitBreaker = CircuitBreaker(
+        CONNECTION_FAILURE_BACKOFF_TIME_MS,
+        MAX_CONNECTION_FAILURE_BACKOFF_TIME_MS,
+        BACK_OFF_FACTOR
+    ),
+) {
     val log by Log
 
-    private val waitingCalls = ConcurrentLinkedQueue<WaitingCall>()
-
-    private var failedAttempts = 0
-    private val isCurrentlyReachable
-        get() = failedAttempts == 0
-    private var backOffTimeMs = CONNECTION_FAILURE_BACKOFF_TIME_MS
-
-
-    private var connectivityCheckJob: Job? = null
+    private var recoveryJob: Job? = null
 
     suspend fun <T> retryOnConnectivityFailure(
         onConnectionFailure: suspend () -> Unit = {},
         maxRetries: Int = INFINITE,
         block: suspend () -> T
     ): T {
+        var failedAttempts = 0
         while (true) {
             currentCoroutineContext().ensureActive()
 
+            if (circuitBreaker.state.value != CircuitBreaker.State.CLOSED) {
+                ensureRecoveryRunning()
+                failedAttempts = awaitRecovery(failedAttempts, maxRetries)
+            }
+
             try {
-                return block()
+                return block().also {
+                    circuitBreaker.onSuccess()
+                }
             } catch (e: CancellationException) {
                 throw e
             } catch (e: ConnectivityException.Recoverable) {
                 onConnectionFailure()
-                ensureConnectivityCheckRunning()
-                if (maxRetries > -1 && failedAttempts >= maxRetries) {
+                circuitBreaker.onFailure()
+                failedAttempts++
+                if (maxRetries > -1 && failedAttempts > maxRetries) {
                     throw ConnectivityException.Recoverable("Maximum retries exceeded", e)
-                } else {
-                    suspendCancellableCoroutine<Unit> { continuation ->
-                        val waitingCall = WaitingCall(
-                            continuation,
-                            maxRetries
-                        )
-                        waitingCalls.offer(waitingCall)
-                        continuation.invokeOnCancellation {
-                            waitingCalls.remove(waitingCall)
-                        }
-                    }
                 }
             }
             yield()
         }
     }
 
-    private fun ensureConnectivityCheckRunning() {
-        if (connectivityCheckJob?.isActive != true) {
-            connectivityCheckJob = CoroutineScope(Dispatchers.Default).launch {
-                tryForConnectivity()
+    /**
+     * Wait until the circuit is closed again. Failed probes count as failed attempts of the call.
+     * @return the number of failed attempts including the probes that failed while waiting
+     */
+    private suspend fun awaitRecovery(failedAttempts: Int, maxRetries: Int): Int {
+        val failedProbesBefore = circuitBreaker.failedProbes.value
+        val (state, failedProbes) =
+            combine(circuitBreaker.state, circuitBreaker.failedProbes) { state, failedProbes ->
+                state to failedProbes
+            }.first { (state, failedProbes) ->
+                val attempts = failedAttempts + (failedProbes - failedProbesBefore)
+                state == CircuitBreaker.State.CLOSED || (maxRetries > -1 && attempts > maxRetries)
             }
+
+        if (state != CircuitBreaker.State.CLOSED) {
+            throw ConnectivityException.Recoverable("Maximum retries amount exceeded")
         }
+        return failedAttempts + (failedProbes - failedProbesBefore).toInt()
     }
 
-    private suspend fun tryForConnectivity() {
-        do {
-            log.debug("Connection lost, retrying in $backOffTimeMs ms")
-            delay(backOffTimeMs)
-            incrementBackOffTime()
-            if (!checkConnectivity()) {
-                failedAttempts++
-                // Signal all waiting calls if they maximum retry limit is reached
-                for (call in waitingCalls) {
-                    if (call.maxRetries > -1 && failedAttempts > call.maxRetries) {
-                        call.continuation.resumeWithException(ConnectivityException.Recoverable(
-                            "Maximum retries amount exceeded"
-                        ))
-                        waitingCalls.remove(call)
-                    }
-                }
-            } else {
-                failedAttempts = 0
+    @Synchronized
+    private fun ensureRecoveryRunning() {
+        if (recoveryJob?.isActive != true) {
+            recoveryJob = CoroutineScope(Dispatchers.Default).launch {
+                recover()
             }
+        }
+    }
 
-        } while (!isCurrentlyReachable)
+    /**
+     * End the recovery if the circuit is closed. This has to be synchronized with
+     * [ensureRecoveryRunning]: otherwise a failure right after the last check could reopen the
+     * circuit while the finishing recovery job is still considered active, and nothing would
+     * close the circuit again.
+     * @return true if the recovery has ended
+     */
+    @Synchronized
+    private fun tryFinishRecovery(): Boolean {
+        if (circuitBreaker.state.value != CircuitBreaker.State.CLOSED) {
+            return false
+        }
+        recoveryJob = null
+        return true
+    }
 
-        resetBackOffTime()
-        log.debug("Connection recovered, resuming ${waitingCalls.size} calls")
-        waitingCalls.forEach {
-            try {
-                it.continuation.resume(Unit)
-            } catch (e: IllegalStateException) {
-                log.warn("Connection helper tried to resume Job twice")
+    private suspend fun recover() {
+        log.debug("Connection lost, waiting for connectivity")
+        while (!tryFinishRecovery()) {
+            awaitNextProbe()
+            if (circuitBreaker.tryHalfOpen()) {
+                // Without any network the probe would fail anyway
+                if (connectivityMonitor.isConnected.value && checkConnectivity()) {
+                    circuitBreaker.onSuccess()
+                } else {
+                    circuitBreaker.onProbeFailure()
+                }
             }
-            waitingCalls.remove(it)
         }
+        log.debug("Connection recovered")
     }
 
-    abstract suspend fun checkConnectivity(): Boolean
-
-    private fun incrementBackOffTime() {
-        backOffTimeMs = (BACK_OFF_FACTOR * backOffTimeMs).toLong().coerceAtMost(
-            MAX_CONNECTION_FAILURE_BACKOFF_TIME_MS
-        )
+    /**
+     * Wait until the back off time of the circuit has passed or a new network has been validated.
+     */
+    private suspend fun awaitNextProbe() {
+        val validatedNetworkCountBefore = connectivityMonitor.validatedNetworkCount.value
+        val hasNewNetwork = withTimeoutOrNull(circuitBreaker.getRemainingOpenTimeMs()) {
+            connectivityMonitor.validatedNetworkCount.first { it > validatedNetworkCountBefore }
+        } != null
+
+        if (hasNewNetwork) {
+            circuitBreaker.onNetworkAvailable()
+        }
     }
 
-    private fun resetBackOffTime() {
-        backOffTimeMs = CONNECTION_FAILURE_BACKOFF_TIME_MS
-    }
-}
\ No newline at end of file
+    abstract suspend fun checkConnectivity(): Boolean
+}
@@ -0,0 +1,87 @@
+package de.taz.app.android.data
+
+import android.content.Context
+import android.net.ConnectivityManager
+import android.net.Network
+import android.net.NetworkCapabilities
+import android.net.NetworkRequest
+import de.taz.app.android.singletons.ConnectionStatusHelper
+import de.taz.app.android.util.Log
+import de.taz.app.android.util.SingletonHolder
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+
+/**
+ * Tracks the networks of the device with the network callbacks of the [ConnectivityManager],
+ * so that waiting requests can be resumed as soon as a network becomes usable instead of
+ * polling the servers.
+ */
+class ConnectivityMonitor private constructor(applicationContext: Context) {
+    companion object : SingletonHolder<ConnectivityMonitor, Context>(::ConnectivityMonitor)
+
+    private val log by Log
+
+    private val connectedNetworks = mutableSetOf<Network>()
+    private val validatedNetworks = mutableSetOf<Network>()
+
+    // Assume to be connected until told otherwise, so that nothing waits forever if the
+    // callback can not be registered
+    private val _isConnected = MutableStateFlow(true)
+
+    /**
+     * True if any network with internet access is connected
+     */
+    val isConnected: StateFlow<Boolean> = _isConnected.asStateFlow()
+
+    private val _validatedNetworkCount = MutableStateFlow(0L)
+
+    /**
+     * Incremented whenever a network has been validated by the system to have working internet
+     * access, for example after switching from mobile to wifi or when leaving a tunnel.
+     */
+    val validatedNetworkCount: StateFlow<Long> = _validatedNetworkCount.asStateFlow()
+
+    private val networkCallback = object : ConnectivityManager.NetworkCallback() {
+        override fun onCapabilitiesChanged(network: Network, networkCapabilities: NetworkCapabilities) {
+            val isValidated =
+                networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_VALIDATED)
+            synchronized(this@ConnectivityMonitor) {
+                connectedNetworks.add(network)
+                if (isValidated) {
+                    if (validatedNetworks.add(network)) {
+                        log.debug("Network $network validated")
+                        _validatedNetworkCount.value++
+                    }
+                } else {
+                    validatedNetworks.remove(network)
+                }
+                _isConnected.value = true
+            }
+        }
+
+        override fun onLost(network: Network) {
+            synchronized(this@ConnectivityMonitor) {
+                connectedNetworks.remove(network)
+                validatedNetworks.remove(network)
+                _isConnected.value = connectedNetworks.isNotEmpty()
+            }
+        }
+    }
+
+    init {
+        val connectivityManager =
+            applicationContext.getSystemService(Context.CONNECTIVITY_SERVICE) as ConnectivityManager
+        val networkRequest = NetworkRequest.Builder()
+            .addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET)
+            .build()
+        try {
+            _isConnected.value = ConnectionStatusHelper.isOnline(applicationContext)
+            connectivityManager.registerNetworkCallback(networkRequest, networkCallback)
+        } catch (e: RuntimeException) {
+            // Some devices throw a SecurityException, or the app has too many callbacks registered
+            log.warn("Could not register the network callback", e)
+            _isConnected.value = true
+        }
+    }
+}
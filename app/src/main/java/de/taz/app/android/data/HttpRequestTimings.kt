@@ -0,0 +1,130 @@
+package de.taz.app.android.data
+
+import de.taz.app.android.util.LatencyMetric
+import de.taz.app.android.util.Log
+import okhttp3.Call
+import okhttp3.Connection
+import okhttp3.EventListener
+import okhttp3.Protocol
+import okhttp3.Request
+import java.io.IOException
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.Proxy
+import java.util.concurrent.atomic.AtomicLong
+
+// Log a summary of each phase every this many requests
+private const val TIMING_LOG_INTERVAL = 100L
+
+/**
+ * Aggregated durations of the phases of all requests of the [HttpTransport]:
+ * resolving the host, connecting (including the TLS handshake), waiting for the first byte of
+ * the response and transferring the response body.
+ */
+object HttpRequestTimings {
+    private val log by Log
+
+    val dns = LatencyMetric("HTTP DNS lookup", TIMING_LOG_INTERVAL)
+    val connect = LatencyMetric("HTTP connect", TIMING_LOG_INTERVAL)
+    val timeToFirstByte = LatencyMetric("HTTP time to first byte", TIMING_LOG_INTERVAL)
+    val transfer = LatencyMetric("HTTP transfer", TIMING_LOG_INTERVAL)
+
+    private val reusedConnectionCount = AtomicLong(0L)
+    private val newConnectionCount = AtomicLong(0L)
+
+    /**
+     * The number of requests that were sent on an already open connection
+     */
+    val reusedConnections: Long
+        get() = reusedConnectionCount.get()
+
+    /**
+     * The number of connections that had to be opened
+     */
+    val newConnections: Long
+        get() = newConnectionCount.get()
+
+    /**
+     * Creates a listener for each call, measuring the phases of this single call.
+     */
+    object EventListenerFactory : EventListener.Factory {
+        override fun create(call: Call): EventListener = RequestTimingListener()
+    }
+
+    private class RequestTimingListener : EventListener() {
+        private var callStartNanos = 0L
+        private var dnsStartNanos = 0L
+        private var connectStartNanos = 0L
+        private var requestSentNanos = 0L
+        private var responseStartNanos = 0L
+        private var hasConnected = false
+        private var protocol: Protocol? = null
+
+        override fun callStart(call: Call) {
+            callStartNanos = System.nanoTime()
+        }
+
+        override fun dnsStart(call: Call, domainName: String) {
+            dnsStartNanos = System.nanoTime()
+        }
+
+        override fun dnsEnd(call: Call, domainName: String, inetAddressList: List<InetAddress>) {
+            dns.record(System.nanoTime() - dnsStartNanos)
+        }
+
+        override fun connectStart(call: Call, inetSocketAddress: InetSocketAddress, proxy: Proxy) {
+            connectStartNanos = System.nanoTime()
+        }
+
+        override fun connectEnd(
+            call: Call,
+            inetSocketAddress: InetSocketAddress,
+            proxy: Proxy,
+            protocol: Protocol?
+        ) {
+            hasConnected = true
+            connect.record(System.nanoTime() - connectStartNanos)
+        }
+
+        override fun connectFailed(
+            call: Call,
+            inetSocketAddress: InetSocketAddress,
+            proxy: Proxy,
+            protocol: Protocol?,
+            ioe: IOException
+        ) {
+            connect.record(System.nanoTime() - connectStartNanos)
+        }
+
+        override fun connectionAcquired(call: Call, connection: Connection) {
+            protocol = connection.protocol()
+            if (hasConnected) {
+                newConnectionCount.incrementAndGet()
+            } else {
+                reusedConnectionCount.incrementAndGet()
+            }
+        }
+
+        override fun requestHeadersEnd(call: Call, request: Request) {
+            requestSentNanos = System.nanoTime()
+        }
+
+        override fun requestBodyEnd(call: Call, byteCount: Long) {
+            requestSentNanos = System.nanoTime()
+        }
+
+        override fun responseHeadersStart(call: Call) {
+            responseStartNanos = System.nanoTime()
+            timeToFirstByte.record(responseStartNanos - requestSentNanos)
+        }
+
+        override fun responseBodyEnd(call: Call, byteCount: Long) {
+            val nowNanos = System.nanoTime()
+            transfer.record(nowNanos - responseStartNanos)
+            log.verbose(
+                "${call.request().url.encodedPath} ($protocol, ${if (hasConnected) "new" else "reused"} connection): " +
+                        "$byteCount bytes in ${(nowNanos - callStartNanos) / 1_000_000L}ms"
+            )
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package de.taz.app.android.data
+
+import de.taz.app.android.MAX_SIMULTANEOUS_DOWNLOADS
+import de.taz.app.android.MAX_SIMULTANEOUS_QUERIES
+import io.ktor.client.HttpClient
+import io.ktor.client.engine.HttpClientEngine
+import io.ktor.client.engine.okhttp.OkHttp
+import okhttp3.ConnectionPool
+import okhttp3.Dispatcher
+import okhttp3.OkHttpClient
+import java.util.concurrent.TimeUnit
+
+// Idle connections kept open to be reused by the next requests
+private const val MAX_IDLE_CONNECTIONS = 8
+private const val KEEP_ALIVE_DURATION_MINUTES = 5L
+
+// The downloads and the queries may run at the same time, but never more than that
+private const val MAX_REQUESTS = 2 * (MAX_SIMULTANEOUS_DOWNLOADS + MAX_SIMULTANEOUS_QUERIES)
+private const val MAX_REQUESTS_PER_HOST = MAX_SIMULTANEOUS_DOWNLOADS + MAX_SIMULTANEOUS_QUERIES
+
+// The defaults of the Android engine used before: large responses on slow networks need some time
+private const val CONNECT_TIMEOUT_SECONDS = 100L
+private const val SOCKET_TIMEOUT_SECONDS = 100L
+
+/**
+ * The HTTP transport shared by all clients of the app: the API, the file downloads, the
+ * connectivity checks and the shared article downloads.
+ *
+ * All requests go through a single [OkHttpClient], so they share its connection pool and
+ * dispatcher. Requests to the same host reuse the open connections and are multiplexed over
+ * a single connection if the server supports HTTP/2. Responses are transparently decompressed
+ * if the server gzips them, and the number of concurrent requests per host is limited by the
+ * dispatcher. The duration of the phases of each request is recorded in [HttpRequestTimings].
+ *
+ * Clients needing additional plugins must derive them with [HttpClient.config] from [httpClient],
+ * so that the engine is shared and not closed together with the derived client.
+ */
+object HttpTransport {
+
+    val okHttpClient: OkHttpClient = OkHttpClient.Builder()
+        .connectionPool(ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_DURATION_MINUTES, TimeUnit.MINUTES))
+        .dispatcher(Dispatcher().apply {
+            maxRequests = MAX_REQUESTS
+            maxRequestsPerHost = MAX_REQUESTS_PER_HOST
+        })
+        .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .readTimeout(SOCKET_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .writeTimeout(SOCKET_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        .eventListenerFactory(HttpRequestTimings.EventListenerFactory)
+        .build()
+
+    val engine: HttpClientEngine = OkHttp.create {
+        preconfigured = okHttpClient
+    }
+
+    val httpClient: HttpClient = HttpClient(engine)
+}
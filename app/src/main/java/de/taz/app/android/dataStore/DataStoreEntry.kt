@@ -6,10 +6,24 @@ import androidx.datastore.preferences.core.edit
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.asLiveData
 import androidx.lifecycle.map
+import de.taz.app.android.util.Log
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.map
+import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.flow.retryWhen
+import java.util.WeakHashMap
+
+private const val SNAPSHOT_RETRY_DELAY_MS = 1_000L
 
 
 interface DataStoreEntry<T> {
@@ -65,6 +79,175 @@ class SimpleDataStoreEntry<T>(
     override suspend fun reset() = set(default)
 }
 
+/**
+ * A process-wide, hot snapshot of the [Preferences] of a [DataStore].
+ * The snapshot is collected once per [DataStore] and shared by all [SnapshotDataStoreEntry]s,
+ * so that reading a value is a map lookup instead of a new [Flow] collection.
+ *
+ * Values set by a [SnapshotDataStoreEntry] are pending from the start of the write until the
+ * [DataStore] emitted them, so that neither a read during the write nor an older emission that is
+ * delivered after the write returns the previous value. Thus keys read from the snapshot must only
+ * be written through [SnapshotDataStoreEntry]s. Writes that did not change the stored value are
+ * not emitted, so they are not pending once they are done. Neither are values that have been
+ * replaced by a different value, as their own emission may have been skipped.
+ * If the [Preferences] cannot be read, reading them is retried.
+ */
+class DataStoreSnapshot private constructor(dataStore: DataStore<Preferences>) {
+
+    private val _preferences = MutableStateFlow<Preferences?>(null)
+
+    /**
+     * The latest [Preferences] emitted by the [DataStore] or null until they have been read for
+     * the first time. Pending values are not included.
+     */
+    val preferences: StateFlow<Preferences?> = _preferences.asStateFlow()
+
+    /**
+     * A value set by a [SnapshotDataStoreEntry]. Once it is written, [previousValue] is the value
+     * it replaced in the [DataStore].
+     */
+    private class PendingValue(val value: Any) {
+        var isWritten = false
+        var previousValue: Any? = null
+    }
+
+    private val pendingValues = HashMap<Preferences.Key<*>, PendingValue>()
+
+    init {
+        dataStore.data
+            .onEach { preferences ->
+                synchronized(pendingValues) {
+                    _preferences.value = preferences
+                    pendingValues.entries.removeAll { (key, pendingValue) ->
+                        val value = preferences[key]
+                        value == pendingValue.value ||
+                            (pendingValue.isWritten && value != pendingValue.previousValue)
+                    }
+                }
+            }
+            .retryWhen { cause, _ ->
+                log.warn("Could not read the preferences snapshot", cause)
+                delay(SNAPSHOT_RETRY_DELAY_MS)
+                true
+            }
+            .launchIn(snapshotScope)
+    }
+
+    /**
+     * Get the value of [key] from the snapshot.
+     * @return null if the snapshot has not been read yet or [key] has no value
+     */
+    internal fun <T> get(key: Preferences.Key<T>): SnapshotValue<T>? = synchronized(pendingValues) {
+        @Suppress("UNCHECKED_CAST")
+        val pendingValue = pendingValues[key]?.value as T?
+        when {
+            pendingValue != null -> SnapshotValue(pendingValue)
+            _preferences.value != null -> SnapshotValue(_preferences.value?.get(key))
+            else -> null
+        }
+    }
+
+    /**
+     * Mark [value] as pending for [key] before it is written to the [DataStore].
+     */
+    internal fun <T> setPending(key: Preferences.Key<T>, value: T) {
+        synchronized(pendingValues) {
+            pendingValues[key] = PendingValue(value as Any)
+        }
+    }
+
+    /**
+     * Keep the pending [value] of [key] after it has been written to the [DataStore] until it is
+     * emitted, unless it did not change the stored [previousValue] and thus is not emitted at all.
+     */
+    internal fun <T> onWritten(key: Preferences.Key<T>, value: T, previousValue: T?) {
+        synchronized(pendingValues) {
+            val pendingValue = pendingValues[key]?.takeIf { it.value == value } ?: return
+            if (previousValue == value || _preferences.value?.get(key) == value) {
+                pendingValues.remove(key)
+            } else {
+                pendingValue.isWritten = true
+                pendingValue.previousValue = previousValue
+            }
+        }
+    }
+
+    /**
+     * Drop the pending [value] of [key] if writing it failed.
+     */
+    internal fun <T> clearPending(key: Preferences.Key<T>, value: T) {
+        synchronized(pendingValues) {
+            if (pendingValues[key]?.value == value) {
+                pendingValues.remove(key)
+            }
+        }
+    }
+
+    /**
+     * A value read from the snapshot. [value] is null if no value is stored.
+     */
+    internal class SnapshotValue<T>(val value: T?)
+
+    companion object {
+        private val log by Log
+
+        private val snapshotScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+        private val snapshots = WeakHashMap<DataStore<Preferences>, DataStoreSnapshot>()
+
+        fun of(dataStore: DataStore<Preferences>): DataStoreSnapshot = synchronized(snapshots) {
+            snapshots.getOrPut(dataStore) { DataStoreSnapshot(dataStore) }
+        }
+    }
+}
+
+/**
+ * A [DataStoreEntry] like [SimpleDataStoreEntry] which reads from the [DataStoreSnapshot] of the
+ * [dataStore]. Once the snapshot is available [get] returns without suspending.
+ * [set] makes the new value visible to [get] before it is written to the [dataStore].
+ * [T] must be [String], [Int], [Boolean], [Long], [Float] or [Set]<String>
+ * @param default - The default value which will be returned if no value is set in the dataStore yet
+ * @param initFunction - This function will be executed if no value has been stored in [dataStore]
+ *          yet. As it may suspend, [get] falls back to the [dataStore] in this case.
+ */
+class SnapshotDataStoreEntry<T>(
+    private val dataStore: DataStore<Preferences>,
+    private val key: Preferences.Key<T>,
+    private val default: T,
+    private val initFunction: (suspend () -> T?)? = null
+) : DataStoreEntry<T> {
+
+    private val snapshot = DataStoreSnapshot.of(dataStore)
+
+    private val fallback = SimpleDataStoreEntry(dataStore, key, default, initFunction)
+
+    override fun asFlow(): Flow<T> = fallback.asFlow()
+
+    @Deprecated("Use Flow directly", ReplaceWith("asFlow"))
+    override fun asLiveData(): LiveData<T> = asFlow().asLiveData()
+
+    override suspend fun get(): T {
+        val snapshotValue = snapshot.get(key) ?: return fallback.get()
+        return snapshotValue.value ?: if (initFunction == null) default else fallback.get()
+    }
+
+    override suspend fun set(value: T) {
+        snapshot.setPending(key, value)
+        var previousValue: T? = null
+        try {
+            dataStore.edit {
+                previousValue = it[key]
+                it[key] = value
+            }
+        } catch (e: Throwable) {
+            snapshot.clearPending(key, value)
+            throw e
+        }
+        snapshot.onWritten(key, value, previousValue)
+    }
+
+    override suspend fun reset() = set(default)
+}
+
 /**
  * A [DataStoreEntry] which persists a [S] in the [dataStore] by mapping [S] to [T] and vice versa.
  * [T] must be [String], [Int], [Boolean], [Long], [Float] or [Set]<String>
@@ -73,6 +256,7 @@ class SimpleDataStoreEntry<T>(
  *          yet. You might want to use it to set an initial value. If this function returns a value
  *          this value will be returned instead of [default]. If this function returns null or is
  *          not set [default] will be returned instead.
+ * @param useSnapshot - Read the value from the [DataStoreSnapshot] like [SnapshotDataStoreEntry]
  */
 class MappingDataStoreEntry<S, T>(
     dataStore: DataStore<Preferences>,
@@ -80,17 +264,27 @@ class MappingDataStoreEntry<S, T>(
     default: S,
     private val mapStoT: (S) -> T,
     private val mapTtoS: (T) -> S,
-    private val initFunction: (suspend () -> S?)? = null
+    private val initFunction: (suspend () -> S?)? = null,
+    useSnapshot: Boolean = false,
 ) : DataStoreEntry<S> {
 
     private suspend fun mapInit(): T? { return initFunction?.invoke()?.let { mapStoT(it) } }
 
-    private val dataStoreEntry: SimpleDataStoreEntry<T> = SimpleDataStoreEntry(
-        dataStore,
-        key,
-        mapStoT(default),
-        ::mapInit
-    )
+    private val dataStoreEntry: DataStoreEntry<T> = if (useSnapshot) {
+        SnapshotDataStoreEntry(
+            dataStore,
+            key,
+            mapStoT(default),
+            initFunction?.let { ::mapInit }
+        )
+    } else {
+        SimpleDataStoreEntry(
+            dataStore,
+            key,
+            mapStoT(default),
+            ::mapInit
+        )
+    }
 
 
     @Deprecated("Use Flow directly", ReplaceWith("asFlow"))
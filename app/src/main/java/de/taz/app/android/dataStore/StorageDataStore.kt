@@ -6,6 +6,7 @@ import androidx.datastore.core.DataStore
 import androidx.datastore.preferences.SharedPreferencesMigration
 import androidx.datastore.preferences.core.Preferences
 import androidx.datastore.preferences.core.intPreferencesKey
+import androidx.datastore.preferences.core.longPreferencesKey
 import androidx.datastore.preferences.core.stringPreferencesKey
 import androidx.datastore.preferences.preferencesDataStore
 import de.taz.app.android.api.interfaces.StorageLocation
@@ -23,11 +24,14 @@ private const val PREFERENCES_GENERAL = "preferences_general"
 // region setting keys
 const val KEEP_ISSUES_NUMBER = "general_keep_number_issues"
 const val STORAGE_LOCATION = "general_storage_location"
+private const val SCRUBBER_PHASE = "scrubber_phase"
+private const val SCRUBBER_SWEEP_CURSOR = "scrubber_sweep_cursor"
+private const val SCRUBBER_LAST_CYCLE_COMPLETED = "scrubber_last_cycle_completed"
 // endregion
 
 // region defaults
 private const val KEEP_ISSUES_DEFAULT = 20
-private const val KEEP_ISSUES_MINIMUM = 2
+const val KEEP_ISSUES_MINIMUM = 2
 private val STORAGE_LOCATION_DEFAULT = StorageLocation.INTERNAL
 // endregion
 
@@ -72,9 +76,23 @@ class StorageDataStore private constructor(applicationContext: Context) {
         STORAGE_LOCATION_DEFAULT,
         { it.ordinal },
         { StorageLocation.values()[it] },
-        ::determineStorageLocationBySize
+        ::determineStorageLocationBySize,
+        useSnapshot = true,
     )
 
+    // region scrubber cursor
+    /** The phase the incremental scrubber continues with, empty if no cycle is in progress */
+    val scrubberPhase = SimpleDataStoreEntry(dataStore, stringPreferencesKey(SCRUBBER_PHASE), "")
+
+    /** The last folder swept by the scrubber in the current cycle */
+    val scrubberSweepCursor =
+        SimpleDataStoreEntry(dataStore, stringPreferencesKey(SCRUBBER_SWEEP_CURSOR), "")
+
+    /** The time in ms the last scrubber cycle was completed */
+    val scrubberLastCycleCompleted =
+        SimpleDataStoreEntry(dataStore, longPreferencesKey(SCRUBBER_LAST_CYCLE_COMPLETED), 0L)
+    // endregion
+
     private suspend fun determineStorageLocationBySize(): StorageLocation {
         val externalFreeBytes =
             storageService.getExternalFilesDir()?.let { StatFs(it.path).availableBytes }
@@ -48,17 +48,18 @@ class TazApiCssDataStore private constructor(applicationContext: Context) {
     companion object : SingletonHolder<TazApiCssDataStore, Context>(::TazApiCssDataStore)
 
     // TODO int is saved as String migrate in the future
-    val fontSize: DataStoreEntry<String> = SimpleDataStoreEntry(
+    // The entries read by TazApiCssHelper.generateCssString are served from the snapshot
+    val fontSize: DataStoreEntry<String> = SnapshotDataStoreEntry(
         dataStore,
         stringPreferencesKey(FONT_SIZE),
         applicationContext.resources.getInteger(R.integer.text_default_size).toString()
     )
 
-    val textJustification: DataStoreEntry<Boolean> = SimpleDataStoreEntry(
+    val textJustification: DataStoreEntry<Boolean> = SnapshotDataStoreEntry(
         dataStore, booleanPreferencesKey(TEXT_JUSTIFICATION), false
     )
 
-    val nightMode: DataStoreEntry<Boolean> = SimpleDataStoreEntry(
+    val nightMode: DataStoreEntry<Boolean> = SnapshotDataStoreEntry(
         dataStore, booleanPreferencesKey(NIGHT_MODE), false
     )
 
@@ -4,14 +4,56 @@ import de.taz.app.android.content.cache.ContentDownload
 import de.taz.app.android.content.cache.FileCacheItem
 import de.taz.app.android.util.Log
 import kotlinx.coroutines.channels.Channel
-import java.util.concurrent.LinkedBlockingDeque
+
+// The file types a section or an article needs to be rendered: html, styles, scripts, fonts and images
+private val FIRST_RENDER_EXTENSIONS = setOf(
+    "html", "css", "js", "json", "ttf", "otf", "woff", "woff2",
+    "jpg", "jpeg", "png", "gif", "webp", "svg",
+)
+// Larger files are not needed for the first render, even if their type is
+const val FIRST_RENDER_MAX_SIZE = 1024L * 1024L // 1MiB
+
+/**
+ * Return true if the file of [item] is needed to render a section or an article: its html, the
+ * styles, scripts and fonts, and the images. Page PDFs, audio files and other large files are not.
+ */
+fun isNeededForFirstRender(item: FileCacheItem): Boolean {
+    val fileEntry = item.fileEntryOperation.fileEntry
+    val extension = fileEntry.name.substringAfterLast('.', "").lowercase()
+    return extension in FIRST_RENDER_EXTENSIONS && fileEntry.size <= FIRST_RENDER_MAX_SIZE
+}
 
 /**
- * A blocking queue of CacheItems for every DownloadPriority.
+ * A queue of CacheItems for every DownloadPriority.
+ *
+ * Within each priority the items are scheduled in two lanes:
+ * 1. Files needed for the first render (see [isNeededForFirstRender]), latest enqueued first
+ * 2. Page PDFs, audio files and other large files, latest enqueued first
+ *
+ * Within one operation the smaller files are always handed out first, so that the files needed
+ * to render a section or article are not stuck behind multi-megabyte page PDFs.
  */
 object CacheItemQueue {
+
+    private class Lanes {
+        val firstRenderLane = ArrayDeque<FileCacheItem>()
+        val bulkLane = ArrayDeque<FileCacheItem>()
+
+        fun offer(item: FileCacheItem) {
+            if (isNeededForFirstRender(item)) {
+                firstRenderLane.addLast(item)
+            } else {
+                bulkLane.addLast(item)
+            }
+        }
+
+        fun poll(): FileCacheItem? {
+            return firstRenderLane.removeLastOrNull() ?: bulkLane.removeLastOrNull()
+        }
+    }
+
     private val queueMap = DownloadPriority.entries.associateWith {
-        LinkedBlockingDeque<FileCacheItem>()
+        Lanes()
     }
 
     private val inQueueKeysMap = HashMap<String, DownloadPriority>()
@@ -33,8 +75,10 @@ object CacheItemQueue {
      */
     fun sendOrNotify(operation: ContentDownload, reEnqueueing: Boolean) {
         var addedCount = 0
+        // The lanes are LIFO, so offer the largest files first to hand out the smallest first
+        val items = operation.cacheItems.sortedByDescending { it.fileEntryOperation.fileEntry.size }
         synchronized(lock) {
-            for (item in operation.cacheItems) {
+            for (item in items) {
                 log.debug("Offering ${item.fileEntryOperation.fileEntry.name} with priority ${item.priority()}")
                 val ops = additionalOperations.getOrPut(item.key) { mutableListOf() }
                 if (!ops.contains(operation)) {
@@ -66,9 +110,9 @@ object CacheItemQueue {
 
     private fun pollNextTask(): Pair<FileCacheItem, List<ContentDownload>>? {
         for (priority in reversedPriorities) {
-            val deque = queueMap[priority] ?: break
-            while (deque.isNotEmpty()) {
-                val item = deque.pollLast() ?: break
+            val lanes = queueMap[priority] ?: break
+            while (true) {
+                val item = lanes.poll() ?: break
 
                 // If we can remove the key, it means this is the first (and highest priority)
                 // entry we've encountered for this file.
@@ -81,6 +125,26 @@ object CacheItemQueue {
         return null
     }
 
+    /**
+     * Give an [item] received with [receive] back to the queue, for example because its agent
+     * may not download anymore. It is handed out next within its lane, to the [operations] it
+     * was received with.
+     */
+    fun giveBack(item: FileCacheItem, operations: List<ContentDownload>) {
+        val priority = operations.maxOfOrNull { it.priority } ?: DownloadPriority.Normal
+        synchronized(lock) {
+            val ops = additionalOperations.getOrPut(item.key) { mutableListOf() }
+            operations.filterNot { it in ops }.forEach { ops.add(it) }
+
+            val existing = inQueueKeysMap[item.key]
+            if (existing == null || existing < priority) {
+                inQueueKeysMap[item.key] = priority
+            }
+            queueMap[priority]?.offer(item)
+        }
+        signalChannel.trySend(Unit)
+    }
+
     /**
      * Receive a new queue item if available, function suspends until a new item becomes available.
      * Always returns the highest priority task currently in the queue at the moment of waking.
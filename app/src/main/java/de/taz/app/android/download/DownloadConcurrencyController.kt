@@ -0,0 +1,158 @@
+package de.taz.app.android.download
+
+import de.taz.app.android.util.Log
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.first
+
+// Minimum time a measurement window has to span before the limit is adapted
+private const val MIN_WINDOW_DURATION_MS = 1_000L
+
+// Windows spanning a longer time most likely contain idle periods and are not comparable
+private const val MAX_WINDOW_DURATION_MS = 60_000L
+
+// Throughput changes smaller than this factor are treated as noise
+private const val THROUGHPUT_TOLERANCE = 0.05
+
+// An increase of the average file latency by this factor is treated as congestion
+private const val LATENCY_CONGESTION_FACTOR = 1.5
+
+/**
+ * The [DownloadConcurrencyController] decides how many download agents of the [FileDownloader]
+ * may pull items from the [CacheItemQueue] at the same time.
+ *
+ * It follows an AIMD (additive increase, multiplicative decrease) scheme: for every measurement
+ * window the measured throughput and the average file latency are compared to the previous
+ * window. As long as the throughput does not drop and the latency does not rise sharply, the limit
+ * is increased by one. Connection failures halve the limit, while congestion (rising latency
+ * without a throughput gain) reduces it by a quarter.
+ *
+ * @param minLimit The lowest number of simultaneous downloads
+ * @param maxLimit The highest number of simultaneous downloads
+ * @param initialLimit The number of simultaneous downloads to start with
+ * @param clock Returns the current time in milliseconds
+ */
+class DownloadConcurrencyController(
+    val minLimit: Int,
+    val maxLimit: Int,
+    initialLimit: Int,
+    private val clock: () -> Long = { System.nanoTime() / 1_000_000L }
+) {
+    private val log by Log
+
+    private val _limit = MutableStateFlow(initialLimit.coerceIn(minLimit, maxLimit))
+
+    /**
+     * The number of download agents currently allowed to download
+     */
+    val limit: StateFlow<Int> = _limit.asStateFlow()
+
+    private val _throughput = MutableStateFlow(0L)
+
+    /**
+     * The throughput measured in the last completed window in bytes per second
+     */
+    val throughput: StateFlow<Long> = _throughput.asStateFlow()
+
+    private val lock = Any()
+    private var windowStartMs = clock()
+    private var windowBytes = 0L
+    private var windowLatencySumMs = 0L
+    private var windowSamples = 0
+    private var windowFailures = 0
+    private var lastThroughput = 0L
+    private var lastAverageLatencyMs = 0L
+
+    /**
+     * Suspend until the agent with [agentId] is allowed to download.
+     * Agent ids start at 0, so the agent is enabled if its id is below the current [limit].
+     */
+    suspend fun awaitAgentEnabled(agentId: Int) {
+        limit.first { agentId < it }
+    }
+
+    /**
+     * Return true if the agent with [agentId] is allowed to download by the current [limit].
+     */
+    fun isAgentEnabled(agentId: Int): Boolean = agentId < limit.value
+
+    /**
+     * Report a finished file download.
+     * @param bytes The number of bytes transferred
+     * @param durationMs The time from the start of the request until the file was written
+     */
+    fun onDownloadFinished(bytes: Long, durationMs: Long) {
+        synchronized(lock) {
+            windowBytes += bytes
+            windowLatencySumMs += durationMs
+            windowSamples++
+            adaptIfWindowComplete()
+        }
+    }
+
+    /**
+     * Report a failed connection attempt.
+     */
+    fun onConnectionFailure() {
+        synchronized(lock) {
+            windowFailures++
+            adaptIfWindowComplete()
+        }
+    }
+
+    private fun adaptIfWindowComplete() {
+        val now = clock()
+        val windowDurationMs = now - windowStartMs
+        // Wait for each allowed agent to report at least once, to get a meaningful measurement
+        if (windowDurationMs < MIN_WINDOW_DURATION_MS || windowSamples + windowFailures < _limit.value) {
+            return
+        }
+
+        if (windowDurationMs > MAX_WINDOW_DURATION_MS && windowFailures == 0) {
+            // Start a new baseline instead of adapting to a measurement distorted by idle times
+            lastThroughput = 0L
+            lastAverageLatencyMs = 0L
+            resetWindow(now)
+            return
+        }
+
+        val throughput = windowBytes * 1_000L / windowDurationMs
+        val averageLatencyMs = if (windowSamples > 0) windowLatencySumMs / windowSamples else 0L
+        val currentLimit = _limit.value
+
+        val newLimit = when {
+            windowFailures > 0 ->
+                currentLimit / 2
+
+            lastThroughput > 0L && throughput < lastThroughput * (1.0 - THROUGHPUT_TOLERANCE) ->
+                currentLimit - (currentLimit / 4).coerceAtLeast(1)
+
+            lastAverageLatencyMs > 0L
+                    && averageLatencyMs > lastAverageLatencyMs * LATENCY_CONGESTION_FACTOR
+                    && throughput < lastThroughput * (1.0 + THROUGHPUT_TOLERANCE) ->
+                currentLimit - (currentLimit / 4).coerceAtLeast(1)
+
+            else ->
+                currentLimit + 1
+        }.coerceIn(minLimit, maxLimit)
+
+        if (newLimit != currentLimit) {
+            log.debug("Adapting download concurrency from $currentLimit to $newLimit (throughput: $throughput B/s, latency: $averageLatencyMs ms, failures: $windowFailures)")
+        }
+
+        _limit.value = newLimit
+        _throughput.value = throughput
+        lastThroughput = throughput
+        lastAverageLatencyMs = averageLatencyMs
+        resetWindow(now)
+    }
+
+    private fun resetWindow(now: Long) {
+        windowStartMs = now
+        windowBytes = 0L
+        windowLatencySumMs = 0L
+        windowSamples = 0
+        windowFailures = 0
+    }
+}
@@ -3,15 +3,16 @@ package de.taz.app.android.download
 import de.taz.app.android.api.ConnectivityException
 import de.taz.app.android.api.transformToConnectivityException
 import de.taz.app.android.data.ConnectionHelper
-import de.taz.app.android.data.HTTP_CLIENT_ENGINE
-import io.ktor.client.HttpClient
+import de.taz.app.android.data.ConnectivityMonitor
+import de.taz.app.android.data.HttpTransport
 import io.ktor.client.request.get
 import io.ktor.http.Url
 
 class DownloadConnectionHelper(
     private val downloadEndpoint: String,
-) : ConnectionHelper() {
-    private val httpClient = HttpClient(HTTP_CLIENT_ENGINE)
+    connectivityMonitor: ConnectivityMonitor,
+) : ConnectionHelper(connectivityMonitor) {
+    private val httpClient = HttpTransport.httpClient
 
     override suspend fun checkConnectivity(): Boolean {
         return try {
@@ -2,23 +2,30 @@ package de.taz.app.android.download
 
 import android.content.Context
 import de.taz.app.android.COPY_BUFFER_SIZE
+import de.taz.app.android.INITIAL_SIMULTANEOUS_DOWNLOADS
 import de.taz.app.android.MAX_SIMULTANEOUS_DOWNLOADS
+import de.taz.app.android.MIN_SIMULTANEOUS_DOWNLOADS
 import de.taz.app.android.api.ConnectivityException
 import de.taz.app.android.api.models.AppInfo
 import de.taz.app.android.api.models.AppInfoKey
 import de.taz.app.android.api.transformToConnectivityException
 import de.taz.app.android.content.ContentService
+import de.taz.app.android.content.PageThumbnailStore
 import de.taz.app.android.content.cache.ContentDownload
 import de.taz.app.android.content.cache.FileCacheItem
-import de.taz.app.android.content.cache.FileEntryOperation
-import de.taz.app.android.data.HTTP_CLIENT_ENGINE
+import de.taz.app.android.data.ConnectivityMonitor
+import de.taz.app.android.data.HttpTransport
+import de.taz.app.android.monkey.toHex
 import de.taz.app.android.sentry.SentryWrapper
 import de.taz.app.android.sentry.SentryWrapperLevel
 import de.taz.app.android.util.Log
 import de.taz.app.android.util.SingletonHolder
 import io.ktor.client.HttpClient
+import io.ktor.client.request.header
 import io.ktor.client.request.prepareGet
 import io.ktor.client.statement.bodyAsChannel
+import io.ktor.http.HttpHeaders
+import io.ktor.http.HttpStatusCode
 import io.ktor.utils.io.ByteReadChannel
 import io.ktor.utils.io.readAvailable
 import kotlinx.coroutines.CancellationException
@@ -34,13 +41,14 @@ import kotlinx.coroutines.sync.Mutex
 import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.yield
 import java.io.BufferedOutputStream
-import java.io.File
+import java.io.FileOutputStream
 import java.security.MessageDigest
 import java.util.Date
 import java.util.concurrent.Executors
 
 /**
- * [FileDownloader] is used by [ContentDownload] to download individual files
+ * [FileDownloader] is used by [ContentDownload] to download individual files.
+ * Files are downloaded to a [PartialDownload] first, so interrupted downloads can be resumed.
  */
 class FileDownloader(
     private val applicationContext: Context
@@ -49,6 +57,17 @@ class FileDownloader(
 
     private val downloaderThreadPool = Executors.newFixedThreadPool(MAX_SIMULTANEOUS_DOWNLOADS)
     private val log by Log
+    private val pageThumbnailStore = PageThumbnailStore.getInstance(applicationContext)
+
+    /**
+     * Controls how many of the [MAX_SIMULTANEOUS_DOWNLOADS] agents are downloading at the same time.
+     * Its limit and the measured throughput can be observed.
+     */
+    val concurrencyController = DownloadConcurrencyController(
+        MIN_SIMULTANEOUS_DOWNLOADS,
+        MAX_SIMULTANEOUS_DOWNLOADS,
+        INITIAL_SIMULTANEOUS_DOWNLOADS
+    )
 
     // reverse order from highest (priority) to lowest instead natural order (low to high)
     private val queue = CacheItemQueue
@@ -67,7 +86,7 @@ class FileDownloader(
         queue.sendOrNotify(operation, reEnqueueing)
     }
 
-    private val httpClient: HttpClient = HttpClient(HTTP_CLIENT_ENGINE)
+    private val httpClient: HttpClient = HttpTransport.httpClient
 
     private suspend fun ensureHelperInitialized() {
         val contentService = ContentService.getInstance(applicationContext)
@@ -78,7 +97,10 @@ class FileDownloader(
                         AppInfoKey(),
                         maxRetries = 5 // Don't block agents infinitely if health check fails
                     ) as AppInfo).globalBaseUrl
-                    downloadConnectionHelper = DownloadConnectionHelper(healthCheckUrl)
+                    downloadConnectionHelper = DownloadConnectionHelper(
+                        healthCheckUrl,
+                        ConnectivityMonitor.getInstance(applicationContext)
+                    )
                 }
             }
         }
@@ -96,7 +118,13 @@ class FileDownloader(
 
     private suspend fun pollForDownload(downloadAgentId: Int) {
         while (currentCoroutineContext().isActive) {
+            concurrencyController.awaitAgentEnabled(downloadAgentId)
             val (nextDownload, operations) = queue.receive()
+            // The limit might have been lowered while this agent was waiting for the next item
+            if (!concurrencyController.isAgentEnabled(downloadAgentId)) {
+                queue.giveBack(nextDownload, operations)
+                continue
+            }
             log.debug("Agent $downloadAgentId Picked ${nextDownload.fileEntryOperation.fileEntry.name} with priority ${nextDownload.priority()}")
             downloadCacheItem(nextDownload, operations)
             yield()
@@ -104,59 +132,25 @@ class FileDownloader(
     }
 
     private suspend fun downloadCacheItem(download: FileCacheItem, operations: List<ContentDownload>) {
-        val fileName = download.fileEntryOperation.fileEntry.name
+        val partialDownload = download.fileEntryOperation.destination?.let { PartialDownload(it) }
         try {
             ensureHelperInitialized()
+            checkNotNull(partialDownload) { "${download.fileEntryOperation.fileEntry.name} has no destination" }
             downloadConnectionHelper.retryOnConnectivityFailure({
+                concurrencyController.onConnectionFailure()
                 operations.forEach { it.notifyBadConnection() }
             }, maxRetries = 10) { // Limit retries for individual files to avoid blocking agents forever
                 transformToConnectivityException {
-                    httpClient.prepareGet(download.fileEntryOperation.origin!!).execute { response ->
-                        when (response.status.value) {
-                            in 200..299 -> {
-                                val channel = response.bodyAsChannel()
-                                val hash = saveFile(download.fileEntryOperation, channel)
-                                if (hash != download.fileEntryOperation.fileEntry.sha256) {
-                                    val hint = "Hash mismatch on $fileName.\n" +
-                                            "Local hash $hash vs remote hash ${download.fileEntryOperation.fileEntry.sha256}"
-                                    log.warn(hint)
-                                    SentryWrapper.captureMessage(hint, SentryWrapperLevel.WARNING)
-                                }
-                                download.fileEntryOperation.fileEntry.setDownloadDate(Date(), applicationContext)
-                                operations.forEach { it.notifySuccessfulItem() }
-                                log.verbose("Download of $fileName successful")
-                            }
-                            in 400..499 -> {
-                                val hint =
-                                    "Response code ${response.status.value} while trying to download $fileName"
-                                log.warn("Download of $fileName not successful ${response.status.value}")
-                                val exception = ConnectivityException.ImplementationException(
-                                    hint,
-                                    null,
-                                    response
-                                )
-                                operations.forEach { it.notifyFailedItem(exception) }
-                                SentryWrapper.captureException(exception)
-                            }
-                            in 500..599 -> {
-                                val hint =
-                                    "Response code ${response.status.value} while trying to download $fileName"
-                                log.warn(hint)
-                                val exception = ConnectivityException.ServerUnavailableException(hint)
-                                operations.forEach { it.notifyFailedItem(exception) }
-                                SentryWrapper.captureException(exception)
-                            }
-                            else -> {
-                                val hint = "Unexpected code ${response.status.value} for  $fileName"
-                                log.warn(hint)
-                                operations.forEach { it.notifyFailedItem(ConnectivityException.ImplementationException(hint)) }
-                            }
-                        }
-                    }
+                    val startMs = System.nanoTime() / 1_000_000L
+                    // Continue where a previous attempt stopped if there is a part file left
+                    val bytes = fetchFile(download, operations, partialDownload, resume = true)
+                    concurrencyController.onDownloadFinished(bytes, System.nanoTime() / 1_000_000L - startMs)
                 }
             }
 
         } catch (e: Exception) {
+            // The download is dropped, its part file is rehashed if it is downloaded again
+            partialDownload?.dropDigest()
             operations.forEach { it.notifyFailedItem(e) }
             if (e is CancellationException) throw e
             SentryWrapper.captureException(e)
@@ -165,25 +159,146 @@ class FileDownloader(
         }
     }
 
-    private suspend fun saveFile(download: FileEntryOperation, channel: ByteReadChannel): String {
-        val file = File(download.destination!!)
-        file.parentFile?.mkdirs()
+    /**
+     * Fetch the file of [download] into the part file of [partialDownload] and move it to its
+     * destination once it is complete.
+     * If [resume] is true and some bytes have been downloaded before, only the remaining bytes
+     * are requested with a HTTP Range request.
+     * @return the number of bytes transferred
+     */
+    private suspend fun fetchFile(
+        download: FileCacheItem,
+        operations: List<ContentDownload>,
+        partialDownload: PartialDownload,
+        resume: Boolean
+    ): Long {
+        val fileName = download.fileEntryOperation.fileEntry.name
+        if (!resume) {
+            partialDownload.reset()
+        }
+        val offset = partialDownload.offset
+        var restartFromScratch = false
+        var transferredBytes = 0L
+
+        httpClient.prepareGet(download.fileEntryOperation.origin!!) {
+            if (offset > 0L) {
+                header(HttpHeaders.Range, "bytes=$offset-")
+            }
+        }.execute { response ->
+            when (response.status.value) {
+                HttpStatusCode.RequestedRangeNotSatisfiable.value -> {
+                    log.debug("Could not resume $fileName at byte $offset")
+                    restartFromScratch = true
+                }
+                in 200..299 -> {
+                    // The server might ignore the Range header and answer with the whole file
+                    val append = offset > 0L && response.status == HttpStatusCode.PartialContent
+                    if (!append) {
+                        partialDownload.reset()
+                    } else {
+                        log.debug("Resuming download of $fileName at byte $offset")
+                    }
+                    val channel = response.bodyAsChannel()
+                    val hash = saveFile(partialDownload, channel, append)
+                    transferredBytes = partialDownload.offset - if (append) offset else 0L
+                    if (hash != download.fileEntryOperation.fileEntry.sha256 && append) {
+                        log.warn("Hash mismatch on resumed download of $fileName. Restarting from scratch")
+                        restartFromScratch = true
+                        return@execute
+                    }
+                    if (hash != download.fileEntryOperation.fileEntry.sha256) {
+                        val hint = "Hash mismatch on $fileName.\n" +
+                                "Local hash $hash vs remote hash ${download.fileEntryOperation.fileEntry.sha256}"
+                        log.warn(hint)
+                        SentryWrapper.captureMessage(hint, SentryWrapperLevel.WARNING)
+                    }
+                    if (!partialDownload.complete()) {
+                        throw IllegalStateException("Could not move ${partialDownload.partFile.path} to its destination")
+                    }
+                    download.fileEntryOperation.fileEntry.setDownloadDate(Date(), applicationContext)
+                    if (operations.any { it.isPagePdf(fileName) }) {
+                        pageThumbnailStore.createInBackground(
+                            download.fileEntryOperation.fileEntry,
+                            partialDownload.file.absolutePath
+                        )
+                    }
+                    operations.forEach { it.notifySuccessfulItem() }
+                    log.verbose("Download of $fileName successful")
+                }
+                in 400..499 -> {
+                    val hint =
+                        "Response code ${response.status.value} while trying to download $fileName"
+                    log.warn("Download of $fileName not successful ${response.status.value}")
+                    val exception = ConnectivityException.ImplementationException(
+                        hint,
+                        null,
+                        response
+                    )
+                    operations.forEach { it.notifyFailedItem(exception) }
+                    SentryWrapper.captureException(exception)
+                }
+                in 500..599 -> {
+                    val hint =
+                        "Response code ${response.status.value} while trying to download $fileName"
+                    log.warn(hint)
+                    val exception = ConnectivityException.ServerUnavailableException(hint)
+                    operations.forEach { it.notifyFailedItem(exception) }
+                    SentryWrapper.captureException(exception)
+                }
+                else -> {
+                    val hint = "Unexpected code ${response.status.value} for  $fileName"
+                    log.warn(hint)
+                    operations.forEach { it.notifyFailedItem(ConnectivityException.ImplementationException(hint)) }
+                }
+            }
+        }
+
+        if (restartFromScratch) {
+            transferredBytes += fetchFile(download, operations, partialDownload, resume = false)
+        }
+        return transferredBytes
+    }
+
+    /**
+     * Write the content of [channel] to the part file of [partialDownload].
+     * If the download is interrupted the rolling hash is kept, so that it can be resumed later.
+     *
+     * @param append true if the [channel] continues the bytes already in the part file
+     * @return the hex encoded SHA-256 of the complete part file
+     */
+    private suspend fun saveFile(
+        partialDownload: PartialDownload,
+        channel: ByteReadChannel,
+        append: Boolean
+    ): String {
+        val partFile = partialDownload.partFile
+        partFile.parentFile?.mkdirs()
 
-        val hash = MessageDigest.getInstance("SHA-256")
+        val hash = if (append) {
+            partialDownload.restoreDigest()
+        } else {
+            MessageDigest.getInstance("SHA-256")
+        }
+        var hashedBytes = if (append) partialDownload.offset else 0L
 
-        BufferedOutputStream(file.outputStream()).use { fileStream ->
-            val buffer = ByteArray(COPY_BUFFER_SIZE)
-            while (true) {
-                val read = channel.readAvailable(buffer)
-                if (read <= 0) break
-                hash.update(buffer, 0, read)
-                fileStream.write(buffer, 0, read)
-                yield()
+        try {
+            BufferedOutputStream(FileOutputStream(partFile, append)).use { fileStream ->
+                val buffer = ByteArray(COPY_BUFFER_SIZE)
+                while (true) {
+                    val read = channel.readAvailable(buffer)
+                    if (read <= 0) break
+                    fileStream.write(buffer, 0, read)
+                    hash.update(buffer, 0, read)
+                    hashedBytes += read
+                    yield()
+                }
+                fileStream.flush()
             }
-            fileStream.flush()
+        } catch (e: Exception) {
+            partialDownload.saveDigest(hash, hashedBytes)
+            throw e
         }
 
-        val digest = hash.digest()
-        return digest.joinToString("") { "%02x".format(it) }
+        return hash.digest().toHex()
     }
-}
\ No newline at end of file
+}
@@ -99,9 +99,17 @@ class IssueDownloadWorker(
             return
         }
 
+        // An issue that is already stored is only downloaded again if it has been updated since.
+        // The worker might be triggered because of such an update, so the version is requested.
+        val issuePublication = IssuePublication(downloadDate)
+        val storedIssueKey = contentService.getIssueKey(issuePublication)
+        val isUpToDate = storedIssueKey == null
+                || contentService.issueIsUpToDate(storedIssueKey, allowCache = false)
+
         contentService.downloadIssuePublicationToCache(
-            IssuePublication(downloadDate),
-            isAutomaticDownload = true
+            issuePublication,
+            isAutomaticDownload = true,
+            allowCache = isUpToDate
         )
         log.info("Downloaded new issue automatically: $downloadDate")
     }
@@ -0,0 +1,107 @@
+package de.taz.app.android.download
+
+import de.taz.app.android.COPY_BUFFER_SIZE
+import java.io.File
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+
+const val PART_FILE_SUFFIX = ".part"
+
+/**
+ * A [PartialDownload] represents a file that is being downloaded to a temporary `.part` file
+ * next to its final destination. Bytes already written survive a dropped connection, so a retry
+ * can continue with a HTTP Range request at [offset] instead of fetching the file from byte 0.
+ *
+ * The rolling SHA-256 state of an interrupted download is kept in memory until the download is
+ * resumed, dropped with [dropDigest] or its part file is deleted. If it is not available anymore
+ * (e.g. the app was restarted in between) it is rebuilt by hashing the bytes already present in
+ * the `.part` file.
+ *
+ * @param destination The absolute path where the completed file should be stored
+ */
+class PartialDownload(destination: String) {
+
+    private data class DigestState(val hashedBytes: Long, val digest: MessageDigest)
+
+    companion object {
+        // Digest states of interrupted downloads, keyed by the absolute path of their part file
+        private val digestStates = ConcurrentHashMap<String, DigestState>()
+
+        /**
+         * Drop the digest state kept for [partFile], for example because it has been deleted.
+         */
+        fun dropDigest(partFile: File) {
+            digestStates.remove(partFile.absolutePath)
+        }
+    }
+
+    val file = File(destination)
+    val partFile = File(destination + PART_FILE_SUFFIX)
+
+    /**
+     * The number of bytes already downloaded, 0 if there is no part file yet.
+     */
+    val offset: Long
+        get() = partFile.length()
+
+    /**
+     * Return a [MessageDigest] that has already consumed all bytes of the current part file.
+     */
+    fun restoreDigest(): MessageDigest {
+        val offset = offset
+        val state = digestStates.remove(partFile.absolutePath)
+        if (state != null && state.hashedBytes == offset) {
+            return state.digest
+        }
+
+        val digest = MessageDigest.getInstance("SHA-256")
+        if (offset > 0L) {
+            partFile.inputStream().use { input ->
+                val buffer = ByteArray(COPY_BUFFER_SIZE)
+                while (true) {
+                    val read = input.read(buffer)
+                    if (read <= 0) break
+                    digest.update(buffer, 0, read)
+                }
+            }
+        }
+        return digest
+    }
+
+    /**
+     * Keep the rolling [digest] of an interrupted download so that a later resume does not have to
+     * re-read the part file.
+     * @param hashedBytes The number of bytes the [digest] has consumed
+     */
+    fun saveDigest(digest: MessageDigest, hashedBytes: Long) {
+        digestStates[partFile.absolutePath] = DigestState(hashedBytes, digest)
+    }
+
+    /**
+     * Drop the digest state of an interrupted download that will not be resumed by this process.
+     * The part file is kept, so that a later download can still continue where this one stopped.
+     */
+    fun dropDigest() {
+        dropDigest(partFile)
+    }
+
+    /**
+     * Drop everything downloaded so far.
+     */
+    fun reset() {
+        dropDigest()
+        partFile.delete()
+    }
+
+    /**
+     * Move the completely downloaded part file to its final destination.
+     * @return true if the file was moved successfully
+     */
+    fun complete(): Boolean {
+        dropDigest()
+        if (file.exists()) {
+            file.delete()
+        }
+        return partFile.renameTo(file)
+    }
+}
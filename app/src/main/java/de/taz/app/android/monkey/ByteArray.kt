@@ -0,0 +1,16 @@
+package de.taz.app.android.monkey
+
+private val HEX_CHARS = "0123456789abcdef".toCharArray()
+
+/**
+ * Return the lowercase hex representation of this [ByteArray], e.g. of a SHA-256 digest
+ */
+fun ByteArray.toHex(): String {
+    val chars = CharArray(size * 2)
+    forEachIndexed { index, byte ->
+        val value = byte.toInt() and 0xff
+        chars[index * 2] = HEX_CHARS[value ushr 4]
+        chars[index * 2 + 1] = HEX_CHARS[value and 0x0f]
+    }
+    return String(chars)
+}
@@ -92,6 +92,8 @@ import de.taz.app.android.persistence.migrations.Migration39to40
 import de.taz.app.android.persistence.migrations.Migration3to4
 import de.taz.app.android.persistence.migrations.Migration40to41
 import de.taz.app.android.persistence.migrations.Migration41to42
+import de.taz.app.android.persistence.migrations.Migration42to43
+import de.taz.app.android.persistence.migrations.Migration43to44
 import de.taz.app.android.persistence.migrations.Migration4to5
 import de.taz.app.android.persistence.migrations.Migration5to6
 import de.taz.app.android.persistence.migrations.Migration6to7
@@ -118,9 +120,13 @@ import de.taz.app.android.persistence.typeconverters.StorageTypeConverter
 import de.taz.app.android.persistence.typeconverters.StringListTypeConverter
 import de.taz.app.android.util.SingletonHolder
 
-const val DATABASE_VERSION = 42
+const val DATABASE_VERSION = 44
 const val DATABASE_NAME = "db"
 
+// The maximum number of bound parameters of a single query on older SQLite versions.
+// Queries with IN (:list) must be chunked to stay below this limit.
+const val SQLITE_MAX_VARIABLE_NUMBER = 999
+
 fun allMigrations() = arrayOf(
     Migration1to2(),
     Migration2to3(),
@@ -163,6 +169,8 @@ fun allMigrations() = arrayOf(
     Migration39to40(),
     Migration40to41(),
     Migration41to42(),
+    Migration42to43(),
+    Migration43to44(),
 )
 
 @Database(
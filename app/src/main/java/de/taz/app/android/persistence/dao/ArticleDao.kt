@@ -136,6 +136,8 @@ interface ArticleDao : BaseDao<ArticleStub> {
 
 
     // region Bookmarks
+    // IS NOT NULL can not be used as a range on the bookmarkedTime index, but all stored
+    // bookmarkedTime values are non-empty strings, so the redundant > '' makes it usable
     @Transaction
     @Query(
         """SELECT Article.* FROM Article
@@ -144,6 +146,7 @@ interface ArticleDao : BaseDao<ArticleStub> {
         WHERE  SectionArticleJoin.sectionFileName == IssueSectionJoin.sectionFileName
             AND Article.articleFileName == SectionArticleJoin.articleFileName
             AND Article.bookmarkedTime IS NOT NULL
+            AND Article.bookmarkedTime > ''
          ORDER BY Article.issueDate DESC, IssueSectionJoin.`index` ASC"""
     )
     suspend fun getBookmarkedArticles(): List<Article>
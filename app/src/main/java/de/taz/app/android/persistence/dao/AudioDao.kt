@@ -9,6 +9,9 @@ interface AudioDao : BaseDao<AudioStub> {
     @Query("SELECT * FROM Audio WHERE Audio.fileName = :audioFileName LIMIT 1")
     suspend fun get(audioFileName: String): AudioStub?
 
+    @Query("SELECT * FROM Audio WHERE Audio.fileName IN (:audioFileNames)")
+    suspend fun getByNames(audioFileNames: List<String>): List<AudioStub>
+
     @Query("DELETE FROM Audio WHERE Audio.fileName = :audioFileName")
     suspend fun delete(audioFileName: String)
 
@@ -13,4 +13,7 @@ interface FeedDao: BaseDao<Feed> {
 
     @Query("SELECT * FROM Feed;")
     fun getAllFlow(): Flow<List<Feed>>
+
+    @Query("SELECT name FROM Feed")
+    suspend fun getAllNames(): List<String>
 }
@@ -4,6 +4,8 @@ import androidx.room.Dao
 import androidx.room.Query
 import de.taz.app.android.api.interfaces.StorageLocation
 import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.FileEntrySize
+import de.taz.app.android.api.models.StorageType
 import java.util.Date
 
 @Dao
@@ -12,6 +14,9 @@ interface FileEntryDao : BaseDao<FileEntry> {
     @Query("SELECT * FROM FileEntry WHERE name == :name")
     suspend fun getByName(name: String): FileEntry?
 
+    @Query("SELECT * FROM FileEntry WHERE name IN (:names)")
+    suspend fun getByNames(names: List<String>): List<FileEntry>
+
     @Query("SELECT dateDownload FROM FileEntry WHERE name == :name")
     suspend fun getDownloadDate(name: String): Date?
 
@@ -24,6 +29,15 @@ interface FileEntryDao : BaseDao<FileEntry> {
     @Query("SELECT * FROM FileEntry WHERE storageLocation != :storageLocation AND dateDownload IS NOT NULL")
     suspend fun getDownloadedExceptStorageLocation(storageLocation: StorageLocation): List<FileEntry>
 
+    @Query("SELECT path, size FROM FileEntry WHERE storageType = :storageType AND dateDownload IS NOT NULL")
+    suspend fun getDownloadedSizesByStorageType(storageType: StorageType): List<FileEntrySize>
+
+    @Query("SELECT path FROM FileEntry WHERE storageLocation = :storageLocation AND path IN (:paths)")
+    suspend fun getExistingPaths(storageLocation: StorageLocation, paths: List<String>): List<String>
+
+    @Query("SELECT sha256 FROM FileEntry WHERE storageLocation = :storageLocation AND sha256 IN (:sha256s)")
+    suspend fun getExistingSha256s(storageLocation: StorageLocation, sha256s: List<String>): List<String>
+
     @Query("DELETE FROM FileEntry WHERE name = :name")
     suspend fun delete(name: String)
 
@@ -3,6 +3,7 @@ package de.taz.app.android.persistence.dao
 import androidx.room.Dao
 import androidx.room.Query
 import de.taz.app.android.api.models.IssueStatus
+import de.taz.app.android.api.models.IssueStorageInfo
 import de.taz.app.android.api.models.IssueStub
 import kotlinx.coroutines.flow.Flow
 import java.util.Date
@@ -22,14 +23,15 @@ interface IssueDao : BaseDao<IssueStub> {
         status: IssueStatus
     ): IssueStub?
 
-    @Query("SELECT * FROM Issue WHERE feedName == :feedName AND strftime('%s', date) <= strftime('%s', :date) AND status == :status ORDER BY date DESC LIMIT 1 ")
+    // The dates are stored as yyyy-MM-dd, so comparing them as text keeps the index usable
+    @Query("SELECT * FROM Issue WHERE feedName == :feedName AND status == :status AND date <= :date ORDER BY date DESC LIMIT 1 ")
     suspend fun getLatestByFeedDateAndStatus(
         feedName: String,
         date: String,
         status: IssueStatus
     ): IssueStub?
 
-    @Query("SELECT lastDisplayableName FROM Issue WHERE strftime('%s', date) = strftime('%s', :fromDate) AND feedName = :feedName AND status == :status")
+    @Query("SELECT lastDisplayableName FROM Issue WHERE feedName = :feedName AND date = :fromDate AND status == :status")
     suspend fun getLastDisplayable(feedName: String, fromDate: String, status: IssueStatus): String?
 
     @Query("SELECT * FROM Issue WHERE feedName == :feedName AND date == :date AND status == :status ")
@@ -50,19 +52,22 @@ interface IssueDao : BaseDao<IssueStub> {
 
 
     /**
-     * We exclude the last viewed issue from deletion, otherwise we might end up deleting an issue
-     * that is currently being read.
-     * Additionally, we exclude those issues with dateDownload null, as those are probably the
-     * metadata of the issues deleted holding bookmarks.
-     * Apart from the mentioned issue we will delete the one downloaded the furthest in the past.
+     * Get the eviction relevant information of all downloaded issues.
+     * Issues with dateDownload null are excluded, as those are probably the metadata of deleted
+     * issues holding bookmarks.
      */
     @Query("""
-        SELECT * FROM Issue
-        WHERE NOT lastViewedDate IS (SELECT MAX(lastViewedDate) FROM Issue)
-        AND dateDownload IS NOT NULL
-        ORDER BY dateDownload ASC LIMIT 1
+        SELECT feedName, date, status, dateDownload, lastViewedDate,
+               EXISTS (
+                   SELECT 1 FROM Article
+                    WHERE Article.issueFeedName = Issue.feedName
+                      AND Article.issueDate = Issue.date
+                      AND Article.bookmarkedTime IS NOT NULL
+               ) AS isPinned
+          FROM Issue
+         WHERE dateDownload IS NOT NULL
         """)
-    suspend fun getIssueToDelete(): IssueStub?
+    suspend fun getDownloadedIssueStorageInfos(): List<IssueStorageInfo>
 
     @Query("SELECT COUNT(date) FROM Issue WHERE dateDownload IS NOT NULL")
     fun getDownloadedIssuesCountFlow(): Flow<Int>
@@ -100,6 +105,13 @@ interface IssueDao : BaseDao<IssueStub> {
         status: IssueStatus
     ): Date?
 
+    @Query("SELECT version FROM Issue WHERE date = :date AND feedName = :feedName AND status = :status")
+    suspend fun getVersion(
+        feedName: String,
+        date: String,
+        status: IssueStatus
+    ): Int?
+
     @Query("SELECT dateDownloadWithPages FROM Issue WHERE date = :date AND feedName = :feedName AND status = :status")
     suspend fun getDownloadDateWithPages(
         feedName: String,
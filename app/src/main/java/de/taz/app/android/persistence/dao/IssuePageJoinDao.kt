@@ -24,6 +24,15 @@ interface IssuePageJoinDao : BaseDao<IssuePageJoin> {
     )
     suspend fun getFrontPageForIssue(feedName: String, date: String, status: IssueStatus): Page?
 
+    @Query(
+        """SELECT IssuePageJoin.* FROM IssuePageJoin
+        WHERE IssuePageJoin.issueFeedName == :feedName
+            AND IssuePageJoin.issueDate IN (:dates)
+            AND IssuePageJoin.`index` == 0
+        """
+    )
+    suspend fun getFrontPageJoinsForDates(feedName: String, dates: List<String>): List<IssuePageJoin>
+
     @Query(
         """SELECT Page.pdfFileName FROM Page INNER JOIN IssuePageJoin 
         ON Page.pdfFileName = IssuePageJoin.pageKey 
@@ -41,6 +41,15 @@ interface MomentDao: BaseDao<MomentStub> {
     suspend fun get(issueOperations: IssueOperations) =
         get(issueOperations.feedName, issueOperations.date, issueOperations.status)
 
+    @Query(
+        """
+        SELECT Moment.* From Moment
+        WHERE Moment.issueFeedName == :issueFeedName
+            AND Moment.issueDate IN (:issueDates)
+        """
+    )
+    suspend fun getStubsForDates(issueFeedName: String, issueDates: List<String>): List<MomentStub>
+
     @Query("""
         SELECT Moment.* From Moment
          WHERE NOT EXISTS ( SELECT 1 FROM Issue 
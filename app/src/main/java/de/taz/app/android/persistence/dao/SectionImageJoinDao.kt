@@ -3,6 +3,7 @@ package de.taz.app.android.persistence.dao
 import androidx.room.Dao
 import androidx.room.Query
 import de.taz.app.android.api.models.Image
+import de.taz.app.android.api.models.IssueStatus
 import de.taz.app.android.persistence.join.SectionImageJoin
 
 
@@ -30,6 +31,21 @@ interface SectionImageJoinDao : BaseDao<SectionImageJoin> {
     )
     suspend fun getImagesForSection(sectionFileName: String): List<Image>
 
+    @Query(
+        """SELECT SectionImageJoin.* FROM SectionImageJoin
+        INNER JOIN IssueSectionJoin ON SectionImageJoin.sectionFileName == IssueSectionJoin.sectionFileName
+        WHERE IssueSectionJoin.issueFeedName == :issueFeedName
+            AND IssueSectionJoin.issueDate == :issueDate
+            AND IssueSectionJoin.issueStatus == :issueStatus
+        ORDER BY SectionImageJoin.`index` ASC
+    """
+    )
+    suspend fun getSectionImageJoinsForIssue(
+        issueFeedName: String,
+        issueDate: String,
+        issueStatus: IssueStatus
+    ): List<SectionImageJoin>
+
     @Query("DELETE FROM SectionImageJoin WHERE sectionFileName = :sectionFileName")
     suspend fun deleteRelationToSection(sectionFileName: String)
 
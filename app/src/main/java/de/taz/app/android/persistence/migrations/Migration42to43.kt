@@ -0,0 +1,76 @@
+package de.taz.app.android.persistence.migrations
+
+import android.content.ContentValues
+import android.database.sqlite.SQLiteDatabase
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+import de.taz.app.android.api.models.PublicationDateList
+import de.taz.app.android.persistence.typeconverters.PublicationDateListTypeConverter
+import de.taz.app.android.util.Json
+import java.time.LocalDate
+import java.time.format.DateTimeParseException
+
+/**
+ * Store the publicationDates of the Feed as a compact BLOB instead of a json string.
+ */
+class Migration42to43 : Migration(42, 43) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.apply {
+            execSQL("CREATE TABLE IF NOT EXISTS `FeedNew` (`name` TEXT NOT NULL, `displayName` TEXT NOT NULL, `cycle` TEXT NOT NULL, `momentRatio` REAL NOT NULL, `publicationDates` BLOB NOT NULL, `issueMinDate` TEXT NOT NULL, `issueMaxDate` TEXT NOT NULL, PRIMARY KEY(`name`))")
+            migrateData(db)
+            execSQL("DROP TABLE Feed")
+            execSQL("ALTER TABLE FeedNew RENAME TO Feed")
+        }
+    }
+
+    private fun migrateData(database: SupportSQLiteDatabase) {
+        val converter = PublicationDateListTypeConverter()
+        val values = ContentValues()
+        database.apply {
+            val c = query("SELECT name, displayName, cycle, momentRatio, publicationDates, issueMinDate, issueMaxDate FROM Feed")
+            while (c.moveToNext()) {
+                values.apply {
+                    clear()
+                    put("name", c.getString(0))
+                    put("displayName", c.getString(1))
+                    put("cycle", c.getString(2))
+                    put("momentRatio", c.getFloat(3))
+                    put("publicationDates", converter.toByteArray(parseJsonPublicationDates(c.getString(4))))
+                    put("issueMinDate", c.getString(5))
+                    put("issueMaxDate", c.getString(6))
+                }
+                database.insert("FeedNew", SQLiteDatabase.CONFLICT_REPLACE, values)
+            }
+            c.close()
+        }
+    }
+
+    /**
+     * Parse the previous json format: an array with one array per publication date containing
+     * the date and optionally its validity date. Invalid entries are omitted.
+     */
+    private fun parseJsonPublicationDates(value: String): PublicationDateList {
+        val arrayList = try {
+            Json.decodeFromString<List<List<String>>>(value)
+        } catch (e: IllegalArgumentException) {
+            emptyList()
+        }
+        val entries = arrayList.mapNotNull {
+            val date = it.firstOrNull()?.let(::parseEpochDay) ?: return@mapNotNull null
+            val validity = it.getOrNull(1)?.let(::parseEpochDay) ?: PublicationDateList.NO_VALIDITY
+            date to validity
+        }
+        return PublicationDateList(
+            IntArray(entries.size) { entries[it].first },
+            IntArray(entries.size) { entries[it].second },
+        )
+    }
+
+    private fun parseEpochDay(date: String): Int? {
+        return try {
+            LocalDate.parse(date).toEpochDay().toInt()
+        } catch (e: DateTimeParseException) {
+            null
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package de.taz.app.android.persistence.migrations
+
+import androidx.room.migration.Migration
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+/**
+ * Add the indices used by the queries for the latest issue, the articles of a mediaSyncId and
+ * the bookmarked articles.
+ */
+class Migration43to44 : Migration(43, 44) {
+    override fun migrate(db: SupportSQLiteDatabase) {
+        db.apply {
+            execSQL("CREATE INDEX IF NOT EXISTS `index_Issue_feedName_status_date` ON `Issue` (`feedName`, `status`, `date`)")
+            execSQL("CREATE INDEX IF NOT EXISTS `index_Article_issueFeedName_issueDate_bookmarkedTime` ON `Article` (`issueFeedName`, `issueDate`, `bookmarkedTime`)")
+            execSQL("CREATE INDEX IF NOT EXISTS `index_Article_mediaSyncId_dateDownload` ON `Article` (`mediaSyncId`, `dateDownload`)")
+            execSQL("CREATE INDEX IF NOT EXISTS `index_Article_bookmarkedTime` ON `Article` (`bookmarkedTime`)")
+        }
+    }
+}
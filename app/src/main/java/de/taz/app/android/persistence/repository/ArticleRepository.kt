@@ -8,6 +8,7 @@ import de.taz.app.android.api.models.ArticleWithSectionKey
 import de.taz.app.android.api.models.FileEntry
 import de.taz.app.android.api.models.Image
 import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.persistence.SQLITE_MAX_VARIABLE_NUMBER
 import de.taz.app.android.persistence.join.ArticleAuthorImageJoin
 import de.taz.app.android.persistence.join.ArticleImageJoin
 import de.taz.app.android.sentry.SentryWrapper
@@ -88,6 +89,17 @@ class ArticleRepository private constructor(applicationContext: Context) :
         return appDatabase.articleDao().get(articleFileName)
     }
 
+    /**
+     * Get all existing [Article]s with [articleFileNames] using as few queries as possible.
+     * The order of the returned list is undefined.
+     */
+    suspend fun get(articleFileNames: List<String>): List<Article> {
+        return articleFileNames
+            .distinct()
+            .chunked(SQLITE_MAX_VARIABLE_NUMBER)
+            .flatMap { appDatabase.articleDao().get(it) }
+    }
+
     suspend fun getByMediaSyncId(articleMediaSyncId: Int): Article? {
         return appDatabase.articleDao().getByMediaSyncId(articleMediaSyncId)
     }
@@ -5,6 +5,7 @@ import android.database.sqlite.SQLiteConstraintException
 import de.taz.app.android.api.models.Article
 import de.taz.app.android.api.models.Audio
 import de.taz.app.android.api.models.AudioStub
+import de.taz.app.android.persistence.SQLITE_MAX_VARIABLE_NUMBER
 import de.taz.app.android.util.SingletonHolder
 
 class AudioRepository private constructor(applicationContext: Context) :
@@ -26,6 +27,32 @@ class AudioRepository private constructor(applicationContext: Context) :
         )
     }
 
+    /**
+     * Get all existing [Audio]s with [audioFileNames] using as few queries as possible.
+     * @return A map of the [Audio]s by their file name
+     */
+    suspend fun get(audioFileNames: List<String>): Map<String, Audio> {
+        val audioStubs = audioFileNames
+            .distinct()
+            .chunked(SQLITE_MAX_VARIABLE_NUMBER)
+            .flatMap { appDatabase.audioDao().getByNames(it) }
+        val audioFileEntries = fileEntryRepository
+            .get(audioStubs.map { it.fileName })
+            .associateBy { it.name }
+
+        return audioStubs.mapNotNull { audioStub ->
+            audioFileEntries[audioStub.fileName]?.let { audioFileEntry ->
+                audioStub.fileName to Audio(
+                    audioFileEntry,
+                    audioStub.playtime,
+                    audioStub.duration,
+                    audioStub.speaker,
+                    audioStub.breaks
+                )
+            }
+        }.toMap()
+    }
+
     /**
      * Save the [Audio] to the database and replace any existing [Audio] with the same key.
      *
@@ -0,0 +1,104 @@
+package de.taz.app.android.persistence.repository
+
+import de.taz.app.android.api.models.FileEntry
+
+// Number of version stripes used to detect writes racing with database reads
+private const val VERSION_STRIPES = 64
+
+// Maximum number of indexed names, enough for all files of a few issues
+private const val MAX_INDEXED_NAMES = 4096
+
+/**
+ * A bounded in-memory LRU index of [FileEntry]s by their name, used to resolve local files
+ * without querying the database. Names that are known to have no [FileEntry] can be indexed as well.
+ *
+ * The index is kept in sync by the [FileEntryRepository]: every write or delete invalidates the
+ * affected names. To prevent a database read that raced with such a write from putting an outdated
+ * entry back into the index, every name maps to a version stripe that is incremented on each
+ * invalidation. Entries are only indexed if their stripe did not change while they were read.
+ *
+ * A write done within a transaction is invalidated before the transaction is committed, so until
+ * then other connections still read the previous row. Its stripe is therefore marked as pending and
+ * no entries are indexed for it, until a reader that is serialized after all open transactions
+ * clears the mark with [clearPending].
+ */
+class FileEntryIndex(private val maxSize: Int = MAX_INDEXED_NAMES) {
+
+    /**
+     * An indexed lookup result. [fileEntry] is null if there is no [FileEntry] with that name.
+     */
+    class Entry(val fileEntry: FileEntry?)
+
+    // A LinkedHashMap in access order keeps the least recently used name first
+    private val entries = object : LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<String, Entry>?): Boolean {
+            return size > maxSize
+        }
+    }
+    private val versions = LongArray(VERSION_STRIPES)
+    private val pending = BooleanArray(VERSION_STRIPES)
+
+    val size: Int
+        get() = synchronized(this) { entries.size }
+
+    private fun stripe(name: String) = (name.hashCode() and Int.MAX_VALUE) % VERSION_STRIPES
+
+    /**
+     * Return the indexed [Entry] for [name] or null if [name] is not indexed yet.
+     */
+    fun get(name: String): Entry? = synchronized(this) { entries[name] }
+
+    /**
+     * Return the current version of [name]. It must be read before reading from the database
+     * and passed to [put] afterwards.
+     */
+    fun version(name: String): Long = synchronized(this) { versions[stripe(name)] }
+
+    /**
+     * Return true if [name] might have been written by a transaction that is not committed yet.
+     */
+    fun isPending(name: String): Boolean = synchronized(this) { pending[stripe(name)] }
+
+    /**
+     * Index the [fileEntry] (or its absence) for [name], unless [name] was invalidated since
+     * [version] was read or is pending.
+     */
+    fun put(name: String, fileEntry: FileEntry?, version: Long) {
+        val stripe = stripe(name)
+        synchronized(this) {
+            if (versions[stripe] == version && !pending[stripe]) {
+                entries[name] = Entry(fileEntry)
+            }
+        }
+    }
+
+    /**
+     * Remove [name] from the index. Must be called after the [FileEntry] was written or deleted.
+     * @param isInTransaction True if the write has been done within a transaction
+     */
+    fun invalidate(name: String, isInTransaction: Boolean = false) {
+        val stripe = stripe(name)
+        synchronized(this) {
+            versions[stripe]++
+            if (isInTransaction) {
+                pending[stripe] = true
+            }
+            entries.remove(name)
+        }
+    }
+
+    fun invalidate(names: Collection<String>, isInTransaction: Boolean = false) {
+        names.forEach { invalidate(it, isInTransaction) }
+    }
+
+    /**
+     * Clear the pending mark of [name]. Must only be called while no other transaction can be open,
+     * that is from within a transaction of the caller.
+     */
+    fun clearPending(name: String) {
+        val stripe = stripe(name)
+        synchronized(this) {
+            pending[stripe] = false
+        }
+    }
+}
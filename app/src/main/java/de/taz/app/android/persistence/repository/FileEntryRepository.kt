@@ -1,10 +1,15 @@
 package de.taz.app.android.persistence.repository
 
 import android.content.Context
+import androidx.room.withTransaction
 import de.taz.app.android.api.interfaces.FileEntryOperations
 import de.taz.app.android.api.interfaces.StorageLocation
 import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.StorageType
 import de.taz.app.android.dataStore.StorageDataStore
+import de.taz.app.android.persistence.SQLITE_MAX_VARIABLE_NUMBER
+import de.taz.app.android.persistence.dao.FileEntryDao
+import de.taz.app.android.singletons.StorageService
 import de.taz.app.android.util.SingletonHolder
 import java.util.Date
 
@@ -16,44 +21,188 @@ class FileEntryRepository private constructor(
     companion object : SingletonHolder<FileEntryRepository, Context>(::FileEntryRepository)
     val storageDataStore by lazy { StorageDataStore.getInstance(applicationContext) }
 
+    /**
+     * In-memory index of the [FileEntry]s looked up by [getIndexed].
+     * All write and delete operations of this repository invalidate the affected names, writes
+     * within a transaction keep them from being indexed again until the transaction has ended.
+     */
+    private val index = FileEntryIndex()
+
     suspend fun update(fileEntry: FileEntry) {
         appDatabase.fileEntryDao().update(fileEntry)
+        invalidateIndex(fileEntry.name)
     }
 
     /**
      * Save the [FileEntry]
-     * and replace any existing [FileEntry] with the same key but an earlier modification time.
+     * and replace any existing [FileEntry] with the same key but an earlier modification time
+     * or a different content hash.
      */
     suspend fun save(fileEntry: FileEntry) {
         val fromDB = appDatabase.fileEntryDao().getByName(fileEntry.name)
-        if (fromDB == null || fromDB.moTime < fileEntry.moTime) {
+        if (isChanged(fromDB, fileEntry)) {
             appDatabase.fileEntryDao().insertOrReplace(fileEntry)
+            invalidateIndex(fileEntry.name)
         }
     }
 
+    private fun isChanged(fromDB: FileEntry?, fileEntry: FileEntry): Boolean {
+        return fromDB == null || fromDB.moTime < fileEntry.moTime || fromDB.sha256 != fileEntry.sha256
+    }
+
     /**
      * Save the [FileEntry]
      * and replace any existing [FileEntry] with the same key regardless of the modification time.
      */
     suspend fun saveOrReplace(fileEntry: FileEntry): FileEntry {
         appDatabase.fileEntryDao().insertOrReplace(fileEntry)
+        invalidateIndex(fileEntry.name)
         return fileEntry
     }
 
+    /**
+     * Save the list of [FileEntry]s with a single bulk insert in one transaction
+     * and replace any existing [FileEntry] with the same key regardless of the modification time.
+     */
+    suspend fun saveOrReplace(fileEntries: List<FileEntry>): List<FileEntry> {
+        appDatabase.withTransaction {
+            appDatabase.fileEntryDao().insertOrReplace(fileEntries)
+        }
+        invalidateIndex(fileEntries.map { it.name })
+        return fileEntries
+    }
+
     /**
      * Save the list of [FileEntry]s
-     * and replace any existing [FileEntry] with the same key but an earlier modification time.
+     * and replace any existing [FileEntry] with the same key but an earlier modification time
+     * or a different content hash. Unchanged [FileEntry]s are not written at all.
      *
      * This method must be called as part of a transaction, for example when saving a [Moment].
      */
     suspend fun save(fileEntries: List<FileEntry>) {
-        fileEntries.forEach { save(it) }
+        val fromDB = get(fileEntries.map { it.name }).associateBy { it.name }
+        val changedFileEntries = fileEntries.filter { isChanged(fromDB[it.name], it) }
+        if (changedFileEntries.isNotEmpty()) {
+            appDatabase.fileEntryDao().insertOrReplace(changedFileEntries)
+            invalidateIndex(changedFileEntries.map { it.name })
+        }
     }
 
     suspend fun get(fileEntryName: String): FileEntry? {
         return appDatabase.fileEntryDao().getByName(fileEntryName)
     }
 
+    /**
+     * Get all existing [FileEntry]s with [fileEntryNames] using as few queries as possible.
+     * The order of the returned list is undefined.
+     */
+    suspend fun get(fileEntryNames: List<String>): List<FileEntry> {
+        return fileEntryNames
+            .distinct()
+            .chunked(SQLITE_MAX_VARIABLE_NUMBER)
+            .flatMap { appDatabase.fileEntryDao().getByNames(it) }
+    }
+
+    /**
+     * Get those of the [paths] which belong to a [FileEntry] stored at [storageLocation]
+     */
+    suspend fun getExistingPaths(storageLocation: StorageLocation, paths: List<String>): Set<String> {
+        return paths
+            .chunked(SQLITE_MAX_VARIABLE_NUMBER - 1)
+            .flatMap { appDatabase.fileEntryDao().getExistingPaths(storageLocation, it) }
+            .toSet()
+    }
+
+    /**
+     * Get those of the [sha256s] which belong to a [FileEntry] stored at [storageLocation]
+     */
+    suspend fun getExistingSha256s(storageLocation: StorageLocation, sha256s: List<String>): Set<String> {
+        return sha256s
+            .chunked(SQLITE_MAX_VARIABLE_NUMBER - 1)
+            .flatMap { appDatabase.fileEntryDao().getExistingSha256s(storageLocation, it) }
+            .toSet()
+    }
+
+    /**
+     * Sum up the size of all downloaded issue files by the folder of their issue
+     * as determined by [StorageService.determineIssueFolder].
+     */
+    suspend fun getDownloadedIssueFolderSizes(): Map<String, Long> {
+        val sizes = HashMap<String, Long>()
+        appDatabase.fileEntryDao().getDownloadedSizesByStorageType(StorageType.issue)
+            .forEach { (path, size) ->
+                val folder = path.substringBeforeLast('/')
+                sizes[folder] = (sizes[folder] ?: 0L) + size
+            }
+        return sizes
+    }
+
+    /**
+     * Get the [FileEntry] with [fileEntryName] from the in-memory index.
+     * Only the first lookup of a name (and the first one after it was changed) queries the database.
+     * This is meant for hot paths like resolving the resources requested by a WebView.
+     * As arbitrary names like those of external urls are looked up here, only existing [FileEntry]s
+     * are indexed. Names known to have no [FileEntry] are indexed by [preloadIndex].
+     */
+    suspend fun getIndexed(fileEntryName: String): FileEntry? {
+        index.get(fileEntryName)?.let { return it.fileEntry }
+
+        if (index.isPending(fileEntryName)) {
+            // The FileEntry might have been written by a transaction that is not committed yet.
+            // Reading it within a transaction waits until all other transactions have ended.
+            return appDatabase.withTransaction {
+                index.clearPending(fileEntryName)
+                val version = index.version(fileEntryName)
+                get(fileEntryName)?.also { index.put(fileEntryName, it, version) }
+            }
+        }
+
+        val version = index.version(fileEntryName)
+        val fileEntry = get(fileEntryName)
+        if (fileEntry != null) {
+            index.put(fileEntryName, fileEntry, version)
+        }
+        return fileEntry
+    }
+
+    /**
+     * Get the [FileEntry] with [fileEntryName] from the in-memory index without ever querying the
+     * database.
+     * @return The [FileEntryIndex.Entry] or null if [fileEntryName] has not been indexed yet.
+     */
+    fun getIndexedOrNull(fileEntryName: String): FileEntryIndex.Entry? {
+        return index.get(fileEntryName)
+    }
+
+    /**
+     * Load the [FileEntry]s with [fileEntryNames] into the in-memory index with a single query,
+     * so that subsequent calls to [getIndexed] do not have to query the database.
+     * The [fileEntryNames] must belong to content, as their absence is indexed as well.
+     */
+    suspend fun preloadIndex(fileEntryNames: List<String>) {
+        val notIndexed = fileEntryNames.filter { index.get(it) == null }.distinct()
+        if (notIndexed.isEmpty()) {
+            return
+        }
+        val versions = notIndexed.associateWith { index.version(it) }
+        val fileEntries = get(notIndexed).associateBy { it.name }
+        versions.forEach { (name, version) ->
+            index.put(name, fileEntries[name], version)
+        }
+    }
+
+    /**
+     * Remove [fileEntryNames] from the in-memory index.
+     * Must be called after [FileEntry]s were written or deleted by other DAOs than the [FileEntryDao].
+     */
+    fun invalidateIndex(fileEntryNames: Collection<String>) {
+        index.invalidate(fileEntryNames, appDatabase.inTransaction())
+    }
+
+    private fun invalidateIndex(fileEntryName: String) {
+        index.invalidate(fileEntryName, appDatabase.inTransaction())
+    }
+
     suspend fun getDownloadedByStorageLocation(storageLocation: StorageLocation): List<FileEntry> {
         return appDatabase.fileEntryDao().getDownloadedByStorageLocation(storageLocation)
     }
@@ -80,11 +229,17 @@ class FileEntryRepository private constructor(
 
     suspend fun delete(fileEntry: FileEntry) {
         appDatabase.fileEntryDao().delete(fileEntry)
+        invalidateIndex(fileEntry.name)
     }
 
+    suspend fun delete(fileEntries: List<FileEntry>) {
+        appDatabase.fileEntryDao().delete(fileEntries)
+        invalidateIndex(fileEntries.map { it.name })
+    }
 
     suspend fun deleteList(fileEntryNames: List<String>) {
         appDatabase.fileEntryDao().deleteList(fileEntryNames)
+        invalidateIndex(fileEntryNames)
     }
 
     suspend fun resetDownloadDate(fileEntry: FileEntry) {
@@ -5,6 +5,7 @@ import de.taz.app.android.api.models.Article
 import de.taz.app.android.api.models.FileEntry
 import de.taz.app.android.api.models.Image
 import de.taz.app.android.api.models.ImageStub
+import de.taz.app.android.persistence.SQLITE_MAX_VARIABLE_NUMBER
 import de.taz.app.android.util.SingletonHolder
 
 
@@ -54,8 +55,15 @@ class ImageRepository private constructor(
         return appDatabase.imageStubDao().getByName(imageName)
     }
 
+    /**
+     * Get all existing [Image]s with [imageNames] using as few queries as possible.
+     * The order of the returned list is undefined.
+     */
     suspend fun get(imageNames: List<String>): List<Image> {
-        return appDatabase.imageDao().getByNames(imageNames)
+        return imageNames
+            .distinct()
+            .chunked(SQLITE_MAX_VARIABLE_NUMBER)
+            .flatMap { appDatabase.imageDao().getByNames(it) }
     }
 
     suspend fun delete(image: Image) {
@@ -14,6 +14,7 @@ import de.taz.app.android.api.models.Feed
 import de.taz.app.android.api.models.Image
 import de.taz.app.android.api.models.Issue
 import de.taz.app.android.api.models.IssueStatus
+import de.taz.app.android.api.models.IssueStorageInfo
 import de.taz.app.android.api.models.IssueStub
 import de.taz.app.android.api.models.IssueWithPages
 import de.taz.app.android.api.models.Moment
@@ -227,8 +228,8 @@ class IssueRepository private constructor(applicationContext: Context) :
             .maxByOrNull { it.status }
     }
 
-    suspend fun getIssueStubToDelete(): IssueStub? {
-        return appDatabase.issueDao().getIssueToDelete()
+    suspend fun getDownloadedIssueStorageInfos(): List<IssueStorageInfo> {
+        return appDatabase.issueDao().getDownloadedIssueStorageInfos()
     }
 
     suspend fun getImprintStub(issueKey: IssueKey): Article? {
@@ -277,6 +278,14 @@ class IssueRepository private constructor(applicationContext: Context) :
         return getDownloadDate(issueStub.issueKey)
     }
 
+    /**
+     * Get the version of the stored issue without loading its metadata
+     */
+    suspend fun getVersion(issueKey: AbstractIssueKey): Int? {
+        return appDatabase.issueDao()
+            .getVersion(issueKey.feedName, issueKey.date, issueKey.status)
+    }
+
     suspend fun isDownloaded(issueKey: AbstractIssueKey): Boolean {
         return when (issueKey) {
             is IssueKey -> isDownloaded(issueKey)
@@ -332,19 +341,21 @@ class IssueRepository private constructor(applicationContext: Context) :
         setDownloadDate(IssueStub(issue), dateDownload)
     }
 
-    private suspend fun issueStubToIssue(issueStub: IssueStub): Issue {
+    /**
+     * Assemble the full [Issue] graph of [issueStub].
+     * The sections and pages with all their relations are loaded in batches and within a single
+     * transaction, so the number of queries does not grow with the size of the issue.
+     */
+    private suspend fun issueStubToIssue(issueStub: IssueStub): Issue = appDatabase.withTransaction {
         val sectionNames = appDatabase.issueSectionJoinDao().getSectionNamesForIssue(issueStub)
-        val sections =
+        val sections = sectionRepository.getSectionsForIssue(issueStub.issueKey)
+        if (sections.size != sectionNames.size) {
+            // TODO: We observed consistency errors in sentry but weren't able to pin down the issue. Capture and ignore any expected section
+            val loadedSectionNames = sections.map { it.key }.toSet()
             sectionNames
-                .map { sectionRepository.get(it) }
-                .filterIndexed { index, section ->
-                    // TODO: We observed consistency errors in sentry but weren't able to pin down the issue. Capture and ignore any expected section
-                    val isNull = section == null
-                    if (isNull) {
-                        SentryWrapper.captureMessage("Expected section ${sectionNames[index]} not found in Database")
-                    }
-                    !isNull
-                }.filterNotNull()
+                .filterNot { it in loadedSectionNames }
+                .forEach { SentryWrapper.captureMessage("Expected section $it not found in Database") }
+        }
 
 
         val imprint = appDatabase.issueImprintJoinDao().getArticleImprintNameForIssue(
@@ -375,19 +386,17 @@ class IssueRepository private constructor(applicationContext: Context) :
                 null
             )
         }
-        val pageList =
-            appDatabase.issuePageJoinDao()
-                .getPageNamesForIssue(issueStub.feedName, issueStub.date, issueStub.status)
-                .mapNotNull {
-                    try {
-                        pageRepository.getOrThrow(it)
-                    } catch (e: NotFoundException) {
-                        log.error("Could not get Page(${it}) of Issue (${issueStub.issueKey})", e)
-                        null
-                    }
-                }
+        val pageNames = appDatabase.issuePageJoinDao()
+            .getPageNamesForIssue(issueStub.feedName, issueStub.date, issueStub.status)
+        val pageList = pageRepository.getPagesForIssueKey(issueStub.issueKey)
+        if (pageList.size != pageNames.size) {
+            val loadedPageNames = pageList.map { it.pdfFileName }.toSet()
+            pageNames
+                .filterNot { it in loadedPageNames }
+                .forEach { log.error("Could not get Page($it) of Issue (${issueStub.issueKey})") }
+        }
 
-        return Issue(
+        Issue(
             issueStub.feedName,
             issueStub.date,
             issueStub.version,
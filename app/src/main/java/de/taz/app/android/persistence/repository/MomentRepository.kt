@@ -94,6 +94,23 @@ class MomentRepository private constructor(applicationContext: Context) :
         }
     }
 
+    /**
+     * Save multiple downloaded [Moment]s within a single transaction.
+     */
+    suspend fun save(moments: List<Moment>) {
+        appDatabase.withTransaction {
+            moments.forEach { saveInternal(it) }
+        }
+    }
+
+    /**
+     * Return the [MomentStub]s of all [issueDates] of the feed [issueFeedName] that exist in the
+     * database, regardless of their status.
+     */
+    suspend fun getStubs(issueFeedName: String, issueDates: List<String>): List<MomentStub> {
+        return appDatabase.momentDao().getStubsForDates(issueFeedName, issueDates)
+    }
+
     suspend fun momentStubToMoment(momentStub: MomentStub): Moment {
         return Moment(
             momentStub.issueFeedName,
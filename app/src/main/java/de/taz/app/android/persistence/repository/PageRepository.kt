@@ -66,6 +66,32 @@ class PageRepository private constructor(applicationContext: Context) :
         }
     }
 
+    /**
+     * Save multiple downloaded front [Page]s with the [IssueKey]s of their issues within a single
+     * transaction. See [saveFrontPage].
+     */
+    suspend fun saveFrontPages(frontPages: List<Pair<Page, IssueKey>>) {
+        appDatabase.withTransaction {
+            frontPages.forEach { (page, _) ->
+                saveInternal(page)
+            }
+            appDatabase.issuePageJoinDao().insertOrReplace(
+                frontPages.map { (page, issueKey) ->
+                    IssuePageJoin(issueKey.feedName, issueKey.date, issueKey.status, page.pdfFileName, 0)
+                }
+            )
+        }
+    }
+
+    /**
+     * Return the [IssueKey]s of all [dates] of the feed [feedName] with a front [Page] in the database.
+     */
+    suspend fun getFrontPageIssueKeys(feedName: String, dates: List<String>): List<IssueKey> {
+        return appDatabase.issuePageJoinDao().getFrontPageJoinsForDates(feedName, dates).map {
+            IssueKey(it.issueFeedName, it.issueDate, it.issueStatus)
+        }
+    }
+
     @VisibleForTesting(otherwise = VisibleForTesting.NONE)
     suspend fun getWithoutFile(fileName: String): Page? {
         return appDatabase.pageDao().get(fileName)
@@ -112,6 +138,7 @@ class PageRepository private constructor(applicationContext: Context) :
 
     suspend fun deleteIfNoIssueRelated(pages: List<Page>) {
         appDatabase.pageDao().deletePageFileEntriesIfNoIssueRelated(pages.map { it.pdfFileName })
+        fileEntryRepository.invalidateIndex(pages.map { it.pdfFileName })
         appDatabase.pageDao().deleteIfNoIssueRelated(pages.map { it.pdfFileName })
         pages.mapNotNull { it.podcast }.forEach {
             audioRepository.tryDelete(it)
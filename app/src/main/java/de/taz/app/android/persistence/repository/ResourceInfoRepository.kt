@@ -122,7 +122,7 @@ class ResourceInfoRepository private constructor(applicationContext: Context) :
             }
         )
         try {
-            appDatabase.fileEntryDao().delete(resourceInfo.resourceList)
+            fileEntryRepository.delete(resourceInfo.resourceList)
         } catch (e: SQLiteConstraintException) {
             log.info("Could not delete some FileEntry related to ResourceInfo(${resourceInfo.resourceVersion}) because they are still referenced")
         }
@@ -106,10 +106,65 @@ class SectionRepository private constructor(applicationContext: Context) :
         )
     }
 
+    /**
+     * Get all [Section]s of the issue with [issueKey] in their order.
+     *
+     * Instead of assembling each [Section] on its own, the files, articles, images and podcasts of
+     * all sections are loaded with a fixed number of set based queries and the sections are built
+     * in memory. Sections whose html file is missing are omitted like in [get].
+     */
     suspend fun getSectionsForIssue(issueKey: IssueKey): List<Section> {
-        return appDatabase.sectionDao().getSectionsForIssue(
+        val sectionStubs = appDatabase.sectionDao().getSectionsForIssue(
             issueKey.feedName, issueKey.date, issueKey.status
-        ).mapNotNull { sectionStubToSection(it) }
+        )
+        if (sectionStubs.isEmpty()) {
+            return emptyList()
+        }
+
+        val sectionFiles = fileEntryRepository
+            .get(sectionStubs.map { it.sectionFileName })
+            .associateBy { it.name }
+
+        val articleJoins = appDatabase.sectionArticleJoinDao()
+            .getSectionArticleJoinsForIssue(issueKey.feedName, issueKey.date, issueKey.status)
+        val articles = articleRepository
+            .get(articleJoins.map { it.articleFileName })
+            .associateBy { it.articleFileName }
+        val articlesBySection = articleJoins
+            .sortedBy { it.index }
+            .groupBy({ it.sectionFileName }, { articles[it.articleFileName] })
+
+        val imageJoins = appDatabase.sectionImageJoinDao()
+            .getSectionImageJoinsForIssue(issueKey.feedName, issueKey.date, issueKey.status)
+        val images = imageRepository
+            .get(imageJoins.map { it.imageFileName }.distinct())
+            .associateBy { it.name }
+        val imagesBySection = imageJoins
+            .groupBy({ it.sectionFileName }, { images[it.imageFileName] })
+
+        val podcasts = audioRepository.get(sectionStubs.mapNotNull { it.podcastFileName })
+
+        val navButton = requireNotNull(imageRepository.get(defaultNavDrawerFileName)) {
+            "navigation button is essential for the app running"
+        }
+
+        return sectionStubs.mapNotNull { sectionStub ->
+            val sectionFileName = sectionStub.sectionFileName
+            val sectionFile = sectionFiles[sectionFileName] ?: return@mapNotNull null
+
+            Section(
+                sectionHtml = sectionFile,
+                issueDate = sectionStub.issueDate,
+                title = sectionStub.title,
+                type = sectionStub.type,
+                navButton = navButton,
+                articleList = articlesBySection[sectionFileName]?.filterNotNull() ?: emptyList(),
+                imageList = imagesBySection[sectionFileName]?.filterNotNull() ?: emptyList(),
+                extendedTitle = sectionStub.extendedTitle,
+                dateDownload = sectionStub.dateDownload,
+                podcast = sectionStub.podcastFileName?.let { podcasts[it] },
+            )
+        }
     }
 
     suspend fun getPreviousSectionKey(sectionFileName: String): String? {
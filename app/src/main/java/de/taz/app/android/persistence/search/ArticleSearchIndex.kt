@@ -0,0 +1,283 @@
+package de.taz.app.android.persistence.search
+
+import android.content.ContentValues
+import android.content.Context
+import android.database.DatabaseUtils
+import android.database.sqlite.SQLiteDatabase
+import android.database.sqlite.SQLiteOpenHelper
+import androidx.annotation.VisibleForTesting
+import de.taz.app.android.persistence.SQLITE_MAX_VARIABLE_NUMBER
+import de.taz.app.android.util.SingletonHolder
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import kotlin.math.ln
+
+private const val SEARCH_DATABASE_NAME = "article_search.db"
+private const val SEARCH_DATABASE_VERSION = 2
+
+private const val DOCUMENT_TABLE = "ArticleSearchDocument"
+private const val FTS_TABLE = "ArticleSearch"
+private const val BACKFILL_TABLE = "ArticleSearchBackfill"
+
+// Relevance weights of the full text columns title, teaser, author and body
+private val COLUMN_WEIGHTS = doubleArrayOf(10.0, 5.0, 3.0, 1.0)
+private const val BODY_COLUMN_INDEX = 3
+private const val SNIPPET_TOKENS = 16
+
+const val SNIPPET_START = "<span class=\"snippet\">"
+const val SNIPPET_END = "</span>"
+
+/**
+ * The searchable text of a downloaded article
+ */
+data class ArticleSearchDocument(
+    val articleFileName: String,
+    val issueFeedName: String,
+    val issueDate: String,
+    val title: String,
+    val teaser: String,
+    val author: String,
+    val body: String,
+)
+
+/**
+ * An article matching a local search
+ * @param snippet Part of the body with the matches highlighted by [SNIPPET_START] and [SNIPPET_END]
+ * @param score The relevance of the match: the higher the better
+ */
+data class ArticleSearchResult(
+    val articleFileName: String,
+    val issueDate: String,
+    val snippet: String?,
+    val score: Double,
+)
+
+/**
+ * Local full text index of the downloaded articles.
+ *
+ * The index only contains data derived from the downloaded files, so it is kept in its own SQLite
+ * database instead of the [de.taz.app.android.persistence.AppDatabase] and is simply recreated on
+ * schema changes. The text is stored in an FTS4 table whose docid references a regular table
+ * holding the article key and the issue, so that single articles can be replaced or deleted
+ * without scanning the full text table.
+ */
+class ArticleSearchIndex @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) constructor(
+    applicationContext: Context,
+    databaseName: String?,
+) {
+    private constructor(applicationContext: Context) : this(applicationContext, SEARCH_DATABASE_NAME)
+
+    companion object : SingletonHolder<ArticleSearchIndex, Context>(::ArticleSearchIndex)
+
+    private val openHelper = object : SQLiteOpenHelper(
+        applicationContext, databaseName, null, SEARCH_DATABASE_VERSION
+    ) {
+        override fun onCreate(db: SQLiteDatabase) {
+            db.execSQL("CREATE TABLE $DOCUMENT_TABLE (docid INTEGER PRIMARY KEY AUTOINCREMENT, articleFileName TEXT NOT NULL UNIQUE, issueFeedName TEXT NOT NULL, issueDate TEXT NOT NULL)")
+            db.execSQL("CREATE INDEX index_${DOCUMENT_TABLE}_issueDate ON $DOCUMENT_TABLE (issueDate)")
+            db.execSQL("CREATE VIRTUAL TABLE $FTS_TABLE USING fts4(title, teaser, author, body, tokenize=unicode61)")
+            db.execSQL("CREATE TABLE $BACKFILL_TABLE (completed INTEGER NOT NULL)")
+        }
+
+        override fun onUpgrade(db: SQLiteDatabase, oldVersion: Int, newVersion: Int) {
+            db.execSQL("DROP TABLE IF EXISTS $FTS_TABLE")
+            db.execSQL("DROP TABLE IF EXISTS $DOCUMENT_TABLE")
+            db.execSQL("DROP TABLE IF EXISTS $BACKFILL_TABLE")
+            onCreate(db)
+        }
+    }
+
+    /**
+     * Add the [documents] to the index, replacing previous versions of the same articles.
+     */
+    suspend fun save(documents: List<ArticleSearchDocument>) = withContext(Dispatchers.IO) {
+        if (documents.isEmpty()) {
+            return@withContext
+        }
+        val db = openHelper.writableDatabase
+        db.beginTransaction()
+        try {
+            documents.forEach { document ->
+                deleteDocument(db, document.articleFileName)
+                val docId = db.insertOrThrow(DOCUMENT_TABLE, null, ContentValues().apply {
+                    put("articleFileName", document.articleFileName)
+                    put("issueFeedName", document.issueFeedName)
+                    put("issueDate", document.issueDate)
+                })
+                db.insertOrThrow(FTS_TABLE, null, ContentValues().apply {
+                    put("docid", docId)
+                    put("title", document.title)
+                    put("teaser", document.teaser)
+                    put("author", document.author)
+                    put("body", document.body)
+                })
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    /**
+     * Remove the articles with the given [articleFileNames] from the index.
+     */
+    suspend fun delete(articleFileNames: List<String>) = withContext(Dispatchers.IO) {
+        if (articleFileNames.isEmpty()) {
+            return@withContext
+        }
+        val db = openHelper.writableDatabase
+        db.beginTransaction()
+        try {
+            articleFileNames.forEach { deleteDocument(db, it) }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+    }
+
+    private fun deleteDocument(db: SQLiteDatabase, articleFileName: String) {
+        db.query(
+            DOCUMENT_TABLE, arrayOf("docid"), "articleFileName = ?", arrayOf(articleFileName),
+            null, null, null
+        ).use { cursor ->
+            while (cursor.moveToNext()) {
+                val docId = cursor.getLong(0).toString()
+                db.delete(FTS_TABLE, "docid = ?", arrayOf(docId))
+                db.delete(DOCUMENT_TABLE, "docid = ?", arrayOf(docId))
+            }
+        }
+    }
+
+    /**
+     * Return true if the articles downloaded before this index was created have been added.
+     * As the index is recreated on schema changes, this is reset along with it.
+     */
+    suspend fun isBackfilled(): Boolean = withContext(Dispatchers.IO) {
+        DatabaseUtils.queryNumEntries(openHelper.readableDatabase, BACKFILL_TABLE) > 0
+    }
+
+    suspend fun setBackfilled() = withContext(Dispatchers.IO) {
+        openHelper.writableDatabase.insertOrThrow(BACKFILL_TABLE, null, ContentValues().apply {
+            put("completed", System.currentTimeMillis())
+        })
+        Unit
+    }
+
+    /**
+     * Return the keys of all indexed articles among [articleFileNames].
+     */
+    suspend fun getIndexed(articleFileNames: List<String>): Set<String> = withContext(Dispatchers.IO) {
+        val db = openHelper.readableDatabase
+        articleFileNames.chunked(SQLITE_MAX_VARIABLE_NUMBER).flatMap { chunk ->
+            val placeholders = chunk.joinToString(",") { "?" }
+            db.rawQuery(
+                "SELECT articleFileName FROM $DOCUMENT_TABLE WHERE articleFileName IN ($placeholders)",
+                chunk.toTypedArray()
+            ).use { cursor ->
+                buildList {
+                    while (cursor.moveToNext()) {
+                        add(cursor.getString(0))
+                    }
+                }
+            }
+        }.toSet()
+    }
+
+    /**
+     * Search the index. All words of [text] must be found in any column, the words of [title]
+     * and [author] only in the respective column. The last characters of words may be omitted.
+     * @param fromDate Optional minimum issue date in the format yyyy-MM-dd
+     * @param untilDate Optional maximum issue date in the format yyyy-MM-dd
+     * @return The matching articles, ordered by their relevance
+     */
+    suspend fun search(
+        text: String?,
+        title: String? = null,
+        author: String? = null,
+        fromDate: String? = null,
+        untilDate: String? = null,
+    ): List<ArticleSearchResult> = withContext(Dispatchers.IO) {
+        val matchExpression = listOfNotNull(
+            toMatchExpression(text, null),
+            toMatchExpression(title, "title"),
+            toMatchExpression(author, "author"),
+        ).joinToString(" ")
+        if (matchExpression.isBlank()) {
+            return@withContext emptyList()
+        }
+
+        val sql = """
+            SELECT d.articleFileName, d.issueDate, matchinfo($FTS_TABLE, 'pcnx'),
+                snippet($FTS_TABLE, '$SNIPPET_START', '$SNIPPET_END', '…', $BODY_COLUMN_INDEX, $SNIPPET_TOKENS)
+            FROM $FTS_TABLE JOIN $DOCUMENT_TABLE d ON d.docid = $FTS_TABLE.docid
+            WHERE $FTS_TABLE MATCH ? AND d.issueDate >= ? AND d.issueDate <= ?
+        """.trimIndent()
+        val args = arrayOf(matchExpression, fromDate ?: "", untilDate ?: "9999-99-99")
+
+        openHelper.readableDatabase.rawQuery(sql, args).use { cursor ->
+            buildList {
+                while (cursor.moveToNext()) {
+                    add(
+                        ArticleSearchResult(
+                            articleFileName = cursor.getString(0),
+                            issueDate = cursor.getString(1),
+                            snippet = cursor.getString(3),
+                            score = score(cursor.getBlob(2)),
+                        )
+                    )
+                }
+            }
+        }.sortedByDescending { it.score }
+    }
+
+    @VisibleForTesting
+    fun close() {
+        openHelper.close()
+    }
+
+    /**
+     * Convert the user input to a FTS4 match expression, where each word is matched as prefix.
+     * All characters that are not letters or digits are treated as separators, so the input can
+     * not contain any query syntax.
+     */
+    private fun toMatchExpression(input: String?, column: String?): String? {
+        val words = input
+            ?.split(Regex("[^\\p{L}\\p{N}]+"))
+            ?.filter { it.isNotEmpty() }
+            ?: return null
+        if (words.isEmpty()) {
+            return null
+        }
+        val prefix = column?.let { "$it:" } ?: ""
+        return words.joinToString(" ") { "$prefix$it*" }
+    }
+
+    /**
+     * Compute a tf-idf like score from the matchinfo 'pcnx' blob: the number of phrases p,
+     * the number of columns c, the number of rows n and 3 values for each phrase and column:
+     * the hits in this row, the hits in all rows and the number of rows with hits.
+     */
+    private fun score(matchInfo: ByteArray): Double {
+        val values = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder()).asIntBuffer()
+        val phraseCount = values.get(0)
+        val columnCount = values.get(1)
+        val rowCount = values.get(2)
+
+        var score = 0.0
+        for (phrase in 0 until phraseCount) {
+            for (column in 0 until minOf(columnCount, COLUMN_WEIGHTS.size)) {
+                val base = 3 + 3 * (phrase * columnCount + column)
+                val hitsInRow = values.get(base)
+                val rowsWithHits = values.get(base + 2)
+                if (hitsInRow > 0 && rowsWithHits > 0) {
+                    val inverseDocumentFrequency = ln(1.0 + rowCount.toDouble() / rowsWithHits)
+                    val saturatedFrequency = hitsInRow / (hitsInRow + 1.0)
+                    score += COLUMN_WEIGHTS[column] * inverseDocumentFrequency * saturatedFrequency
+                }
+            }
+        }
+        return score
+    }
+}
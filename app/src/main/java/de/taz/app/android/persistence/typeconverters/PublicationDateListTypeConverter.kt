@@ -2,44 +2,103 @@ package de.taz.app.android.persistence.typeconverters
 
 import androidx.room.TypeConverter
 import de.taz.app.android.api.models.PublicationDate
-import de.taz.app.android.simpleDateFormat
-import de.taz.app.android.util.Json
+import de.taz.app.android.api.models.PublicationDateList
+import java.io.ByteArrayOutputStream
 
+private const val FORMAT_VERSION = 1
 
 /**
- * Convert a list of [PublicationDate]s to json by using arrays.
- * To reduce the required storage space each [PublicationDate] is converted to an array with one
- * or two elements. The first element will contain the [PublicationDate.date] and the second
- * [PublicationDate.validity] if it is not null.
- * This converter is lenient and will omit elements that don't have at least a valid date in
- * the first array index.
+ * Convert a list of [PublicationDate]s to a compact binary representation.
+ *
+ * The dates are stored as epoch days. As the list is sorted, only the difference to the previous
+ * date is stored, which mostly fits into a single byte. The validity of each date is stored as
+ * the difference to its date, or 0 if there is none. All numbers are encoded as zigzag varints:
+ *
+ *     version | count | date deltas[count] | validity deltas[count]
+ *
+ * Decoding returns a [PublicationDateList] that creates the [PublicationDate]s only on access.
+ * This converter is lenient and returns an empty list for data it can not decode.
  */
 class PublicationDateListTypeConverter {
     @TypeConverter
-    fun toString(publicationDateList: List<PublicationDate>): String {
-        val arrayList = publicationDateList.map {
-            if (it.validity != null) {
-                arrayListOf(
-                    simpleDateFormat.format(it.date),
-                    simpleDateFormat.format(it.validity)
-                )
+    fun toByteArray(publicationDateList: List<PublicationDate>): ByteArray {
+        val list = PublicationDateList.from(publicationDateList)
+        val out = ByteArrayOutputStream(2 + 2 * list.size)
+        out.writeVarInt(FORMAT_VERSION)
+        out.writeVarInt(list.size)
+        var previous = 0
+        list.epochDays.forEach { epochDay ->
+            out.writeVarInt(zigzag(epochDay - previous))
+            previous = epochDay
+        }
+        list.validityEpochDays.forEachIndexed { index, validity ->
+            if (validity == PublicationDateList.NO_VALIDITY) {
+                out.writeVarInt(0)
             } else {
-                arrayListOf(simpleDateFormat.format(it.date))
+                out.writeVarInt(zigzag(validity - list.epochDays[index]) + 1)
             }
         }
-        return Json.encodeToString(arrayList)
+        return out.toByteArray()
     }
 
     @TypeConverter
-    fun toDateList(value: String): List<PublicationDate> {
-        val arrayList = Json.decodeFromString<List<List<String>>>(value)
-        return arrayList.mapNotNull {
-            val date = it.firstOrNull()?.let(simpleDateFormat::parse)
-            val validity = it.getOrNull(1)?.let(simpleDateFormat::parse)
-
-            date?.let {
-                PublicationDate(date, validity)
+    fun toDateList(value: ByteArray): List<PublicationDate> {
+        val reader = VarIntReader(value)
+        return try {
+            if (reader.read() != FORMAT_VERSION) {
+                return PublicationDateList(IntArray(0), IntArray(0))
+            }
+            val count = reader.read()
+            if (count < 0 || count > value.size) {
+                return PublicationDateList(IntArray(0), IntArray(0))
+            }
+            val epochDays = IntArray(count)
+            var previous = 0
+            for (i in 0 until count) {
+                previous += unzigzag(reader.read())
+                epochDays[i] = previous
+            }
+            val validityEpochDays = IntArray(count) { i ->
+                val validity = reader.read()
+                if (validity == 0) {
+                    PublicationDateList.NO_VALIDITY
+                } else {
+                    epochDays[i] + unzigzag(validity - 1)
+                }
+            }
+            PublicationDateList(epochDays, validityEpochDays)
+        } catch (e: IndexOutOfBoundsException) {
+            PublicationDateList(IntArray(0), IntArray(0))
+        }
+    }
+
+    private fun zigzag(value: Int): Int = (value shl 1) xor (value shr 31)
+
+    private fun unzigzag(value: Int): Int = (value ushr 1) xor -(value and 1)
+
+    private fun ByteArrayOutputStream.writeVarInt(value: Int) {
+        var remaining = value
+        while (remaining and 0x7F.inv() != 0) {
+            write((remaining and 0x7F) or 0x80)
+            remaining = remaining ushr 7
+        }
+        write(remaining)
+    }
+
+    private class VarIntReader(private val bytes: ByteArray) {
+        private var position = 0
+
+        fun read(): Int {
+            var result = 0
+            var shift = 0
+            while (true) {
+                val byte = bytes[position++].toInt()
+                result = result or ((byte and 0x7F) shl shift)
+                if (byte and 0x80 == 0) {
+                    return result
+                }
+                shift += 7
             }
         }
     }
-}
\ No newline at end of file
+}
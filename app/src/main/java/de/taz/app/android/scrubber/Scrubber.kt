@@ -5,6 +5,9 @@ import android.database.sqlite.SQLiteConstraintException
 import androidx.room.withTransaction
 import de.taz.app.android.KEEP_LATEST_MOMENTS_COUNT
 import de.taz.app.android.R
+import de.taz.app.android.SCRUBBER_INTERVAL_DAYS
+import de.taz.app.android.SCRUBBER_SLICE_DURATION_MS
+import de.taz.app.android.SCRUBBER_SLICE_PAUSE_MS
 import de.taz.app.android.TAZ_API_CSS_FILENAME
 import de.taz.app.android.TAZ_API_JS_FILENAME
 import de.taz.app.android.api.interfaces.StorageLocation
@@ -13,6 +16,7 @@ import de.taz.app.android.api.models.ArticleStub
 import de.taz.app.android.api.models.Audio
 import de.taz.app.android.api.models.AudioStub
 import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.GLOBAL_FOLDER
 import de.taz.app.android.api.models.Image
 import de.taz.app.android.api.models.ImageStub
 import de.taz.app.android.api.models.Issue
@@ -22,10 +26,17 @@ import de.taz.app.android.api.models.Moment
 import de.taz.app.android.api.models.MomentStub
 import de.taz.app.android.api.models.Page
 import de.taz.app.android.api.models.PageStub
+import de.taz.app.android.api.models.RESOURCE_FOLDER
 import de.taz.app.android.api.models.ResourceInfo
 import de.taz.app.android.api.models.ResourceInfoStub
 import de.taz.app.android.api.models.Section
 import de.taz.app.android.api.models.SectionStub
+import de.taz.app.android.content.PageThumbnailStore
+import de.taz.app.android.content.THUMBNAIL_DIR
+import de.taz.app.android.content.cache.CacheOperation
+import de.taz.app.android.dataStore.StorageDataStore
+import de.taz.app.android.download.PART_FILE_SUFFIX
+import de.taz.app.android.download.PartialDownload
 import de.taz.app.android.persistence.AppDatabase
 import de.taz.app.android.persistence.join.IssuePageJoin
 import de.taz.app.android.persistence.repository.ArticleRepository
@@ -39,19 +50,57 @@ import de.taz.app.android.persistence.repository.ResourceInfoRepository
 import de.taz.app.android.persistence.repository.SectionRepository
 import de.taz.app.android.sentry.SentryWrapper
 import de.taz.app.android.singletons.AuthHelper
+import de.taz.app.android.singletons.CONVERTED_FONT_FOLDER
+import de.taz.app.android.singletons.ExternalStorageNotAvailableException
 import de.taz.app.android.singletons.StorageService
 import de.taz.app.android.ui.share.ShareArticleDownloadHelper
 import de.taz.app.android.util.Log
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.io.File
 import java.io.IOException
+import java.util.concurrent.TimeUnit
+
+// Files without FileEntry are only deleted if they have not been modified for some time
+private const val SWEEP_FILE_MIN_AGE_MS = 24L * 60 * 60 * 1000
+// Part files of interrupted downloads are kept a while longer, as the download might be resumed
+private const val SWEEP_PART_FILE_MIN_AGE_MS = 7L * 24 * 60 * 60 * 1000
+private val SCRUBBER_CYCLE_INTERVAL_MS = TimeUnit.DAYS.toMillis(SCRUBBER_INTERVAL_DAYS)
+
+/**
+ * The metrics of a single scrub slice
+ * @param reclaimedBytes The number of bytes of the files deleted from disk
+ * @param deletedFiles The number of files deleted from disk
+ * @param isCycleComplete true if this slice completed the current scrub cycle
+ */
+data class ScrubberSliceMetrics(
+    val reclaimedBytes: Long,
+    val deletedFiles: Int,
+    val durationMs: Long,
+    val isCycleComplete: Boolean,
+)
 
 /**
- * The Scrubber must not be called when the App is active, as we assume no concurrent database changes.
- * The general idea is to find orphaned database entries and delete them recursively.
+ * The general idea is to find orphaned database entries and delete them recursively, followed by
+ * a sweep of the files on disk that are not referenced by any FileEntry.
+ * Orphans are determined and deleted while holding the [CacheOperation.registrationLock], so that
+ * no content is downloaded or deleted concurrently. A complete [scrub] must not be called when the
+ * App is active, as it holds the lock for each deletion regardless of waiting operations.
+ * [scrubSlice] may run while the App is in use: it stops as soon as a cache operation is active or
+ * has been started since the orphans of the current phase were determined, as they might be
+ * referenced again by then. The interrupted phase is started over in the next slice.
  * The Scrubber heavily relies on correct foreign key definitions for the database, to prevent
  * entities still being referenced from being deleted - especially when deleting FileEntry data.
  */
 class Scrubber(applicationContext: Context) {
 
+    companion object {
+        // Ensures the worker and the incremental scrubbing never run concurrently
+        private val scrubLock = Mutex()
+    }
+
     private val log by Log
 
     private val appDatabase = AppDatabase.getInstance(applicationContext)
@@ -66,6 +115,17 @@ class Scrubber(applicationContext: Context) {
     private val resourceInfoRepository = ResourceInfoRepository.getInstance(applicationContext)
     private val shareArticleDownloadHelper = ShareArticleDownloadHelper(applicationContext)
     private val authHelper = AuthHelper.getInstance(applicationContext)
+    private val storageDataStore = StorageDataStore.getInstance(applicationContext)
+    private val pageThumbnailStore = PageThumbnailStore.getInstance(applicationContext)
+
+    // State of the current slice
+    private var deadline = Long.MAX_VALUE
+    private var interruptOnCacheOperations = false
+    private var sliceStartTime = 0L
+    private var reclaimedBytes = 0L
+    private var deletedFiles = 0
+    private var sweepCursor = ""
+    private var orphansRegistrationCount = 0L
 
     private val defaultNavDrawerFileName =
         applicationContext.getString(R.string.DEFAULT_NAV_DRAWER_FILE_NAME)
@@ -86,70 +146,191 @@ class Scrubber(applicationContext: Context) {
         shareArticleDownloadHelper.cleanup()
     }
 
-    suspend fun scrub() {
+    /**
+     * Run a complete scrub cycle at once.
+     * Must only be called while the app is not in use, e.g. from the [ScrubberWorker].
+     */
+    suspend fun scrub() = scrubLock.withLock {
         shareArticleDownloadHelper.cleanup()
 
-        val orphanedIssueStubs: List<IssueStub> = getOrphanedIssueStubs()
-        for (issueStub in orphanedIssueStubs) {
-            val issue = issueRepository.get(issueStub.issueKey)
-            issue?.let { deleteIssue(it) }
+        startSlice(deadline = Long.MAX_VALUE, interruptOnCacheOperations = false)
+        sweepCursor = ""
+        runPhases(Phase.entries.first())
+        finishCycle()
+        log.info("Scrubbed: ${finishSlice(isCycleComplete = true)}")
+    }
+
+    /**
+     * Continue the current scrub cycle for at most [durationMs].
+     * The slice stops early if content is being downloaded or deleted meanwhile, as the scrubber
+     * must not interfere with concurrent database changes. The position within the cycle is
+     * persisted, so that the next slice (even after a restart of the app) continues from there.
+     * @return the metrics of this slice or null if no cycle is due
+     */
+    suspend fun scrubSlice(durationMs: Long): ScrubberSliceMetrics? = scrubLock.withLock {
+        val phaseName = storageDataStore.scrubberPhase.get()
+        val startPhase = Phase.entries.find { it.name == phaseName }
+        if (startPhase == null) {
+            val lastCycleCompleted = storageDataStore.scrubberLastCycleCompleted.get()
+            if (System.currentTimeMillis() - lastCycleCompleted < SCRUBBER_CYCLE_INTERVAL_MS) {
+                return null
+            }
         }
 
-        val orphanedSectionStubs: List<SectionStub> = getOrphanedSectionStubs()
-        for (sectionStub in orphanedSectionStubs) {
-            val section = sectionRepository.get(sectionStub.key)
-            section?.let { deleteSection(it) }
+        startSlice(System.currentTimeMillis() + durationMs, interruptOnCacheOperations = true)
+        sweepCursor = storageDataStore.scrubberSweepCursor.get()
+        val interruptedPhase = runPhases(startPhase ?: Phase.entries.first())
+        if (interruptedPhase == null) {
+            finishCycle()
+        } else {
+            storageDataStore.scrubberPhase.set(interruptedPhase.name)
+            storageDataStore.scrubberSweepCursor.set(sweepCursor)
         }
+        finishSlice(isCycleComplete = interruptedPhase == null).also {
+            log.debug("Scrubbed slice: $it")
+        }
+    }
 
-        val orphanedMomentStubs: List<MomentStub> = getOrphanedMomentStubs()
-        for (momentStub in orphanedMomentStubs) {
-            val moment = momentRepository.get(momentStub.issueKey)
-            moment?.let { deleteMoment(it) }
+    /**
+     * Run scrub slices with a pause in between until the current cycle is completed.
+     * Meant to be run on the application scope while the app is open.
+     */
+    suspend fun scrubIncrementally() {
+        try {
+            while (true) {
+                val metrics = scrubSlice(SCRUBBER_SLICE_DURATION_MS) ?: return
+                if (metrics.isCycleComplete) {
+                    log.info("Completed incremental scrub cycle with its last slice: $metrics")
+                    return
+                }
+                delay(SCRUBBER_SLICE_PAUSE_MS)
+            }
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: Exception) {
+            val message = "Incremental scrubber failed"
+            log.warn(message, e)
+            SentryWrapper.captureMessage(message)
         }
+    }
 
-        val orphanedFrontPageJoins: List<IssuePageJoin> = getOrphanedFrontPageJoins()
-        for (frontPageJoin in orphanedFrontPageJoins) {
-            deleteFrontPage(frontPageJoin)
+    // region slices
+    private fun startSlice(deadline: Long, interruptOnCacheOperations: Boolean) {
+        this.deadline = deadline
+        this.interruptOnCacheOperations = interruptOnCacheOperations
+        sliceStartTime = System.currentTimeMillis()
+        reclaimedBytes = 0L
+        deletedFiles = 0
+    }
+
+    private fun finishSlice(isCycleComplete: Boolean) = ScrubberSliceMetrics(
+        reclaimedBytes = reclaimedBytes,
+        deletedFiles = deletedFiles,
+        durationMs = System.currentTimeMillis() - sliceStartTime,
+        isCycleComplete = isCycleComplete,
+    )
+
+    private suspend fun finishCycle() {
+        storageDataStore.scrubberPhase.set("")
+        storageDataStore.scrubberSweepCursor.set("")
+        storageDataStore.scrubberLastCycleCompleted.set(System.currentTimeMillis())
+    }
+
+    private fun isInterrupted(): Boolean {
+        return System.currentTimeMillis() >= deadline ||
+                (interruptOnCacheOperations && CacheOperation.activeCacheOperations.isNotEmpty())
+    }
+
+    /**
+     * A cache operation that started after the orphans were determined might reference them again.
+     */
+    private fun isOrphanListOutdated(): Boolean {
+        return interruptOnCacheOperations && CacheOperation.registrationCount != orphansRegistrationCount
+    }
+
+    /**
+     * Run all phases beginning with [startPhase].
+     * @return the phase that was interrupted or null if all phases are completed
+     */
+    private suspend fun runPhases(startPhase: Phase): Phase? {
+        for (phase in Phase.entries.drop(startPhase.ordinal)) {
+            if (!runPhase(phase)) {
+                return phase
+            }
         }
+        return null
+    }
 
-        val orphanedPages: List<Page> = getOrphanedPages()
-        for (page in orphanedPages) {
-            deletePage(page)
+    /**
+     * @return false if the phase was interrupted before all its orphans were deleted
+     */
+    private suspend fun runPhase(phase: Phase): Boolean = when (phase) {
+        Phase.ISSUES -> scrubEach({ getOrphanedIssueStubs() }) { issueStub ->
+            issueRepository.get(issueStub.issueKey)?.let { deleteIssue(it) }
         }
 
-        val orphanedArticleStubs: List<ArticleStub> = getOrphanedArticleStubs()
-        for (articleStub in orphanedArticleStubs) {
-            val article = articleRepository.get(articleStub.articleFileName)
-            article?.let { deleteArticle(it) }
+        Phase.SECTIONS -> scrubEach({ getOrphanedSectionStubs() }) { sectionStub ->
+            sectionRepository.get(sectionStub.key)?.let { deleteSection(it) }
         }
 
-        // ResourceInfo
-        val orphanedResourceInfo: List<ResourceInfoStub> = getOrphanedResourceInfoStubs()
-        for (resourceInfoStub in orphanedResourceInfo) {
-            val resourceInfo: ResourceInfo =
-                resourceInfoRepository.resourceInfoStubToResourceInfo(resourceInfoStub)
-            deleteResourceInfo(resourceInfo)
+        Phase.MOMENTS -> scrubEach({ getOrphanedMomentStubs() }) { momentStub ->
+            momentRepository.get(momentStub.issueKey)?.let { deleteMoment(it) }
         }
 
-        // Must be called after all types that might reference an Image (Article, Section, Moment)
-        val orphanedImages: List<Image> = getOrphanedImages()
-        for (image in orphanedImages) {
-            deleteImage(image)
+        Phase.FRONT_PAGES -> scrubEach({ getOrphanedFrontPageJoins() }) { deleteFrontPage(it) }
+
+        Phase.PAGES -> scrubEach({ getOrphanedPages() }) { deletePage(it) }
+
+        Phase.ARTICLES -> scrubEach({ getOrphanedArticleStubs() }) { articleStub ->
+            articleRepository.get(articleStub.articleFileName)?.let { deleteArticle(it) }
         }
 
+        Phase.RESOURCE_INFOS -> scrubEach({ getOrphanedResourceInfoStubs() }) { resourceInfoStub ->
+            deleteResourceInfo(resourceInfoRepository.resourceInfoStubToResourceInfo(resourceInfoStub))
+        }
+
+        // Must be called after all types that might reference an Image (Article, Section, Moment)
+        Phase.IMAGES -> scrubEach({ getOrphanedImages() }) { deleteImage(it) }
+
         // Must be called after all types that might reference an Audio (Article, Section)
-        val orphanedAudioStubs: List<AudioStub> = getOrphanedAudioStubs()
-        for (audioStub in orphanedAudioStubs) {
-            val audio = audioRepository.get(audioStub.fileName)
-            audio?.let { deleteAudio(it) }
+        Phase.AUDIOS -> scrubEach({ getOrphanedAudioStubs() }) { audioStub ->
+            audioRepository.get(audioStub.fileName)?.let { deleteAudio(it) }
         }
 
         // Must be called after all types that might reference an FileEntry (*)
-        val orphanedFileEntries: List<FileEntry> = getOrphanedFileEntries()
-        for (fileEntry in orphanedFileEntries) {
-            deleteFile(fileEntry)
+        Phase.FILE_ENTRIES -> scrubEach({ getOrphanedFileEntries() }) { deleteFile(it) }
+
+        // Must be called after all FileEntries that are going to be deleted are gone
+        Phase.DISK_SWEEP -> sweepDisk()
+    }
+
+    /**
+     * Determine the orphans with [getOrphans] and [delete] each of them while no cache operation
+     * can start.
+     * @return false if the slice was interrupted before all orphans were deleted
+     */
+    private suspend fun <T> scrubEach(
+        getOrphans: suspend () -> List<T>,
+        delete: suspend (T) -> Unit
+    ): Boolean {
+        val orphans = CacheOperation.registrationLock.withLock {
+            if (isInterrupted()) {
+                return false
+            }
+            orphansRegistrationCount = CacheOperation.registrationCount
+            getOrphans()
         }
+        for (orphan in orphans) {
+            CacheOperation.registrationLock.withLock {
+                if (isInterrupted() || isOrphanListOutdated()) {
+                    return false
+                }
+                delete(orphan)
+            }
+        }
+        return true
     }
+    // endregion
 
     private suspend fun getOrphanedIssueStubs(): List<IssueStub> {
         val allIssueStubs = appDatabase.issueDao().getAllIssueStubs()
@@ -407,6 +588,10 @@ class Scrubber(applicationContext: Context) {
                 fileEntryRepository.delete(fileEntry)
                 deleteFileFromDisk(fileEntry)
             }
+            if (fileEntry.dateDownload != null && fileEntry.storageLocation != StorageLocation.NOT_STORED) {
+                reclaimedBytes += fileEntry.size
+                deletedFiles++
+            }
         } catch (e: SQLiteConstraintException) {
             log.warn("Could not delete FileEntry Metadata: $fileEntry", e)
 
@@ -428,6 +613,136 @@ class Scrubber(applicationContext: Context) {
         }
     }
 
+    // region disk sweep
+    /**
+     * Delete the files within the folders managed by the app which do not belong to any
+     * [FileEntry] stored at their [StorageLocation]. These are left behind for example by
+     * interrupted storage migrations or deletions, and by downloads that were never resumed.
+     * The folders are swept in order and the last swept folder is kept as [sweepCursor].
+     * @return false if the sweep was interrupted
+     */
+    private suspend fun sweepDisk(): Boolean {
+        val feedNames = appDatabase.feedDao().getAllNames()
+        // The storage locations must be swept in the same order as the cursor is compared
+        for (storageLocation in listOf(StorageLocation.EXTERNAL, StorageLocation.INTERNAL)) {
+            val root = try {
+                storageService.getDirForLocation(storageLocation)
+            } catch (e: ExternalStorageNotAvailableException) {
+                null
+            } ?: continue
+
+            val folders = getSweepFolders(root, feedNames)
+                .filter { "$storageLocation/$it" > sweepCursor }
+            for (folder in folders) {
+                if (isInterrupted()) {
+                    return false
+                }
+                sweepFolder(root, folder, storageLocation)
+                sweepCursor = "$storageLocation/$folder"
+            }
+        }
+        return true
+    }
+
+    /**
+     * Get the paths of all folders relative to [root] in which [StorageService] stores files:
+     * the global and resources folders, the folder of each issue and the page thumbnails.
+     */
+    private fun getSweepFolders(root: File, feedNames: List<String>): List<String> {
+        val issueFolders = feedNames.flatMap { feedName ->
+            File(root, feedName).listFiles { file -> file.isDirectory }.orEmpty().flatMap { dateFolder ->
+                dateFolder.listFiles { file -> file.isDirectory }.orEmpty().map { statusFolder ->
+                    "$feedName/${dateFolder.name}/${statusFolder.name}"
+                }
+            }
+        }
+        return (listOf(GLOBAL_FOLDER, RESOURCE_FOLDER, THUMBNAIL_DIR) + issueFolders).sorted()
+    }
+
+    private suspend fun sweepFolder(root: File, folder: String, storageLocation: StorageLocation) {
+        if (folder == THUMBNAIL_DIR) {
+            sweepThumbnails(storageLocation)
+            return
+        }
+
+        val now = System.currentTimeMillis()
+        // The fonts converted by the FontHelper have no FileEntry
+        val convertedFontFolder = File(root, "$RESOURCE_FOLDER/$CONVERTED_FONT_FOLDER")
+        val files = File(root, folder).walkTopDown()
+            .onEnter { it != convertedFontFolder }
+            .filter { it.isFile && it.name !in ignoreFileEntryNames }
+            .toList()
+        val paths = files.map { it.relativeTo(root).path }
+        val existingPaths = fileEntryRepository.getExistingPaths(storageLocation, paths)
+
+        files.zip(paths).forEach { (file, path) ->
+            val minAge = if (path.endsWith(PART_FILE_SUFFIX)) {
+                SWEEP_PART_FILE_MIN_AGE_MS
+            } else {
+                SWEEP_FILE_MIN_AGE_MS
+            }
+            // Recently written files might belong to FileEntries which are just being saved
+            if (path !in existingPaths && now - file.lastModified() > minAge) {
+                val size = file.length()
+                if (file.delete()) {
+                    if (path.endsWith(PART_FILE_SUFFIX)) {
+                        PartialDownload.dropDigest(file)
+                    }
+                    reclaimedBytes += size
+                    deletedFiles++
+                } else {
+                    log.warn("Could not delete unreferenced file: ${file.path}")
+                }
+            }
+        }
+
+        if (folder != GLOBAL_FOLDER && folder != RESOURCE_FOLDER) {
+            // Only deletes the issue folder if it is empty
+            File(root, folder).delete()
+        }
+    }
+
+    /**
+     * Delete the page thumbnails whose page PDF has no [FileEntry] stored at [storageLocation],
+     * as the thumbnails are only deleted together with their PDF by the [de.taz.app.android.content.ContentDeletion].
+     */
+    private suspend fun sweepThumbnails(storageLocation: StorageLocation) {
+        val now = System.currentTimeMillis()
+        val filesBySha256 = pageThumbnailStore.getThumbnailFilesBySha256(storageLocation)
+        val existingSha256s =
+            fileEntryRepository.getExistingSha256s(storageLocation, filesBySha256.keys.toList())
+
+        filesBySha256
+            .filterKeys { it !in existingSha256s }
+            .values.flatten()
+            // Recently written thumbnails might belong to PDFs which are just being saved
+            .filter { now - it.lastModified() > SWEEP_FILE_MIN_AGE_MS }
+            .forEach { file ->
+                val size = file.length()
+                if (file.delete()) {
+                    reclaimedBytes += size
+                    deletedFiles++
+                } else {
+                    log.warn("Could not delete unreferenced thumbnail: ${file.path}")
+                }
+            }
+    }
+    // endregion
+
+    private enum class Phase {
+        ISSUES,
+        SECTIONS,
+        MOMENTS,
+        FRONT_PAGES,
+        PAGES,
+        ARTICLES,
+        RESOURCE_INFOS,
+        IMAGES,
+        AUDIOS,
+        FILE_ENTRIES,
+        DISK_SWEEP,
+    }
+
     private class FileDeletionException(message: String, cause: Throwable) :
         Exception(message, cause)
 }
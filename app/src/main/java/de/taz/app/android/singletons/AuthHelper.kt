@@ -17,6 +17,7 @@ import de.taz.app.android.api.models.IssueStatus
 import de.taz.app.android.content.ContentService
 import de.taz.app.android.dataStore.MappingDataStoreEntry
 import de.taz.app.android.dataStore.SimpleDataStoreEntry
+import de.taz.app.android.dataStore.SnapshotDataStoreEntry
 import de.taz.app.android.firebase.FirebaseHelper
 import de.taz.app.android.persistence.repository.BookmarkRepository
 import de.taz.app.android.persistence.repository.IssuePublication
@@ -119,7 +120,8 @@ class AuthHelper @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) const
         { authStatus -> authStatus.name }, { string -> AuthStatus.valueOf(string) }
     )
 
-    val token = SimpleDataStoreEntry(
+    // Read for every API request, thus it is served from the snapshot
+    val token = SnapshotDataStoreEntry(
         dataStore, stringPreferencesKey(PREFERENCES_AUTH_TOKEN), ""
     )
 
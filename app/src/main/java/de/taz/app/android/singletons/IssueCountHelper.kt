@@ -1,11 +1,15 @@
 package de.taz.app.android.singletons
 
 import android.content.Context
+import android.os.StatFs
 import androidx.annotation.VisibleForTesting
 import de.taz.app.android.content.ContentService
+import de.taz.app.android.dataStore.KEEP_ISSUES_MINIMUM
 import de.taz.app.android.dataStore.StorageDataStore
+import de.taz.app.android.persistence.repository.FileEntryRepository
 import de.taz.app.android.persistence.repository.IssuePublication
 import de.taz.app.android.persistence.repository.IssueRepository
+import de.taz.app.android.util.Log
 import de.taz.app.android.util.SingletonHolder
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
@@ -14,8 +18,14 @@ import kotlinx.coroutines.launch
 import kotlinx.coroutines.sync.Mutex
 import kotlinx.coroutines.sync.withLock
 
+// Free space that has to remain on the storage. It is a fixed amount regardless of the total
+// storage size, so that the issues are only evicted by size when the storage is actually full.
+private const val MIN_FREE_BYTES = 500L * 1024 * 1024
+
 /**
- * Singleton ensuring we only have the defined maximal number of issues downloaded
+ * Singleton ensuring we only have the defined maximal number of issues downloaded and the
+ * downloaded issues do not fill up the storage.
+ * The issues to delete are chosen by the [IssueEvictionPlanner].
  */
 class IssueCountHelper @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE) constructor(
     applicationContext: Context,
@@ -23,9 +33,15 @@ class IssueCountHelper @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
 
     companion object : SingletonHolder<IssueCountHelper, Context>(::IssueCountHelper)
 
+    private val log by Log
+
     private val contentService = ContentService.getInstance(applicationContext)
+    private val fileEntryRepository = FileEntryRepository.getInstance(applicationContext)
     private val issueRepository = IssueRepository.getInstance(applicationContext)
     private val storageDataStore = StorageDataStore.getInstance(applicationContext)
+    private val storageService = StorageService.getInstance(applicationContext)
+
+    private val evictionPlanner = IssueEvictionPlanner(KEEP_ISSUES_MINIMUM)
 
     private val keepIssuesNumberFlow = storageDataStore.keepIssuesNumber.asFlow()
     private val downloadedIssueCountFlow = issueRepository.getDownloadedIssuesCountFlow()
@@ -43,14 +59,42 @@ class IssueCountHelper @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
     }
 
     /**
-     * Check whether there are more issues downloaded then desired and delete one issue if this is
-     * the case
+     * Check whether there are more issues downloaded then desired or the downloaded issues use
+     * more storage than available and delete all issues exceeding the limits if this is the case
      */
     private suspend fun ensureIssueCount(max: Int, downloaded: Int) = ensureCountLock.withLock {
-        if (downloaded > max) {
-            issueRepository.getIssueStubToDelete()?.let {
-                contentService.deleteIssue(IssuePublication(it.issueKey))
-            }
+        val issues = issueRepository.getDownloadedIssueStorageInfos()
+        val folderSizes = fileEntryRepository.getDownloadedIssueFolderSizes()
+        val sizes = issues.associateWith {
+            folderSizes[StorageService.determineIssueFolder(it.issueKey)] ?: 0L
+        }
+        // Pinned issues do not count towards the limits of the eviction planner
+        val maxBytes = getIssueByteBudget(sizes.filterKeys { !it.isPinned }.values.sum())
+
+        val toEvict = evictionPlanner.plan(issues, sizes, max, maxBytes)
+        if (toEvict.isNotEmpty()) {
+            log.info("Deleting ${toEvict.size} of $downloaded issues to keep $max issues within $maxBytes bytes")
+        }
+        toEvict.forEach {
+            contentService.deleteIssue(IssuePublication(it.issueKey))
         }
     }
+
+    /**
+     * The number of bytes the issues which are not pinned may use: what they use right now plus
+     * the free space of the current storage location, except the [MIN_FREE_BYTES] that have to
+     * remain free.
+     * The desired number of issues stays the primary limit: unless other apps fill the storage,
+     * the budget is larger than the issues use.
+     */
+    private suspend fun getIssueByteBudget(issueBytes: Long): Long {
+        val storageDir = try {
+            storageService.getDirForLocation(storageDataStore.storageLocation.get())
+        } catch (e: ExternalStorageNotAvailableException) {
+            null
+        } ?: return Long.MAX_VALUE
+
+        val statFs = StatFs(storageDir.path)
+        return issueBytes + statFs.availableBytes - MIN_FREE_BYTES
+    }
 }
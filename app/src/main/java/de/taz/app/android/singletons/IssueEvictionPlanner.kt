@@ -0,0 +1,64 @@
+package de.taz.app.android.singletons
+
+import de.taz.app.android.api.models.IssueStorageInfo
+
+/**
+ * Decides which downloaded issues have to be deleted to stay within the desired number of issues
+ * and the storage budget.
+ *
+ * Issues are evicted least recently used first, where the use of an issue is its last view or
+ * its download, whichever happened later. Issues containing bookmarked articles are pinned: they
+ * are never evicted and do not count towards the limits, so that the other issues are kept within
+ * the limits on their own. The most recently viewed issue is never evicted either as it might be
+ * read right now, and neither is the last [minCount] issues which are not pinned.
+ */
+class IssueEvictionPlanner(
+    private val minCount: Int,
+) {
+
+    /**
+     * Compute all issues to evict in one pass.
+     * @param issues The downloaded issues
+     * @param sizes The number of bytes used by each of the [issues]
+     * @param maxCount The maximum number of issues to keep, not counting the pinned ones
+     * @param maxBytes The maximum number of bytes all issues which are not pinned may use together
+     * @return The issues to evict in the order they should be deleted
+     */
+    fun plan(
+        issues: List<IssueStorageInfo>,
+        sizes: Map<IssueStorageInfo, Long>,
+        maxCount: Int,
+        maxBytes: Long,
+    ): List<IssueStorageInfo> {
+        val unpinnedIssues = issues.filterNot { it.isPinned }
+        var count = unpinnedIssues.size
+        var bytes = unpinnedIssues.sumOf { sizes[it] ?: 0L }
+        if (count <= maxCount && bytes <= maxBytes) {
+            return emptyList()
+        }
+
+        val lastViewed = issues
+            .filter { it.lastViewedDate != null }
+            .maxByOrNull { requireNotNull(it.lastViewedDate) }
+
+        val candidates = unpinnedIssues
+            .filter { it !== lastViewed }
+            .sortedBy { lastUsed(it) }
+
+        val evicted = mutableListOf<IssueStorageInfo>()
+        for (candidate in candidates) {
+            if (count <= minCount || (count <= maxCount && bytes <= maxBytes)) {
+                break
+            }
+            evicted.add(candidate)
+            count--
+            bytes -= sizes[candidate] ?: 0L
+        }
+        return evicted
+    }
+
+    private fun lastUsed(issue: IssueStorageInfo): Long {
+        val lastViewed = issue.lastViewedDate?.time ?: 0L
+        return maxOf(lastViewed, issue.dateDownload.time)
+    }
+}
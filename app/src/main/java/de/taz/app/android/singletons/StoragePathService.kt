@@ -73,6 +73,21 @@ class StoragePathService private constructor(private val applicationContext: Con
         }
     }
 
+    /**
+     * Determine the base urls of all [fileEntries] of a [collection].
+     * The base url only depends on the [StorageType], so it is resolved once per [StorageType]
+     * instead of once per file.
+     * @return A map of each [StorageType] occurring in [fileEntries] to its base url
+     */
+    suspend fun determineBaseUrls(
+        fileEntries: List<FileEntry>,
+        collection: DownloadableCollection? = null,
+    ): Map<StorageType, String> {
+        return fileEntries
+            .distinctBy { it.storageType }
+            .associate { it.storageType to determineBaseUrl(it, collection) }
+    }
+
     /**
      * Determine the base url of a [FileEntry].
      */
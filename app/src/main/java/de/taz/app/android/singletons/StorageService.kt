@@ -2,6 +2,7 @@ package de.taz.app.android.singletons
 
 import android.content.Context
 import android.os.Environment
+import androidx.annotation.VisibleForTesting
 import de.taz.app.android.api.interfaces.FileEntryOperations
 import de.taz.app.android.api.interfaces.StorageLocation
 import de.taz.app.android.api.models.FileEntry
@@ -10,6 +11,7 @@ import de.taz.app.android.api.models.IssueStub
 import de.taz.app.android.api.models.RESOURCE_FOLDER
 import de.taz.app.android.api.models.StorageType
 import de.taz.app.android.dataStore.StorageDataStore
+import de.taz.app.android.monkey.toHex
 import de.taz.app.android.persistence.repository.FileEntryRepository
 import de.taz.app.android.persistence.repository.IssueKey
 import de.taz.app.android.persistence.repository.IssueRepository
@@ -18,6 +20,12 @@ import de.taz.app.android.util.SingletonHolder
 import io.ktor.utils.io.ByteReadChannel
 import io.ktor.utils.io.readAvailable
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
 import kotlinx.coroutines.withContext
 import java.io.BufferedReader
 import java.io.File
@@ -31,6 +39,7 @@ import kotlin.io.path.listDirectoryEntries
 import kotlin.io.path.name
 
 const val COPY_BUFFER_SIZE = 100 * 1024 // 100kiB
+const val INTEGRITY_CHECK_PARALLELISM = 4
 
 interface Storable {
     val name: String
@@ -51,12 +60,16 @@ class StorageService private constructor(private val applicationContext: Context
                     if (issueKey == null) {
                         throw IllegalStateException("Determining the file path of an issue file requires issueKey to be non-null")
                     }
-                    "${issueKey.feedName}/${issueKey.date}/${issueKey.status}"
+                    determineIssueFolder(issueKey)
                 }
             }
             return "${folder}/${name}"
         }
 
+        fun determineIssueFolder(issueKey: IssueKey): String {
+            return "${issueKey.feedName}/${issueKey.date}/${issueKey.status}"
+        }
+
         fun determineFilePath(storable: Storable, issueKey: IssueKey?): String {
             return determineFilePath(storable.storageType, storable.name, issueKey)
         }
@@ -65,6 +78,15 @@ class StorageService private constructor(private val applicationContext: Context
     private val fileEntryRepository = FileEntryRepository.getInstance(applicationContext)
     private val issueRepository = IssueRepository.getInstance(applicationContext)
 
+    // Reading files is IO bound, but checking too many files at once only thrashes the storage
+    @VisibleForTesting(otherwise = VisibleForTesting.PRIVATE)
+    val integrityCheckSemaphore = Semaphore(INTEGRITY_CHECK_PARALLELISM)
+
+    // Each thread hashing files reuses its own buffer instead of allocating one per file
+    private val hashBuffer = object : ThreadLocal<ByteArray>() {
+        override fun initialValue() = ByteArray(COPY_BUFFER_SIZE)
+    }
+
     private val filesDir by lazy { applicationContext.filesDir }
     fun getInternalFilesDir(): File = filesDir
 
@@ -166,8 +188,7 @@ class StorageService private constructor(private val applicationContext: Context
             } while (read > 0)
         }
 
-        val digest = hash.digest()
-        return digest.fold("", { str, it -> str + "%02x".format(it) })
+        return hash.digest().toHex()
     }
 
     suspend fun deleteFile(fileEntry: FileEntry) {
@@ -244,11 +265,22 @@ class StorageService private constructor(private val applicationContext: Context
         }
     }
 
-    suspend fun getSHA256(file: File): String = withContext(Dispatchers.Default) {
-        val bytes = file.readBytes()
+    /**
+     * Calculate the SHA-256 of [file] by streaming it through a reused buffer, so that even large
+     * PDFs or audio files are never loaded into memory at once.
+     */
+    suspend fun getSHA256(file: File): String = withContext(Dispatchers.IO) {
         val md = MessageDigest.getInstance("SHA-256")
-        val digest = md.digest(bytes)
-        return@withContext digest.fold("", { str, it -> str + "%02x".format(it) })
+        val buffer = hashBuffer.get()!!
+        file.inputStream().use { input ->
+            while (true) {
+                ensureActive()
+                val read = input.read(buffer)
+                if (read < 0) break
+                md.update(buffer, 0, read)
+            }
+        }
+        return@withContext md.digest().toHex()
     }
 
     suspend fun ensureFileIntegrity(fileEntry: FileEntry, checksum: String? = null): Boolean =
@@ -278,8 +310,23 @@ class StorageService private constructor(private val applicationContext: Context
     suspend fun getNonExistentFilesFromList(files: List<FileEntry>): List<FileEntry> =
         files.filter { !ensureFileExists(it) }
 
-    suspend fun getCorruptedFilesFromList(files: List<FileEntry>): List<FileEntry> =
-        files.filter { !ensureFileIntegrity(it, it.sha256) }
+    /**
+     * Check the integrity of all [files] in parallel, with at most [INTEGRITY_CHECK_PARALLELISM]
+     * files being read at the same time.
+     * The check is cancelled together with the calling coroutine.
+     * @param files The [FileEntry]s to check
+     * @return The [FileEntry]s that are missing or do not match their sha256
+     */
+    suspend fun getCorruptedFilesFromList(files: List<FileEntry>): List<FileEntry> = coroutineScope {
+        files.map { fileEntry ->
+            async {
+                val isCorrupted = integrityCheckSemaphore.withPermit {
+                    !ensureFileIntegrity(fileEntry, fileEntry.sha256)
+                }
+                fileEntry.takeIf { isCorrupted }
+            }
+        }.awaitAll().filterNotNull()
+    }
 
     suspend fun ensureFileListExists(files: List<FileEntry>): Boolean {
         return getNonExistentFilesFromList(files).isEmpty()
@@ -0,0 +1,153 @@
+package de.taz.app.android.ui.home.page
+
+import android.content.Context
+import de.taz.app.android.api.ApiService
+import de.taz.app.android.api.ConnectivityException
+import de.taz.app.android.api.models.Feed
+import de.taz.app.android.persistence.repository.AbstractCoverPublication
+import de.taz.app.android.persistence.repository.FrontpagePublication
+import de.taz.app.android.persistence.repository.MomentRepository
+import de.taz.app.android.persistence.repository.PageRepository
+import de.taz.app.android.simpleDateFormat
+import de.taz.app.android.singletons.AuthHelper
+import de.taz.app.android.util.Log
+import de.taz.app.android.util.getIndexOfDate
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Deferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.currentCoroutineContext
+import kotlinx.coroutines.ensureActive
+
+// Number of consecutive covers whose metadata is fetched with a single request
+private const val PREFETCH_WINDOW_SIZE = 10
+
+/**
+ * Fetches the metadata of the covers of a [Feed] in windows, so that flinging through the cover
+ * flow or the archive does not cost one request per cover.
+ *
+ * The publication dates of the [feed] are split into windows of [PREFETCH_WINDOW_SIZE]. When a
+ * cover of a window is requested for the first time, the moments (or front pages) of all dates of
+ * that window missing in the database are fetched with a single request and saved within a single
+ * transaction. Covers of the same window wait for that request instead of querying on their own.
+ *
+ * @param coroutineScope The scope to run the requests in, they are shared across all covers
+ */
+class CoverMetadataPrefetcher(
+    applicationContext: Context,
+    private val feed: Feed,
+    private val coroutineScope: CoroutineScope,
+) {
+    private val log by Log
+
+    private val apiService = ApiService.getInstance(applicationContext)
+    private val authHelper = AuthHelper.getInstance(applicationContext)
+    private val momentRepository = MomentRepository.getInstance(applicationContext)
+    private val pageRepository = PageRepository.getInstance(applicationContext)
+
+    // The prefetch of each window, separated by moments and front pages
+    private val windows = HashMap<Pair<Int, Boolean>, Deferred<Boolean>>()
+
+    /**
+     * Suspend until the window containing [coverPublication] has been prefetched.
+     * Failures are only logged: the metadata of the cover then has to be downloaded on its own.
+     */
+    suspend fun prefetch(coverPublication: AbstractCoverPublication) {
+        val date = simpleDateFormat.parse(coverPublication.date) ?: return
+        val position = feed.publicationDates.getIndexOfDate(date)
+        if (position < 0) {
+            return
+        }
+        val isFrontPage = coverPublication is FrontpagePublication
+        val windowKey = position / PREFETCH_WINDOW_SIZE to isFrontPage
+
+        val prefetch = synchronized(windows) {
+            windows.getOrPut(windowKey) {
+                coroutineScope.async(Dispatchers.IO) {
+                    prefetchWindow(windowKey.first, isFrontPage)
+                }
+            }
+        }
+        val isPrefetched = try {
+            prefetch.await()
+        } catch (e: CancellationException) {
+            // The prefetch was cancelled: the cover falls back to its own download unless it was cancelled too
+            currentCoroutineContext().ensureActive()
+            false
+        }
+        if (!isPrefetched) {
+            // Allow the next cover of this window to try again
+            synchronized(windows) {
+                if (windows[windowKey] === prefetch) {
+                    windows.remove(windowKey)
+                }
+            }
+        }
+    }
+
+    /**
+     * Fetch and save the missing metadata of the window with [windowIndex].
+     * @return false if the metadata could not be fetched or saved
+     */
+    private suspend fun prefetchWindow(windowIndex: Int, isFrontPage: Boolean): Boolean {
+        return try {
+            prefetchMissing(windowIndex, isFrontPage)
+            true
+        } catch (e: CancellationException) {
+            throw e
+        } catch (e: ConnectivityException) {
+            log.warn("Could not prefetch the cover metadata of ${feed.name} in window $windowIndex", e)
+            false
+        } catch (e: Exception) {
+            // The prefetch is only an optimization and must never break the loading of the covers
+            log.error("Prefetching the cover metadata of ${feed.name} in window $windowIndex failed", e)
+            false
+        }
+    }
+
+    private suspend fun prefetchMissing(windowIndex: Int, isFrontPage: Boolean) {
+        val start = windowIndex * PREFETCH_WINDOW_SIZE
+        val end = minOf(start + PREFETCH_WINDOW_SIZE, feed.publicationDates.size)
+        val dates = feed.publicationDates
+            .subList(start, end)
+            .map { simpleDateFormat.format(it.date) }
+
+        val minStatus = authHelper.getMinStatus()
+        val cachedDates = if (isFrontPage) {
+            pageRepository.getFrontPageIssueKeys(feed.name, dates)
+                .filter { it.status >= minStatus }
+                .map { it.date }
+        } else {
+            momentRepository.getStubs(feed.name, dates)
+                .filter { it.issueStatus >= minStatus }
+                .map { it.issueDate }
+        }.toSet()
+
+        // The publication dates are sorted descending and the API returns the issues published
+        // at or before the requested date, so query from the newest missing date on
+        val firstMissingIndex = dates.indexOfFirst { it !in cachedDates }
+        if (firstMissingIndex < 0 || dates.count { it !in cachedDates } < 2) {
+            // A single missing cover is fetched by the cover itself
+            return
+        }
+        val firstMissingDate = feed.publicationDates[start + firstMissingIndex].date
+        val limit = dates.size - firstMissingIndex
+
+        if (isFrontPage) {
+            val frontPages = apiService
+                .getFrontPagesByFeedAndDate(feed.name, firstMissingDate, limit)
+                .filter { (_, issueKey) ->
+                    issueKey.status >= minStatus && issueKey.date in dates && issueKey.date !in cachedDates
+                }
+            pageRepository.saveFrontPages(frontPages)
+        } else {
+            val moments = apiService
+                .getMomentsByFeedAndDate(feed.name, firstMissingDate, limit)
+                .filter {
+                    it.issueStatus >= minStatus && it.issueDate in dates && it.issueDate !in cachedDates
+                }
+            momentRepository.save(moments)
+        }
+    }
+}
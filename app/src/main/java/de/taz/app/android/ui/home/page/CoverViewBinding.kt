@@ -42,6 +42,7 @@ class CoverViewBinding(
     private val glideRequestManager: RequestManager,
     private val onMomentViewActionListener: CoverViewActionListener,
     private val observeDownloads: Boolean = true,
+    private val coverMetadataPrefetcher: CoverMetadataPrefetcher? = null,
 ) {
     private var boundView: CoverView? = null
     private lateinit var coverViewData: CoverViewData
@@ -56,6 +57,9 @@ class CoverViewBinding(
     private var downloadObserver: DownloadObserver? = null
 
     private suspend fun prepareData(): CoverViewData {
+        // fetch the metadata of the surrounding covers with a single request
+        coverMetadataPrefetcher?.prefetch(coverPublication)
+
         // ensure metadata downloaded
         val download = contentService.downloadMetadata(
             coverPublication,
@@ -53,6 +53,12 @@ abstract class IssueFeedAdapter(
 
     private val log by Log
 
+    private val coverMetadataPrefetcher = CoverMetadataPrefetcher(
+        fragment.requireContext().applicationContext,
+        feed,
+        fragment.lifecycleScope
+    )
+
     init {
         setHasStableIds(true)
     }
@@ -130,6 +136,7 @@ abstract class IssueFeedAdapter(
                     glideRequestManager,
                     onMomentViewActionListener,
                     observeDownloads,
+                    coverMetadataPrefetcher,
                 )
                 binder?.prepareDataAndBind(itemView.findViewById(R.id.fragment_cover_flow_item))
             }
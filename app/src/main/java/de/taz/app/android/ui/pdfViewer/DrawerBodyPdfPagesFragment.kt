@@ -31,6 +31,8 @@ import de.taz.app.android.coachMarks.CoachMarkDialog
 import de.taz.app.android.coachMarks.PdfDrawerSwitchViewToListCoachMark
 import de.taz.app.android.coachMarks.PdfDrawerPageCoachMark
 import de.taz.app.android.coachMarks.PdfDrawerPlayAllCoachMark
+import de.taz.app.android.content.PageThumbnailSize
+import de.taz.app.android.content.PageThumbnailStore
 import de.taz.app.android.databinding.FragmentDrawerBodyPdfPagesBinding
 import de.taz.app.android.monkey.getHideViewOnScrollBehavior
 import de.taz.app.android.monkey.setDefaultVerticalInsets
@@ -62,6 +64,7 @@ class DrawerBodyPdfPagesFragment : ViewBindingFragment<FragmentDrawerBodyPdfPage
     private val drawerAudioPlayerViewModel: DrawerAudioPlayerViewModel by viewModels()
 
     private lateinit var storageService: StorageService
+    private lateinit var pageThumbnailStore: PageThumbnailStore
     private lateinit var tracker: Tracker
     private lateinit var toastHelper: ToastHelper
     private lateinit var adapter: PdfDrawerRecyclerViewAdapter
@@ -70,6 +73,7 @@ class DrawerBodyPdfPagesFragment : ViewBindingFragment<FragmentDrawerBodyPdfPage
     override fun onAttach(context: Context) {
         super.onAttach(context)
         storageService = StorageService.getInstance(context.applicationContext)
+        pageThumbnailStore = PageThumbnailStore.getInstance(context.applicationContext)
         tracker = Tracker.getInstance(context.applicationContext)
         toastHelper = ToastHelper.getInstance(context.applicationContext)
     }
@@ -155,7 +159,7 @@ class DrawerBodyPdfPagesFragment : ViewBindingFragment<FragmentDrawerBodyPdfPage
         }
     }
 
-    private fun initDrawAdapter(items: List<Page>) {
+    private suspend fun initDrawAdapter(items: List<Page>) {
         if (items.isNotEmpty()) {
             // Setup a gridManager which takes 2 columns for panorama pages
             val gridLayoutManager = GridLayoutManager(requireContext(), 2)
@@ -177,9 +181,13 @@ class DrawerBodyPdfPagesFragment : ViewBindingFragment<FragmentDrawerBodyPdfPage
                 }
 
                 // Setup drawer header (front page and date)
+                val frontPagePdf = items.first().pagePdf
                 Glide
                     .with(requireContext())
-                    .load(storageService.getAbsolutePath(items.first().pagePdf))
+                    .load(
+                        pageThumbnailStore.getThumbnail(frontPagePdf, PageThumbnailSize.MEDIUM.width)
+                            ?: storageService.getAbsolutePath(frontPagePdf)
+                    )
                     .into(activityPdfDrawerFrontPage)
 
                 activityPdfDrawerFrontPage.setOnClickListener {
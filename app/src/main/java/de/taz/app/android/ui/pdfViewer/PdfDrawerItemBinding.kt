@@ -11,10 +11,12 @@ import com.bumptech.glide.signature.ObjectKey
 import de.taz.app.android.R
 import de.taz.app.android.api.models.FileEntry
 import de.taz.app.android.api.models.PageType
+import de.taz.app.android.content.PageThumbnailStore
 import de.taz.app.android.singletons.StorageService
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 data class PdfDrawerItemData(
     val title: String,
@@ -31,6 +33,8 @@ class PdfDrawerItemBinding(
     ) {
     private val storageService: StorageService =
         StorageService.getInstance(context.applicationContext)
+    private val pageThumbnailStore: PageThumbnailStore =
+        PageThumbnailStore.getInstance(context.applicationContext)
 
     private var boundView: PdfDrawerItem? = null
     fun bindView(
@@ -74,10 +78,17 @@ class PdfDrawerItemBinding(
             val signature = itemData.pdfFile.dateDownload
                 ?.let { ObjectKey(it.time) }
                 ?: EmptySignature.obtain()
+            // Prefer the pre-rendered thumbnail, which is rendered first if there is none yet.
+            // The PDF itself is only rendered if no thumbnail is big enough.
+            val thumbnail = if (file != null && withContext(Dispatchers.IO) { file.exists() }) {
+                pageThumbnailStore.getOrCreateThumbnail(itemData.pdfFile, file.absolutePath, viewWidth)
+            } else {
+                pageThumbnailStore.getThumbnail(itemData.pdfFile, viewWidth)
+            }
 
             boundView?.findViewById<ImageView>(R.id.view_drawer_pdf_page)?.let { imageView ->
                 glideRequestManager
-                    .load(file?.absolutePath)
+                    .load(thumbnail ?: file?.absolutePath)
                     .signature(signature)
                     .override(viewWidth, Target.SIZE_ORIGINAL)
                     .into(imageView)
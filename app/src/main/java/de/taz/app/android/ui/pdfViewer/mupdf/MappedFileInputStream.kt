@@ -0,0 +1,50 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import com.artifex.mupdf.fitz.SeekableStream
+import com.artifex.mupdf.fitz.SeekableInputStream
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * A [SeekableInputStream] reading a file that is mapped into memory.
+ *
+ * MuPDF seeks a lot while parsing a document. With a mapped file it reads directly from the page
+ * cache of the system without any system call, and unlike reading the whole file into a
+ * [ByteArray] the content does not count towards the heap of the app.
+ * The file is only kept open while mapping it: the mapping stays valid until the buffer is
+ * garbage collected.
+ */
+class MappedFileInputStream(file: File) : SeekableInputStream {
+
+    private val buffer: ByteBuffer = RandomAccessFile(file, "r").use { randomAccessFile ->
+        randomAccessFile.channel.map(FileChannel.MapMode.READ_ONLY, 0L, randomAccessFile.length())
+    }
+
+    override fun seek(offset: Long, whence: Int): Long {
+        val newPosition = when (whence) {
+            SeekableStream.SEEK_SET -> offset
+            SeekableStream.SEEK_CUR -> buffer.position() + offset
+            SeekableStream.SEEK_END -> buffer.limit() + offset
+            else -> throw IOException("Invalid whence $whence")
+        }
+        if (newPosition < 0L || newPosition > buffer.limit()) {
+            throw IOException("Can not seek to $newPosition of ${buffer.limit()} bytes")
+        }
+        buffer.position(newPosition.toInt())
+        return newPosition
+    }
+
+    override fun position(): Long = buffer.position().toLong()
+
+    override fun read(buf: ByteArray): Int {
+        if (!buffer.hasRemaining()) {
+            return -1
+        }
+        val count = minOf(buf.size, buffer.remaining())
+        buffer.get(buf, 0, count)
+        return count
+    }
+}
@@ -134,11 +134,14 @@ public class MuPDFCore {
         doc = null;
     }
 
-    public synchronized void drawPage(Bitmap bm, int pageNum,
-                                      int pageW, int pageH,
-                                      int patchX, int patchY,
-                                      int patchW, int patchH,
-                                      Cookie cookie) {
+    /**
+     * @return false if the page could not be loaded and nothing has been drawn
+     */
+    public synchronized boolean drawPage(Bitmap bm, int pageNum,
+                                         int pageW, int pageH,
+                                         int patchX, int patchY,
+                                         int patchW, int patchH,
+                                         Cookie cookie) {
         gotoPage(pageNum);
 
         if (displayList == null && page != null)
@@ -149,7 +152,7 @@ public class MuPDFCore {
             }
 
         if (displayList == null || page == null)
-            return;
+            return false;
 
         float zoom = resolution / 72;
         Matrix ctm = new Matrix(zoom, zoom);
@@ -179,13 +182,6 @@ public class MuPDFCore {
         } finally {
             dev.destroy();
         }
-    }
-
-    public synchronized void updatePage(Bitmap bm, int pageNum,
-                                        int pageW, int pageH,
-                                        int patchX, int patchY,
-                                        int patchW, int patchH,
-                                        Cookie cookie) {
-        drawPage(bm, pageNum, pageW, pageH, patchX, patchY, patchW, patchH, cookie);
+        return true;
     }
 }
@@ -0,0 +1,146 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import de.taz.app.android.util.Log
+import java.io.File
+
+// Number of documents kept open while no view is using them
+private const val MAX_UNUSED_DOCUMENTS = 12
+private const val MIME_TYPE_PDF = "application/pdf"
+
+/**
+ * Keeps the recently used PDF documents open, so that they are not parsed again whenever a
+ * [PageView] is bound to a page or a thumbnail is rendered by the [de.taz.app.android.util.PDFThumbnailLoader].
+ *
+ * The documents are read with a [MappedFileInputStream] and are reference counted: a document is
+ * kept open as long as a [Reference] to it has not been released. Of the documents no longer
+ * referenced, the [MAX_UNUSED_DOCUMENTS] most recently used are kept open. A document is opened
+ * again if its file changed.
+ */
+object MuPDFDocumentCache {
+    private val log by Log
+
+    /**
+     * A reference to an open document, which must be released once it is not used anymore.
+     */
+    class Reference internal constructor(private val entry: Entry) {
+        private var isReleased = false
+
+        val core: MuPDFCore
+            get() = entry.core
+
+        /**
+         * Get another reference to the same document, for example for a render task that may
+         * still run after this reference has been released.
+         */
+        fun copy(): Reference {
+            synchronized(MuPDFDocumentCache) {
+                check(!isReleased) { "The reference has already been released" }
+                entry.referenceCount++
+                return Reference(entry)
+            }
+        }
+
+        fun release() {
+            synchronized(MuPDFDocumentCache) {
+                if (!isReleased) {
+                    isReleased = true
+                    releaseEntry(entry)
+                }
+            }
+        }
+    }
+
+    internal class Entry(
+        val path: String,
+        val lastModified: Long,
+        val length: Long,
+        val core: MuPDFCore,
+    ) {
+        var referenceCount = 0
+    }
+
+    // Access ordered, so that the least recently used entries are evicted first
+    private val entries = LinkedHashMap<String, Entry>(16, 0.75f, true)
+
+    /**
+     * Get a reference to the opened PDF at [path], opening it if necessary.
+     * @throws RuntimeException if the document can not be opened
+     */
+    fun acquire(path: String): Reference {
+        val file = File(path)
+        val lastModified = file.lastModified()
+        val length = file.length()
+
+        synchronized(this) {
+            val cachedEntry = entries[path]
+            if (cachedEntry != null) {
+                if (cachedEntry.lastModified == lastModified && cachedEntry.length == length) {
+                    cachedEntry.referenceCount++
+                    return Reference(cachedEntry)
+                }
+                // The file has been updated: the stale document is closed once it is released
+                entries.remove(path)
+                destroyIfUnused(cachedEntry)
+            }
+        }
+
+        // Open the document outside of the lock, as parsing it might take a while
+        val core = MuPDFCore(MappedFileInputStream(file), MIME_TYPE_PDF)
+
+        synchronized(this) {
+            val concurrentEntry = entries[path]
+            val isConcurrentEntryValid = concurrentEntry != null &&
+                    concurrentEntry.lastModified == lastModified && concurrentEntry.length == length
+            val entry = if (concurrentEntry != null && isConcurrentEntryValid) {
+                // Another thread opened the same document in the meantime
+                core.onDestroy()
+                concurrentEntry
+            } else {
+                concurrentEntry?.let {
+                    entries.remove(path)
+                    destroyIfUnused(it)
+                }
+                Entry(path, lastModified, length, core).also { entries[path] = it }
+            }
+            entry.referenceCount++
+            trimUnused(MAX_UNUSED_DOCUMENTS)
+            return Reference(entry)
+        }
+    }
+
+    /**
+     * Close all documents that are not used anymore, for example when the system is low on memory.
+     */
+    fun clear() {
+        synchronized(this) {
+            trimUnused(0)
+        }
+    }
+
+    private fun releaseEntry(entry: Entry) {
+        entry.referenceCount--
+        if (entries[entry.path] !== entry) {
+            // The entry has been replaced or evicted while it was used
+            destroyIfUnused(entry)
+        } else {
+            trimUnused(MAX_UNUSED_DOCUMENTS)
+        }
+    }
+
+    private fun trimUnused(maxUnused: Int) {
+        val unusedEntries = entries.values.filter { it.referenceCount == 0 }
+        if (unusedEntries.size > maxUnused) {
+            unusedEntries.take(unusedEntries.size - maxUnused).forEach {
+                entries.remove(it.path)
+                destroyIfUnused(it)
+            }
+        }
+    }
+
+    private fun destroyIfUnused(entry: Entry) {
+        if (entry.referenceCount == 0) {
+            log.verbose("Closing ${entry.path}")
+            entry.core.onDestroy()
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package de.taz.app.android.ui.pdfViewer.mupdf
 
 import android.content.Context
-import android.graphics.Bitmap
 import android.graphics.Point
 import android.graphics.PointF
 import android.util.SparseArray
@@ -9,7 +8,6 @@ import android.view.View
 import android.view.ViewGroup
 import android.widget.BaseAdapter
 import de.taz.app.android.api.models.Page
-import androidx.core.graphics.createBitmap
 import de.taz.app.android.content.ContentService
 import de.taz.app.android.download.DownloadPriority
 import kotlinx.coroutines.CoroutineScope
@@ -24,7 +22,6 @@ class PageAdapter(
     private var pages = initialPages
 
     private val pageSizesCache = SparseArray<PointF>()
-    private var sharedHqBm: Bitmap? = null
 
     override fun getCount() = pages.size
 
@@ -51,8 +48,8 @@ class PageAdapter(
     }
 
     fun releaseBitmaps() {
-        // release the shared bitmap and wait for the GC to recycle it
-        sharedHqBm = null
+        // release the tiles of the previous pages and wait for the GC to recycle them
+        TileCache.clear()
     }
 
     fun refresh() {
@@ -60,17 +57,7 @@ class PageAdapter(
     }
 
     private fun createPageView(parent: ViewGroup): PageView {
-        val cachedSharedHqBm = sharedHqBm
-        val hqBitmap =
-            if (cachedSharedHqBm == null || cachedSharedHqBm.width != parent.width || cachedSharedHqBm.height != parent.height) {
-                createBitmap(parent.width, parent.height).also {
-                    sharedHqBm = it
-                }
-            } else {
-                cachedSharedHqBm
-            }
-
-        return PageView(mContext, Point(parent.width, parent.height), hqBitmap)
+        return PageView(mContext, Point(parent.width, parent.height))
     }
 
     override fun getView(position: Int, convertView: View?, parent: ViewGroup): View {
@@ -13,26 +13,30 @@ import android.widget.ImageView.ScaleType
 import android.widget.ProgressBar
 import androidx.appcompat.widget.AppCompatImageView
 import com.artifex.mupdf.fitz.Cookie
-import com.artifex.mupdf.fitz.FileStream
 import de.taz.app.android.api.models.Page
 import de.taz.app.android.api.models.PageType
 import de.taz.app.android.singletons.StorageService
 import de.taz.app.android.util.Log
-import de.taz.app.android.util.runIfNotNull
+import kotlin.math.ceil
+import kotlin.math.log2
 import kotlin.math.min
+import kotlin.math.pow
+import kotlin.math.roundToInt
 import androidx.core.graphics.createBitmap
 
 class PageView(
     context: Context,
     private val parentSize: Point,
-    sharedHqBm: Bitmap,
 ) : ViewGroup(
     context
 ) {
     companion object {
         private const val BACKGROUND_COLOR = -0x1
         private const val PROGRESS_DIALOG_DELAY = 200
-        private const val MIME_TYPE_PDF = "application/pdf"
+        // Number of zoom levels the tiles are rendered at for each doubling of the scale
+        private const val LEVELS_PER_DOUBLING = 4f
+        // Number of tiles around the visible ones that are rendered in advance for panning
+        private const val PREFETCH_TILES = 1
     }
 
     private val log by Log
@@ -41,8 +45,9 @@ class PageView(
 
     var page: Page? = null
         private set
-    private var muPDFCore: MuPDFCore? = null
-    private var fileStream: FileStream? = null
+    private var documentReference: MuPDFDocumentCache.Reference? = null
+    private val muPDFCore: MuPDFCore?
+        get() = documentReference?.core
 
     // Size of page at minimum zoom
     var minZoomSize: Point = parentSize
@@ -56,16 +61,20 @@ class PageView(
     }
     private var entireBm: Bitmap? = null
     private val entireMat: Matrix = Matrix()
-    private var drawEntire: CancellableAsyncTask<Void?, Void?>? = null
-
-    // View size on the basis of which the patch was created
-    private var patchViewSize: Point? = null
-    private var patchArea: Rect? = null
-    private val patch: AppCompatImageView = OpaqueImageView(context).apply {
-        scaleType = ScaleType.MATRIX
-    }
-    private val patchBm: Bitmap = sharedHqBm
-    private var drawPatch: CancellableAsyncTask<Void?, Void?>? = null
+    private var drawEntire: RenderScheduler.RenderTask? = null
+
+    // Tiles rendered at the zoom level next to the current zoom
+    private val tiles = TileLayerView(context)
+    private val tileTasks = HashMap<TileKey, RenderScheduler.RenderTask>()
+
+    /**
+     * True if this is the page the user is looking at, which is rendered before the neighbouring pages.
+     */
+    var isCurrentPage = false
+        set(value) {
+            field = value
+            drawEntire?.updatePriority(getEntirePriority())
+        }
 
     private var isBlank = false
     private var busyIndicator: ProgressBar? = null
@@ -78,38 +87,23 @@ class PageView(
         setBackgroundColor(BACKGROUND_COLOR)
 
         addView(entire)
-        addView(patch)
+        addView(tiles)
     }
 
     private fun reinit() {
         // Cancel pending render task
         cancelDrawEntireTask()
-        cancelDrawPatchTask()
+        cancelTileTasks()
 
         isBlank = true
 
         page = null
-        muPDFCore?.onDestroy()
-        muPDFCore = null
-
-        try {
-            fileStream?.close()
-        } catch (e: Exception) {
-            log.error("Could not close fileStream", e)
-        }
-        fileStream = null
+        // The document stays open in the cache, so that it is not parsed again when swiping back
+        documentReference?.release()
+        documentReference = null
 
         clearEntire()
-        clearPatch()
-    }
-
-    private fun clearPatch() {
-        patchViewSize = null
-        patchArea = null
-        patch.apply {
-            setImageBitmap(null)
-            invalidate()
-        }
+        tiles.clear()
     }
 
     private fun clearEntire() {
@@ -126,11 +120,10 @@ class PageView(
         }
     }
 
-    private fun cancelDrawPatchTask() {
-        drawPatch?.apply {
-            cancel()
-            drawPatch = null
-        }
+    private fun cancelTileTasks() {
+        // Copy the tasks, as cancelling a task which has not been started yet finishes it immediately
+        tileTasks.values.toList().forEach { it.cancel() }
+        tileTasks.clear()
     }
 
     fun releaseResources() {
@@ -172,9 +165,7 @@ class PageView(
         return try {
             val pdfFilePath = storageService.getAbsolutePath(page.pagePdf)
             if (pdfFilePath != null) {
-                val fs = FileStream(pdfFilePath, "r")
-                fileStream = fs
-                muPDFCore = MuPDFCore(fs, MIME_TYPE_PDF)
+                documentReference = MuPDFDocumentCache.acquire(pdfFilePath)
                 true
             } else {
                 log.error("Could not open PDF file: getAbsolutePath returned null for ${page.pagePdf}")
@@ -233,10 +224,30 @@ class PageView(
 
         clearEntire()
         val entireBm = getEntireBitmap(newSize)
+        // The render task keeps the document open, even if this view shows another page meanwhile
+        val renderReference = documentReference?.copy() ?: return
+
+        setBackgroundColor(BACKGROUND_COLOR)
+        if (busyIndicator == null) {
+            busyIndicator = ProgressBar(context)
+                .apply {
+                    isIndeterminate = true
+                    visibility = INVISIBLE
+                }
+                .also {
+                    addView(it)
+                }
+
+            _handler.postDelayed({
+                busyIndicator?.visibility = VISIBLE
+            }, PROGRESS_DIALOG_DELAY.toLong())
+        }
 
         // Render the page in the background
-        this.drawEntire = object : CancellableAsyncTask<Void?, Void?>(
+        drawEntire = RenderScheduler.schedule(
+            getEntirePriority(),
             getDrawPageTask(
+                renderReference.core,
                 entireBm,
                 newSize.x,
                 newSize.y,
@@ -246,30 +257,9 @@ class PageView(
                 newSize.y,
                 "drawPage/$debugTag (${page?.pagePdf?.name})",
             )
-        ) {
-            override fun onPreExecute() {
-                setBackgroundColor(BACKGROUND_COLOR)
-                entire.apply {
-                    setImageBitmap(null)
-                    invalidate()
-                }
-                if (busyIndicator == null) {
-                    busyIndicator = ProgressBar(context)
-                        .apply {
-                            isIndeterminate = true
-                            visibility = INVISIBLE
-                        }
-                        .also {
-                            addView(it)
-                        }
-
-                    _handler.postDelayed({
-                        busyIndicator?.visibility = VISIBLE
-                    }, PROGRESS_DIALOG_DELAY.toLong())
-                }
-            }
-
-            override fun onPostExecute(result: Void?) {
+        ) { isCancelled ->
+            renderReference.release()
+            if (!isCancelled) {
                 removeBusyIndicator()
 
                 entire.apply {
@@ -279,9 +269,6 @@ class PageView(
                 setBackgroundColor(Color.TRANSPARENT)
             }
         }
-            .apply {
-                execute()
-            }
         requestLayout()
     }
 
@@ -326,16 +313,8 @@ class PageView(
             layout(0, 0, w, h)
         }
 
-        runIfNotNull(patchViewSize, patchArea) { patchViewSize, patchArea ->
-            // If the patch view size does not match the current view size,
-            // then the pdf was zoomed again before this layout run.
-            // We will have to throw away the current patch and let the
-            if (patchViewSize.x != w || patchViewSize.y != h) {
-                clearPatch()
-            } else {
-                patch.layout(patchArea.left, patchArea.top, patchArea.right, patchArea.bottom)
-            }
-        }
+        // The tiles are scaled to the view size, so that they are still shown while zooming
+        tiles.layout(0, 0, w, h)
 
         busyIndicator?.apply {
             val bw = measuredWidth
@@ -345,107 +324,154 @@ class PageView(
     }
 
 
-    fun updateHq(update: Boolean) {
+    /**
+     * Show the tiles of the visible area at the zoom level next to the current zoom and render the
+     * missing ones, followed by the tiles around the visible area.
+     * Tiles that are not visible anymore and have not been rendered yet are cancelled.
+     */
+    fun updateHq() {
         val viewArea = Rect(left, top, right, bottom)
         if (viewArea.width() == minZoomSize.x || viewArea.height() == minZoomSize.y) {
-            // If the viewArea's size matches the unzoomed size, there is no need for an hq patch
-            clearPatch()
-        } else {
-            val patchViewSize = Point(viewArea.width(), viewArea.height())
-            val patchArea = Rect(0, 0, parentSize.x, parentSize.y)
-
-            // Intersect and test that there is an intersection
-            if (!patchArea.intersect(viewArea)) return
-
-            // Offset patch area to be relative to the view top left
-            patchArea.offset(-viewArea.left, -viewArea.top)
-            val areaUnchanged = patchArea == this.patchArea && patchViewSize == this.patchViewSize
-
-            // If being asked for the same area as last time and not because of an update then nothing to do
-            if (areaUnchanged && !update) return
-            val completeRedraw = !(areaUnchanged && update)
-
-            // Stop the drawing of previous patch if still going
-            cancelDrawPatchTask()
-
-            // Create and add the image view if not already done
-            val task: CancellableTaskDefinition<Void?, Void?> =
-                if (completeRedraw) {
-                    getDrawPageTask(
-                        patchBm, patchViewSize.x, patchViewSize.y,
-                        patchArea.left, patchArea.top,
-                        patchArea.width(), patchArea.height(),
-                        "updateHq($update) (${page?.pagePdf?.name})"
-                    )
+            // If the viewArea's size matches the unzoomed size, there is no need for tiles
+            removeHq()
+            return
+        }
+        val pageSha256 = page?.pagePdf?.sha256 ?: return
+        val documentReference = documentReference ?: return
+
+        val visibleArea = Rect(0, 0, parentSize.x, parentSize.y)
+        // Intersect and test that there is an intersection
+        if (!visibleArea.intersect(viewArea)) return
+        // Offset visible area to be relative to the view top left
+        visibleArea.offset(-viewArea.left, -viewArea.top)
+
+        val levelScale = getLevelScale(viewArea.width().toFloat() / minZoomSize.x)
+        val levelWidth = (minZoomSize.x * levelScale).roundToInt()
+        val levelHeight = (minZoomSize.y * levelScale).roundToInt()
+        val toLevelX = levelWidth.toFloat() / viewArea.width()
+        val toLevelY = levelHeight.toFloat() / viewArea.height()
+        val columnCount = ceil(levelWidth.toFloat() / TILE_SIZE).toInt()
+        val rowCount = ceil(levelHeight.toFloat() / TILE_SIZE).toInt()
+
+        // Right and bottom are exclusive
+        val visibleTiles = Rect(
+            (visibleArea.left * toLevelX).toInt() / TILE_SIZE,
+            (visibleArea.top * toLevelY).toInt() / TILE_SIZE,
+            min(columnCount, ceil(visibleArea.right * toLevelX / TILE_SIZE).toInt()),
+            min(rowCount, ceil(visibleArea.bottom * toLevelY / TILE_SIZE).toInt()),
+        )
+        val prefetchTiles = Rect(visibleTiles).apply {
+            inset(-PREFETCH_TILES, -PREFETCH_TILES)
+            intersect(0, 0, columnCount, rowCount)
+        }
+
+        val wantedTiles = HashMap<TileKey, RenderPriority>()
+        for (row in prefetchTiles.top until prefetchTiles.bottom) {
+            for (column in prefetchTiles.left until prefetchTiles.right) {
+                val priority = if (visibleTiles.contains(column, row)) {
+                    RenderPriority.VISIBLE
                 } else {
-                    getUpdatePageTask(
-                        patchBm, patchViewSize.x, patchViewSize.y,
-                        patchArea.left, patchArea.top,
-                        patchArea.width(), patchArea.height(),
-                        "updateHq($update) (${page?.pagePdf?.name})"
-                    )
+                    RenderPriority.PREFETCH
                 }
+                wantedTiles[TileKey(pageSha256, levelWidth, column, row)] = priority
+            }
+        }
 
-            drawPatch = object : CancellableAsyncTask<Void?, Void?>(task) {
-                override fun onPostExecute(result: Void?) {
-                    this@PageView.patchViewSize = patchViewSize
-                    this@PageView.patchArea = patchArea
-                    patch.setImageBitmap(patchBm)
-                    patch.invalidate()
-                    //requestLayout();
-                    // Calling requestLayout here doesn't lead to a later call to layout. No idea
-                    // why, but apparently others have run into the problem.
-                    patch.layout(patchArea.left, patchArea.top, patchArea.right, patchArea.bottom)
-                }
-            }.apply {
-                execute()
+        // Stop rendering the tiles the user has zoomed or panned away from
+        tileTasks.keys
+            .filter { it !in wantedTiles }
+            .forEach { tileTasks.remove(it)?.cancel() }
+
+        wantedTiles.forEach { (key, priority) ->
+            val pendingTask = tileTasks[key]
+            if (pendingTask != null) {
+                pendingTask.updatePriority(priority)
+            } else if (!TileCache.contains(key)) {
+                tileTasks[key] = scheduleTile(documentReference, key, levelHeight, priority)
             }
         }
+
+        tiles.showTiles(pageSha256, levelWidth, levelHeight, prefetchTiles)
     }
 
     fun removeHq() {
-        // Stop the drawing of the patch if still going
-        cancelDrawPatchTask()
+        // Stop the rendering of the tiles if still going
+        cancelTileTasks()
 
-        // And get rid of it
-        clearPatch()
+        // And get rid of them. They stay in the cache for when the page is zoomed again.
+        tiles.clear()
     }
 
-    override fun isOpaque(): Boolean {
-        return true
+    /**
+     * Round the [scale] up to the next zoom level, so that the tiles are not rendered again for
+     * each small zoom change and are always at least as sharp as the view.
+     */
+    private fun getLevelScale(scale: Float): Float {
+        val level = ceil(log2(scale) * LEVELS_PER_DOUBLING)
+        return 2f.pow(level / LEVELS_PER_DOUBLING)
     }
 
-    private fun getDrawPageTask(
-        bm: Bitmap, sizeX: Int, sizeY: Int,
-        patchX: Int, patchY: Int, patchWidth: Int, patchHeight: Int,
-        debugTag: String
-    ): CancellableTaskDefinition<Void?, Void?> {
-        return object : MuPDFCancellableTaskDefinition<Void, Void>(debugTag) {
-            override fun doInBackground(cookie: Cookie, vararg params: Void): Void? {
-                muPDFCore?.drawPage(
-                    bm,
-                    0,
-                    sizeX,
-                    sizeY,
-                    patchX,
-                    patchY,
-                    patchWidth,
-                    patchHeight,
-                    cookie
-                )
-                return null
+    private fun getEntirePriority(): RenderPriority {
+        return if (isCurrentPage) RenderPriority.VISIBLE else RenderPriority.NEIGHBOUR_PAGE
+    }
+
+    private fun scheduleTile(
+        documentReference: MuPDFDocumentCache.Reference,
+        key: TileKey,
+        levelHeight: Int,
+        priority: RenderPriority,
+    ): RenderScheduler.RenderTask {
+        val bitmap = TileBitmapPool.obtain()
+        // The render task keeps the document open, even if this view shows another page meanwhile
+        val renderReference = documentReference.copy()
+        var isRendered = false
+        val definition: CancellableTaskDefinition<Void?, Void?> =
+            object : MuPDFCancellableTaskDefinition<Void, Void>("tile $key") {
+                override fun doInBackground(cookie: Cookie, vararg params: Void): Void? {
+                    isRendered = renderReference.core.drawPage(
+                        bitmap,
+                        0,
+                        key.levelWidth,
+                        levelHeight,
+                        key.column * TILE_SIZE,
+                        key.row * TILE_SIZE,
+                        TILE_SIZE,
+                        TILE_SIZE,
+                        cookie
+                    )
+                    return null
+                }
+            }
+
+        lateinit var task: RenderScheduler.RenderTask
+        task = RenderScheduler.schedule(priority, definition) { isCancelled ->
+            renderReference.release()
+            if (tileTasks[key] === task) {
+                tileTasks.remove(key)
+            }
+            if (!isCancelled && isRendered) {
+                TileCache.put(key, bitmap)
+                tiles.invalidate()
+            } else {
+                TileBitmapPool.release(bitmap)
             }
         }
+        return task
     }
 
-    private fun getUpdatePageTask(
+    override fun isOpaque(): Boolean {
+        return true
+    }
+
+    private fun getDrawPageTask(
+        core: MuPDFCore,
         bm: Bitmap, sizeX: Int, sizeY: Int,
         patchX: Int, patchY: Int, patchWidth: Int, patchHeight: Int,
         debugTag: String
     ): CancellableTaskDefinition<Void?, Void?> {
         return object : MuPDFCancellableTaskDefinition<Void, Void>(debugTag) {
             override fun doInBackground(cookie: Cookie, vararg params: Void): Void? {
-                muPDFCore?.updatePage(
+                core.drawPage(
                     bm,
                     0,
                     sizeX,
@@ -460,5 +486,4 @@ class PageView(
             }
         }
     }
-
-}
\ No newline at end of file
+}
@@ -594,6 +594,11 @@ public class ReaderView
             }
         }
 
+        // Render the current page before its neighbours
+        for (int i = 0; i < mChildViews.size(); i++) {
+            ((PageView) mChildViews.valueAt(i)).setCurrentPage(mChildViews.keyAt(i) == mCurrent);
+        }
+
         invalidate();
     }
 
@@ -763,7 +768,7 @@ public class ReaderView
 
     protected void onSettle(View v) {
         // When the layout has settled ask the page to render in HQ
-        ((PageView) v).updateHq(false);
+        ((PageView) v).updateHq();
 
         // Reset the scales of all but the current page
         for (int i = 0; i < mChildViews.size(); i++) {
@@ -872,7 +877,7 @@ public class ReaderView
                 public void run() {
                     PageView view = (PageView) getDisplayedView();
                     if (view != null && view == currentView) {
-                        view.updateHq(false);
+                        view.updateHq();
                     }
                 }
             });
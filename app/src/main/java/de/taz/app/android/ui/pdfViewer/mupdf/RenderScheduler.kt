@@ -0,0 +1,140 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import android.os.Handler
+import android.os.Looper
+import android.os.Process
+import androidx.annotation.MainThread
+import java.util.concurrent.PriorityBlockingQueue
+import java.util.concurrent.ThreadPoolExecutor
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * The order in which the pending renderings are done
+ */
+enum class RenderPriority {
+    /** The page and the tiles the user is looking at */
+    VISIBLE,
+    /** The pages next to the current one, which are shown when swiping */
+    NEIGHBOUR_PAGE,
+    /** The tiles around the visible ones, which are shown when panning */
+    PREFETCH,
+}
+
+/**
+ * Renders the pages and tiles of the PDF reader one after another on a single background thread,
+ * always starting with the pending task of the highest [RenderPriority].
+ *
+ * Rendering in parallel would not be faster, as [MuPDFCore.drawPage] is synchronized. But as the
+ * tasks are not started in the order they are scheduled, the visible tiles are not delayed by
+ * the neighbouring pages or by tiles the user has already panned away from.
+ * As with the AsyncTasks used before, the result is delivered on the main thread.
+ */
+object RenderScheduler {
+    private val mainHandler = Handler(Looper.getMainLooper())
+    private val sequence = AtomicLong()
+
+    private val executor = ThreadPoolExecutor(
+        1, 1, 0L, TimeUnit.MILLISECONDS, PriorityBlockingQueue()
+    ) { runnable ->
+        Thread({
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND)
+            runnable.run()
+        }, "PdfRenderer")
+    }
+
+    /**
+     * A scheduled rendering, which can be cancelled or reprioritized until it is done.
+     */
+    class RenderTask internal constructor(
+        priority: RenderPriority,
+        private val definition: CancellableTaskDefinition<Void?, Void?>,
+        private val onDone: (isCancelled: Boolean) -> Unit,
+    ) : Runnable, Comparable<RenderTask> {
+
+        @Volatile
+        var priority: RenderPriority = priority
+            private set
+
+        @Volatile
+        private var sequenceNumber = sequence.incrementAndGet()
+
+        @Volatile
+        private var isCancelled = false
+        private var isDone = false
+
+        override fun run() {
+            if (!isCancelled) {
+                definition.doInBackground()
+            }
+            mainHandler.post { finish() }
+        }
+
+        override fun compareTo(other: RenderTask): Int {
+            val byPriority = priority.compareTo(other.priority)
+            return if (byPriority != 0) {
+                byPriority
+            } else {
+                sequenceNumber.compareTo(other.sequenceNumber)
+            }
+        }
+
+        /**
+         * Change the priority of the task if it has not been started yet.
+         */
+        @MainThread
+        fun updatePriority(newPriority: RenderPriority) {
+            if (newPriority == priority || isDone || isCancelled) {
+                return
+            }
+            // The queue is only sorted on insertion, so the task has to be enqueued again
+            if (executor.remove(this)) {
+                priority = newPriority
+                sequenceNumber = sequence.incrementAndGet()
+                executor.execute(this)
+            }
+        }
+
+        /**
+         * Cancel the task. If it has not been started yet, it is done immediately. Otherwise the
+         * running rendering is aborted and the task is done once it returned.
+         */
+        @MainThread
+        fun cancel() {
+            if (isDone || isCancelled) {
+                return
+            }
+            isCancelled = true
+            if (executor.remove(this)) {
+                finish()
+            } else {
+                definition.doCancel()
+            }
+        }
+
+        @MainThread
+        private fun finish() {
+            if (isDone) {
+                return
+            }
+            isDone = true
+            definition.doCleanup()
+            onDone(isCancelled)
+        }
+    }
+
+    /**
+     * Schedule the rendering of [definition].
+     * @param onDone Called on the main thread once the task is done, with true if it has been cancelled
+     */
+    @MainThread
+    fun schedule(
+        priority: RenderPriority,
+        definition: CancellableTaskDefinition<Void?, Void?>,
+        onDone: (isCancelled: Boolean) -> Unit,
+    ): RenderTask {
+        return RenderTask(priority, definition, onDone).also {
+            executor.execute(it)
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import android.graphics.Bitmap
+import androidx.annotation.MainThread
+import androidx.core.graphics.createBitmap
+
+// Width and height in pixels of the tiles a zoomed page is rendered in
+const val TILE_SIZE = 256
+
+// Number of unused tile bitmaps kept to be rendered into again
+private const val MAX_POOLED_BITMAPS = 24
+
+/**
+ * Bounded pool of the [TILE_SIZE] bitmaps the tiles are rendered into.
+ *
+ * All tiles have the same size, so the bitmaps of the tiles evicted from the [TileCache] or of
+ * cancelled render tasks can be reused for any other tile instead of allocating a new bitmap
+ * while the user is zooming.
+ */
+@MainThread
+object TileBitmapPool {
+    private val pool = ArrayDeque<Bitmap>()
+
+    /**
+     * Get a bitmap of [TILE_SIZE], either a pooled one or a new one.
+     */
+    fun obtain(): Bitmap {
+        return pool.removeLastOrNull() ?: createBitmap(TILE_SIZE, TILE_SIZE)
+    }
+
+    /**
+     * Return a [bitmap] that is not used anymore. It is left to the GC if the pool is full.
+     */
+    fun release(bitmap: Bitmap) {
+        if (pool.size < MAX_POOLED_BITMAPS && !bitmap.isRecycled) {
+            pool.addLast(bitmap)
+        }
+    }
+
+    /**
+     * Drop all pooled bitmaps, for example when the system is low on memory.
+     */
+    fun clear() {
+        pool.clear()
+    }
+}
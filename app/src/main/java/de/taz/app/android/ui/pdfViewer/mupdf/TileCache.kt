@@ -0,0 +1,75 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import android.graphics.Bitmap
+import androidx.annotation.MainThread
+
+// Part of the maximum heap size used for the rendered tiles
+private const val TILE_CACHE_HEAP_DIVISOR = 6
+// Keep at least enough tiles to cover a tablet screen at two zoom levels
+private const val MIN_CACHED_TILES = 128
+
+/**
+ * Identifies a rendered tile of a page.
+ * @param pageSha256 The sha256 of the page PDF, so that an updated page is never shown from the cache
+ * @param levelWidth The width in pixels of the whole page at the zoom level of the tile
+ * @param column The horizontal index of the tile at this zoom level
+ * @param row The vertical index of the tile at this zoom level
+ */
+data class TileKey(
+    val pageSha256: String,
+    val levelWidth: Int,
+    val column: Int,
+    val row: Int,
+)
+
+/**
+ * LRU cache of the rendered tiles of all pages.
+ *
+ * Tiles are only rendered once per zoom level, so that panning over a zoomed page, zooming back to
+ * a previous zoom level or swiping back to a page shows the regions already seen without rendering
+ * them again. The number of tiles is bounded by a part of the heap and the evicted bitmaps are
+ * returned to the [TileBitmapPool].
+ * As the [PageView]s look up their tiles on each draw and never keep a reference to them, the
+ * cache must only be used from the main thread. This also keeps the visible tiles the most
+ * recently used ones, so they are not evicted and rendered into again while they are shown.
+ */
+@MainThread
+object TileCache {
+    private val maxSize = maxOf(
+        MIN_CACHED_TILES,
+        (Runtime.getRuntime().maxMemory() / TILE_CACHE_HEAP_DIVISOR / (TILE_SIZE * TILE_SIZE * 4)).toInt()
+    )
+
+    // A LinkedHashMap in access order keeps the least recently used tile first
+    private val tiles = object : LinkedHashMap<TileKey, Bitmap>(maxSize, 0.75f, true) {
+        override fun removeEldestEntry(eldest: MutableMap.MutableEntry<TileKey, Bitmap>): Boolean {
+            val isFull = size > maxSize
+            if (isFull) {
+                TileBitmapPool.release(eldest.value)
+            }
+            return isFull
+        }
+    }
+
+    fun get(key: TileKey): Bitmap? = tiles[key]
+
+    fun contains(key: TileKey): Boolean = tiles.containsKey(key)
+
+    fun put(key: TileKey, bitmap: Bitmap) {
+        tiles.put(key, bitmap)?.let {
+            if (it !== bitmap) {
+                TileBitmapPool.release(it)
+            }
+        }
+    }
+
+    /**
+     * Drop all tiles, for example when the system is low on memory.
+     * Pages that are shown fall back to their low resolution image until their tiles are rendered again.
+     */
+    fun clear() {
+        // The bitmaps are not recycled, as they might still be drawn until the pages are invalidated
+        tiles.clear()
+        TileBitmapPool.clear()
+    }
+}
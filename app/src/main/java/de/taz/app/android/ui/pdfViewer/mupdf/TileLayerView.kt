@@ -0,0 +1,71 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import android.content.Context
+import android.graphics.Canvas
+import android.graphics.Paint
+import android.graphics.Rect
+import android.graphics.RectF
+import android.view.View
+import kotlin.math.min
+
+/**
+ * Draws the tiles of one zoom level of a page from the [TileCache] over its low resolution image.
+ *
+ * The tiles are scaled to the current size of the view, so while the user is zooming the tiles
+ * of the previous zoom level are still shown until the [PageView] switches to the next level.
+ * Tiles that are not rendered yet are left out and the low resolution image is visible instead.
+ */
+internal class TileLayerView(context: Context) : View(context) {
+
+    private var pageSha256: String? = null
+    private var levelWidth = 0
+    private var levelHeight = 0
+    // The columns and rows of the tiles to be drawn, right and bottom are exclusive
+    private val tileRange = Rect()
+
+    private val paint = Paint(Paint.FILTER_BITMAP_FLAG)
+    private val srcRect = Rect()
+    private val dstRect = RectF()
+
+    /**
+     * Draw the tiles within [tileRange] of the page with [pageSha256] rendered at [levelWidth].
+     */
+    fun showTiles(pageSha256: String, levelWidth: Int, levelHeight: Int, tileRange: Rect) {
+        this.pageSha256 = pageSha256
+        this.levelWidth = levelWidth
+        this.levelHeight = levelHeight
+        this.tileRange.set(tileRange)
+        invalidate()
+    }
+
+    fun clear() {
+        pageSha256 = null
+        invalidate()
+    }
+
+    override fun onDraw(canvas: Canvas) {
+        val pageSha256 = pageSha256 ?: return
+        if (levelWidth == 0 || levelHeight == 0) {
+            return
+        }
+        val scaleX = width.toFloat() / levelWidth
+        val scaleY = height.toFloat() / levelHeight
+
+        for (row in tileRange.top until tileRange.bottom) {
+            for (column in tileRange.left until tileRange.right) {
+                val bitmap = TileCache.get(TileKey(pageSha256, levelWidth, column, row)) ?: continue
+                val x = column * TILE_SIZE
+                val y = row * TILE_SIZE
+                // The tiles at the right and bottom edge are only partially covered by the page
+                srcRect.set(0, 0, min(TILE_SIZE, levelWidth - x), min(TILE_SIZE, levelHeight - y))
+                dstRect.set(
+                    x * scaleX,
+                    y * scaleY,
+                    (x + srcRect.width()) * scaleX,
+                    (y + srcRect.height()) * scaleY
+                )
+                canvas.drawBitmap(bitmap, srcRect, dstRect, paint)
+            }
+        }
+    }
+}
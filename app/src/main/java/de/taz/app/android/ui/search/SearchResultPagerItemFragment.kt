@@ -27,6 +27,7 @@ import de.taz.app.android.ui.webview.AppWebViewClient
 import de.taz.app.android.ui.webview.AppWebViewClientCallBack
 import de.taz.app.android.ui.webview.SearchTazApiJS
 import de.taz.app.android.ui.webview.TAZ_API_JS
+import de.taz.app.android.ui.webview.WebViewPool
 import de.taz.app.android.util.Log
 import kotlinx.coroutines.delay
 import kotlinx.coroutines.flow.launchIn
@@ -54,8 +55,7 @@ class SearchResultPagerItemFragment : ViewBindingFragment<FragmentWebviewArticle
 
     val viewModel by activityViewModels<SearchResultViewModel>()
     private var position: Int = NO_POSITION
-    private val webView: AppWebView?
-        get() = viewBinding?.webView
+    private var webView: AppWebView? = null
     private lateinit var searchResult: SearchHit
 
     override fun onAttach(context: Context) {
@@ -66,6 +66,9 @@ class SearchResultPagerItemFragment : ViewBindingFragment<FragmentWebviewArticle
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
         super.onViewCreated(view, savedInstanceState)
+        webView = viewBinding?.webViewContainer?.let {
+            WebViewPool.getInstance(requireContext().applicationContext).attachTo(it)
+        }
 
         position = requireArguments().getInt(ARGUMENT_PAGER_POSITION, NO_POSITION)
         require(position >= 0) { "SearchResultPagerItemFragment must be given a positive position argument" }
@@ -91,6 +94,11 @@ class SearchResultPagerItemFragment : ViewBindingFragment<FragmentWebviewArticle
         setupWebView()
     }
 
+    override fun onDestroyView() {
+        webView = null
+        super.onDestroyView()
+    }
+
     @SuppressLint("SetJavaScriptEnabled")
     private fun setupWebView() {
         webView?.apply {
@@ -1,6 +1,7 @@
 package de.taz.app.android.ui.search
 
 import android.app.Application
+import android.database.sqlite.SQLiteException
 import androidx.lifecycle.AndroidViewModel
 import androidx.lifecycle.LiveData
 import androidx.lifecycle.asLiveData
@@ -8,6 +9,7 @@ import androidx.lifecycle.viewModelScope
 import de.taz.app.android.BuildConfig
 import de.taz.app.android.api.ApiService
 import de.taz.app.android.api.ConnectivityException
+import de.taz.app.android.content.ArticleSearchService
 import de.taz.app.android.api.models.SearchHit
 import de.taz.app.android.api.variables.SearchFilter
 import de.taz.app.android.persistence.repository.BookmarkRepository
@@ -41,6 +43,8 @@ class SearchResultViewModel(
 
     private val apiService: ApiService = ApiService.getInstance(application.applicationContext)
     private val bookmarkRepository = BookmarkRepository.getInstance(application.applicationContext)
+    private val articleSearchService =
+        ArticleSearchService.getInstance(application.applicationContext)
 
     val minPublicationDate: Date = requireNotNull(DateHelper.stringToDate(MIN_PUB_DATE))
     private val defaultAdvancedSearchOptions = if (BuildConfig.IS_LMD) {
@@ -98,9 +102,20 @@ class SearchResultViewModel(
             _searchUiState.value = SearchUiState.Loading
             appliedSearchOptions.value = searchOptions
 
+            val advancedOptions = searchOptions.advancedOptions
+            val (from, until) = getDateRange(advancedOptions.publicationDateFilter)
+
+            // Show the hits in the downloaded issues immediately, while waiting for the server
+            val localHits = searchLocally(searchOptions, from, until)
+            if (localHits.isNotEmpty()) {
+                val localSearchResults =
+                    SearchResults(null, searchOptions, localHits.size, localHits, 0)
+                _searchUiState.value =
+                    SearchUiState.Results(localSearchResults, isLoadingMore = true)
+                _searchResults.value = localSearchResults
+            }
+
             try {
-                val advancedOptions = searchOptions.advancedOptions
-                val (from, until) = getDateRange(advancedOptions.publicationDateFilter)
                 val search = apiService.search(
                     searchOptions.searchText,
                     advancedOptions.title,
@@ -115,13 +130,25 @@ class SearchResultViewModel(
                 )
 
                 if (search == null || search.total == 0 || search.sessionId == null) {
-                    _searchUiState.value = SearchUiState.NoResults
+                    if (localHits.isEmpty()) {
+                        _searchUiState.value = SearchUiState.NoResults
+                    } else {
+                        _searchUiState.value = SearchUiState.Results(
+                            requireNotNull(_searchResults.value), isLoadingMore = false
+                        )
+                    }
                 } else {
+                    // The server hits come first, the local hits are only kept if the server did not return them
+                    val serverHits = search.searchHitList ?: emptyList()
+                    val serverArticleFileNames = serverHits.map { it.articleFileName }.toSet()
+                    val localOnlyHits = localHits.filter { it.articleFileName !in serverArticleFileNames }
+
                     val newSearchResults = SearchResults(
                         search.sessionId,
                         searchOptions,
-                        search.total,
-                        search.searchHitList ?: emptyList()
+                        search.total + localOnlyHits.size,
+                        serverHits + localOnlyHits,
+                        serverHits.size,
                     )
                     _searchUiState.value = SearchUiState.Results(
                         newSearchResults, isLoadingMore = false
@@ -129,12 +156,43 @@ class SearchResultViewModel(
                     _searchResults.value = newSearchResults
                 }
             } catch (e: ConnectivityException) {
-                _searchUiState.value = SearchUiState.Init
+                if (localHits.isEmpty()) {
+                    _searchUiState.value = SearchUiState.Init
+                } else {
+                    _searchUiState.value = SearchUiState.Results(
+                        requireNotNull(_searchResults.value), isLoadingMore = false
+                    )
+                }
                 _connectionError.value = e
             }
         }
     }
 
+    /**
+     * Search the downloaded articles. Errors of the local index must not prevent the server search.
+     */
+    private suspend fun searchLocally(
+        searchOptions: SearchOptions,
+        from: String?,
+        until: String?,
+    ): List<SearchHit> {
+        val advancedOptions = searchOptions.advancedOptions
+        return try {
+            articleSearchService.search(
+                searchOptions.searchText,
+                advancedOptions.title,
+                advancedOptions.author,
+                from,
+                until,
+                advancedOptions.sorting,
+                DEFAULT_SEARCH_RESULTS_TO_FETCH,
+            )
+        } catch (e: SQLiteException) {
+            log.warn("Could not search the downloaded articles", e)
+            emptyList()
+        }
+    }
+
     fun restartSearch() {
         val searchOptions = appliedSearchOptions.value
         if (searchOptions != null) {
@@ -170,7 +228,12 @@ class SearchResultViewModel(
             log.verbose("Can't load more - reached the end of the search results")
             return
         }
-        val offset = currentSearchResults.loadedResults
+        val sessionId = currentSearchResults.sessionId
+        if (sessionId == null) {
+            log.verbose("Can't load more - the results were only found locally")
+            return
+        }
+        val offset = currentSearchResults.loadedServerResults
 
         _searchUiState.value = SearchUiState.Results(currentSearchResults, isLoadingMore = true)
 
@@ -182,7 +245,7 @@ class SearchResultViewModel(
                 searchOptions.searchText,
                 advancedOptions.title,
                 advancedOptions.author,
-                currentSearchResults.sessionId,
+                sessionId,
                 DEFAULT_SEARCH_RESULTS_TO_FETCH,
                 offset,
                 from,
@@ -197,15 +260,27 @@ class SearchResultViewModel(
                     SearchUiState.Results(currentSearchResults, isLoadingMore = false)
 
             } else {
-                if (search.sessionId != currentSearchResults.sessionId) {
+                if (search.sessionId != sessionId) {
                     log.warn("The session id changed while loading more data")
                 }
 
-                val newResults = search.searchHitList ?: emptyList()
+                // Skip the hits already shown from the local search
+                val serverHits = search.searchHitList ?: emptyList()
+                val shownArticleFileNames =
+                    currentSearchResults.results.map { it.articleFileName }.toSet()
+                val newResults = serverHits.filter { it.articleFileName !in shownArticleFileNames }
                 val extendedResults = currentSearchResults.results + newResults
+                val localOnlyCount =
+                    currentSearchResults.loadedResults - currentSearchResults.loadedServerResults
+                val duplicateCount = serverHits.size - newResults.size
+                val totalResults = search.total + localOnlyCount - duplicateCount
 
                 val newSearchResults = SearchResults(
-                    search.sessionId, searchOptions, search.total, extendedResults
+                    search.sessionId,
+                    searchOptions,
+                    totalResults,
+                    extendedResults,
+                    currentSearchResults.loadedServerResults + serverHits.size,
                 )
 
                 _searchUiState.value =
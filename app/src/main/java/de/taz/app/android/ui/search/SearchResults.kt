@@ -2,11 +2,16 @@ package de.taz.app.android.ui.search
 
 import de.taz.app.android.api.models.SearchHit
 
+/**
+ * @param sessionId The session of the server search or null if the results were only found locally
+ * @param loadedServerResults The number of results returned by the server, used as offset to load more
+ */
 data class SearchResults(
-    val sessionId: String,
+    val sessionId: String?,
     val searchOptions: SearchOptions,
     val totalResults: Int,
-    val results: List<SearchHit>
+    val results: List<SearchHit>,
+    val loadedServerResults: Int = results.size,
 ) {
     val loadedResults = results.size
-}
\ No newline at end of file
+}
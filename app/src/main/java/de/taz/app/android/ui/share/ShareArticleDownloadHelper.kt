@@ -2,7 +2,7 @@ package de.taz.app.android.ui.share
 
 import android.content.Context
 import de.taz.app.android.api.models.Article
-import de.taz.app.android.data.HTTP_CLIENT_ENGINE
+import de.taz.app.android.data.HttpTransport
 import de.taz.app.android.persistence.repository.FileEntryRepository
 import de.taz.app.android.singletons.StoragePathService
 import de.taz.app.android.util.Log
@@ -25,8 +25,9 @@ private const val ARTICLE_SHARE_CACHE_PATH = "share"
  * The PDFs are downloaded to the Android cache folder and must be deleted regularly by the App.
  * Android only deletes cache files automatically if the system disk is running low on space.
  *
- * [ShareArticleDownloadHelper] is using its custom [HttpClient] to download the PDFs, because the
- * central [FileDownloader] only works for [FileEntry]s stored in the local database.
+ * [ShareArticleDownloadHelper] is using its own [HttpClient] on the shared [HttpTransport] to
+ * download the PDFs, because the central [FileDownloader] only works for [FileEntry]s stored in
+ * the local database.
  * We can't use this mechanism here, because [SearchHit]s might also be shared.
  */
 class ShareArticleDownloadHelper(private val applicationContext: Context) {
@@ -40,7 +41,7 @@ class ShareArticleDownloadHelper(private val applicationContext: Context) {
     private val storagePathService = StoragePathService.getInstance(applicationContext)
 
     private val httpClient by lazy {
-        HttpClient(HTTP_CLIENT_ENGINE) {
+        HttpTransport.httpClient.config {
             expectSuccess = true
         }
     }
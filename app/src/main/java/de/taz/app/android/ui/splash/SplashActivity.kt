@@ -29,6 +29,7 @@ import de.taz.app.android.api.models.AppInfo
 import de.taz.app.android.api.models.AppInfoKey
 import de.taz.app.android.api.models.ResourceInfoKey
 import de.taz.app.android.base.StartupActivity
+import de.taz.app.android.content.ArticleSearchService
 import de.taz.app.android.content.ContentService
 import de.taz.app.android.content.FeedService
 import de.taz.app.android.content.cache.CacheOperationFailedException
@@ -526,7 +527,13 @@ class SplashActivity : StartupActivity() {
         applicationScope.launch {
             checkForNewestIssue(feedService, toastHelper)
             clearCustomPDFThumbnailLoaderCache(applicationContext)
-            Scrubber(applicationContext).scrubMinimal()
+            Scrubber(applicationContext).apply {
+                scrubMinimal()
+                scrubIncrementally()
+            }
+        }
+        applicationScope.launch {
+            ArticleSearchService.getInstance(applicationContext).backfill()
         }
     }
 
@@ -17,7 +17,8 @@ class AppWebChromeClient(
         // Ensure that the onRenderedCallBack is only triggered once.
         // There seems to be some weird behavior on how often this onProgressChanged is called:
         // see: https://stackoverflow.com/a/32705123/2347168
-        if (newProgress == 100 && newProgress != prevProgress && prevUrl != view.url) {
+        // The blank page loaded by the [WebViewPool] to start the renderer is ignored.
+        if (newProgress == 100 && newProgress != prevProgress && prevUrl != view.url && view.url != BLANK_PAGE_URL) {
             prevProgress = newProgress
             prevUrl = view.url
             onRenderedCallBack?.let { it() }
@@ -13,10 +13,12 @@ import androidx.core.content.ContextCompat
 import androidx.core.net.toUri
 import de.taz.app.android.ADVERTISEMENT_URL_STRING
 import de.taz.app.android.R
+import de.taz.app.android.api.models.FileEntry
 import de.taz.app.android.persistence.repository.FileEntryRepository
 import de.taz.app.android.sentry.SentryWrapper
 import de.taz.app.android.singletons.StorageService
 import de.taz.app.android.tracking.Tracker
+import de.taz.app.android.util.LatencyMetric
 import de.taz.app.android.util.Log
 import kotlinx.coroutines.runBlocking
 import java.io.File
@@ -39,6 +41,13 @@ class AppWebViewClient(
     private val callBack: AppWebViewClientCallBack
 ) : WebViewClient() {
 
+    companion object {
+        /**
+         * Time spent to resolve and open the local file of an intercepted WebView request
+         */
+        val interceptionLatency = LatencyMetric("WebView request interception", logInterval = 500L)
+    }
+
     private val log by Log
     private val storageService = StorageService.getInstance(applicationContext)
     private val fileEntryRepository = FileEntryRepository.getInstance(applicationContext)
@@ -69,15 +78,13 @@ class AppWebViewClient(
             return true
         }
         
-        return runBlocking {
-            val decodedUrl = URLDecoder.decode(url, "UTF-8")
-            if (handleLinks(decodedUrl)) {
-                createNewFragment(decodedUrl)
-            } else {
-                handleIfAd(decodedUrl)
-                callBack.onExternalLinkClicked(webView.context, url.toUri())
-                true
-            }
+        val decodedUrl = URLDecoder.decode(url, "UTF-8")
+        return if (handleLinks(decodedUrl)) {
+            createNewFragment(decodedUrl)
+        } else {
+            handleIfAd(decodedUrl)
+            callBack.onExternalLinkClicked(webView.context, url.toUri())
+            true
         }
     }
 
@@ -97,7 +104,7 @@ class AppWebViewClient(
     /* internal links should be handled by the app, external ones - by a web browser
     this function checks whether a link is internal
      */
-    private suspend fun handleLinks(url: String): Boolean {
+    private fun handleLinks(url: String): Boolean {
         return url.startsWith("file:///") || checkIfWeHaveLocally(url)
     }
 
@@ -139,10 +146,11 @@ class AppWebViewClient(
             return null
         }
 
-        return runBlocking {
+        return interceptionLatency.measure {
             val decodedUrl = URLDecoder.decode(url, "UTF-8")
-            if (handleLinks(decodedUrl)) {
-                createCustomWebResourceResponse(decodedUrl)
+            val fileEntry = getLocalFileEntry(decodedUrl)
+            if (decodedUrl.startsWith("file:///") || fileEntry != null) {
+                createCustomWebResourceResponse(decodedUrl, fileEntry)
             } else {
                 null
             }
@@ -150,20 +158,26 @@ class AppWebViewClient(
     }
 
     /**
-     * intercept links to "resources/" and "global/" and point them to the correct directories
+     * Get the [FileEntry] of the file referenced by [url] from the in-memory index of the
+     * [FileEntryRepository]. Only if the file was not indexed yet the database is queried.
      */
-    private suspend fun overrideInternalLinks(url: String): String? {
+    private fun getLocalFileEntry(url: String): FileEntry? {
         val fileName = url.substring(url.lastIndexOf('/') + 1, url.length)
-        val fileEntry = fileEntryRepository.get(fileName)
-        return fileEntry?.let { return storageService.getFileUri(it) }
+        val indexed = fileEntryRepository.getIndexedOrNull(fileName)
+        return if (indexed != null) {
+            indexed.fileEntry
+        } else {
+            runBlocking { fileEntryRepository.getIndexed(fileName) }
+        }
     }
 
     /**
      * handle correctly different resource types
      * TODO not sure whether these are all possible resource types and whether all mimeTypes are correct
      */
-    private suspend fun createCustomWebResourceResponse(url: String): WebResourceResponse? {
-        val internalUrl = overrideInternalLinks(url)
+    private fun createCustomWebResourceResponse(url: String, fileEntry: FileEntry?): WebResourceResponse? {
+        // intercept links to "resources/" and "global/" and point them to the correct directories
+        val internalUrl = fileEntry?.let { storageService.getFileUri(it) }
         if (internalUrl == null) {
             log.info("Could not create internal url for url=$url")
             return null
@@ -196,9 +210,8 @@ class AppWebViewClient(
         }
     }
 
-    private suspend fun checkIfWeHaveLocally(url: String): Boolean {
-        val fileName = url.substring(url.lastIndexOf('/') + 1, url.length)
-        return (fileEntryRepository.get(fileName) != null)
+    private fun checkIfWeHaveLocally(url: String): Boolean {
+        return getLocalFileEntry(url) != null
     }
 
     override fun onPageFinished(webview: WebView, url: String) {
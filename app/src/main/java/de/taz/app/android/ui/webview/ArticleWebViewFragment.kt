@@ -4,6 +4,7 @@ import android.annotation.SuppressLint
 import android.content.Context
 import android.os.Build
 import android.os.Bundle
+import android.view.LayoutInflater
 import android.view.View
 import android.view.ViewGroup
 import androidx.core.view.marginBottom
@@ -71,8 +72,10 @@ class ArticleWebViewFragment :
     private var oldScrollXOnMultiColumnSaved = false
     private var isInitial = true
 
+    private var pooledWebView: AppWebView? = null
+
     override val webView: AppWebView?
-        get() = viewBinding?.webView
+        get() = pooledWebView
 
     override val loadingScreen: View?
         get() = viewBinding?.loadingScreen
@@ -143,9 +146,22 @@ class ArticleWebViewFragment :
         }
     }
 
+    override fun onCreateView(
+        inflater: LayoutInflater,
+        container: ViewGroup?,
+        savedInstanceState: Bundle?
+    ): View? {
+        val view = super.onCreateView(inflater, container, savedInstanceState)
+        viewBinding?.webViewContainer?.let {
+            pooledWebView = WebViewPool.getInstance(requireContext().applicationContext).attachTo(it)
+        }
+        return view
+    }
+
     override fun onDestroyView() {
         webView?.showTapIconsListener = null
         super.onDestroyView()
+        pooledWebView = null
     }
 
     override suspend fun reloadAfterCssChange() {
@@ -5,6 +5,7 @@ import android.content.Context
 import android.content.Intent
 import android.net.Uri
 import android.webkit.JavascriptInterface
+import androidx.annotation.UiThread
 import androidx.browser.customtabs.CustomTabColorSchemeParams
 import androidx.browser.customtabs.CustomTabsIntent
 import androidx.core.content.ContextCompat
@@ -22,10 +23,10 @@ import de.taz.app.android.tracking.Tracker
 import de.taz.app.android.ui.ImagePagerActivity
 import de.taz.app.android.util.Json
 import de.taz.app.android.util.Log
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.launch
-import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.serialization.Serializable
 import java.util.concurrent.ConcurrentHashMap
 
 
@@ -34,6 +35,12 @@ const val PREFERENCES_TAZAPI = "preferences_tazapi"
 const val IMAGE_NAME = "image_name"
 const val TRACKING_INTERVAL_MS = 1000L
 
+@Serializable
+private data class ArticleStates(
+    val bookmarked: List<String>,
+    val enqueued: List<String>,
+)
+
 class TazApiJS(private val webViewFragment: WebViewFragment<*, out WebViewViewModel<*>, out ViewBinding>) {
 
     private val log by Log
@@ -46,6 +53,8 @@ class TazApiJS(private val webViewFragment: WebViewFragment<*, out WebViewViewMo
 
     private val tracker = Tracker.getInstance(applicationContext)
 
+    private val bookmarkMutex = Mutex()
+
     @JavascriptInterface
     fun getConfiguration(name: String): String {
         log.verbose("getConfiguration $name")
@@ -163,49 +172,51 @@ class TazApiJS(private val webViewFragment: WebViewFragment<*, out WebViewViewMo
     }
 
     /**
-     * @return Array of article names encoded as JSON
+     * Load the bookmark and playlist state of all articles in the current webview in a single
+     * round trip. The work is done asynchronously and the result is passed back to the JS via
+     * `tazApi.resolveRequest(requestId, result)`, so that the JS thread is never blocked.
+     * The result is an object with the arrays `bookmarked` and `enqueued` of article names.
      */
     @JavascriptInterface
-    fun getBookmarkedArticleNames(articleNamesJson: String): String {
-        val articleNames: List<String> = try {
-            Json.decodeFromString(articleNamesJson)
-        } catch (e: IllegalArgumentException) {
-            log.warn("Could not decode articleNames passed from JS: $articleNamesJson", e)
-            emptyList()
-        }
+    fun requestArticleStates(requestId: Int, bookmarkNamesJson: String, enqueuedNamesJson: String) {
+        val bookmarkNames = decodeArticleNames(bookmarkNamesJson)
+        val enqueuedNames = decodeArticleNames(enqueuedNamesJson).map { it.replace("PlaylistAdd.", "") }
 
-        val bookmarkedArticleNames = runBlocking {
-            webViewFragment.setupBookmarkHandling(articleNames)
-        }
-        return Json.encodeToString(bookmarkedArticleNames)
-    }
-
-    @JavascriptInterface
-    fun setBookmark(articleName: String, isBookmarked: Boolean, showNotification: Boolean) {
-        runBlocking {
-            // Set the tap lock, so it will not additionally scroll (when tap to scroll is activated)
-            webViewFragment.preventTap.set(true)
-            webViewFragment.onSetBookmark(articleName, isBookmarked, showNotification)
+        webViewFragment.lifecycleScope.launch {
+            val articleStates = ArticleStates(
+                bookmarked = webViewFragment.setupBookmarkHandling(bookmarkNames),
+                enqueued = webViewFragment.setupEnqueuedHandling(enqueuedNames),
+            )
+            resolveRequest(requestId, Json.encodeToString(articleStates))
         }
     }
 
-    /**
-     * @return Array of article names encoded as JSON
-     */
-    @JavascriptInterface
-    fun getEnqueuedArticleNames(articleNamesJson: String): String {
-        val articleNamesWithPrefix: List<String> = try {
+    private fun decodeArticleNames(articleNamesJson: String): List<String> {
+        return try {
             Json.decodeFromString(articleNamesJson)
         } catch (e: IllegalArgumentException) {
             log.warn("Could not decode articleNames passed from JS: $articleNamesJson", e)
             emptyList()
         }
+    }
+
+    @UiThread
+    private fun resolveRequest(requestId: Int, resultJson: String) {
+        webViewFragment.webView?.evaluateJavascript(
+            "tazApi.resolveRequest($requestId, $resultJson);", null
+        )
+    }
 
-        val articleNames = articleNamesWithPrefix.map { it.replace("PlaylistAdd.","") }
-        val enqueuedArticleNames = runBlocking {
-            webViewFragment.setupEnqueuedHandling(articleNames)
+    @JavascriptInterface
+    fun setBookmark(articleName: String, isBookmarked: Boolean, showNotification: Boolean) {
+        // Set the tap lock, so it will not additionally scroll (when tap to scroll is activated)
+        webViewFragment.preventTap.set(true)
+        webViewFragment.lifecycleScope.launch {
+            // Apply the changes in the order they were made in the webview
+            bookmarkMutex.withLock {
+                webViewFragment.onSetBookmark(articleName, isBookmarked, showNotification)
+            }
         }
-        return Json.encodeToString(enqueuedArticleNames)
     }
 
     @JavascriptInterface
@@ -47,6 +47,7 @@ import de.taz.app.android.tracking.Tracker
 import de.taz.app.android.ui.ViewBorder
 import de.taz.app.android.ui.bookmarks.BookmarkViewerActivity
 import de.taz.app.android.ui.issueViewer.IssueViewerViewModel
+import de.taz.app.android.util.LatencyMetric
 import de.taz.app.android.util.Log
 import de.taz.app.android.monkey.getHideViewOnScrollBehavior
 import kotlinx.coroutines.Dispatchers
@@ -71,6 +72,9 @@ private const val SAVE_SCROLL_POS_DEBOUNCE_MS = 100L
 private const val TAP_LOCK_JS_DELAY_MS = 50L
 private const val TAP_LOCK_DELAY_MS = 500L
 
+// Time from loading the displayable into the WebView until its page is rendered
+private val pageRenderLatency = LatencyMetric("WebView page rendering", logInterval = 20L)
+
 @Retention(AnnotationRetention.SOURCE)
 @IntDef(SCROLL_BACKWARDS, SCROLL_FORWARD)
 private annotation class ScrollDirection
@@ -106,6 +110,7 @@ abstract class WebViewFragment<
     private var saveScrollPositionJob: Job? = null
 
     private var currentDisplayableKey: String? = null
+    private var loadStartNanos: Long? = null
 
     open var isCurrentlyVisible: Boolean = false
 
@@ -554,6 +559,10 @@ abstract class WebViewFragment<
     open suspend fun togglePlay(mediaSyncId: Int?, filePath: String?) = Unit
 
     open fun onPageRendered() {
+        loadStartNanos?.let {
+            pageRenderLatency.record(System.nanoTime() - it)
+            loadStartNanos = null
+        }
         isRendered = true
     }
 
@@ -579,6 +588,7 @@ abstract class WebViewFragment<
     }
 
     private suspend fun loadUrl(url: String) = withContext(Dispatchers.Main) {
+        loadStartNanos = System.nanoTime()
         webView?.loadUrl(url)
     }
 
@@ -592,6 +602,10 @@ abstract class WebViewFragment<
             log.info("Displayable is ${displayable.key}")
             try {
                 contentService.downloadToCache(displayable, priority = DownloadPriority.High)
+                // Index all files of the displayable at once, so the WebView can resolve them without database queries
+                fileEntryRepository.preloadIndex(
+                    displayable.getAllFiles(requireContext().applicationContext).map { it.name }
+                )
                 val displayableFile = fileEntryRepository.get(displayable.key)
                 val path = displayableFile?.let {
                     storageService.getFileUri(it)
@@ -0,0 +1,145 @@
+package de.taz.app.android.ui.webview
+
+import android.annotation.SuppressLint
+import android.content.Context
+import android.content.MutableContextWrapper
+import android.os.Looper
+import android.os.MessageQueue
+import android.view.View
+import android.view.ViewGroup
+import android.webkit.WebSettings
+import androidx.annotation.UiThread
+import de.taz.app.android.R
+import de.taz.app.android.util.Log
+import de.taz.app.android.util.SingletonHolder
+
+// Number of WebViews kept ready to be used by the next fragments
+private const val WEBVIEW_POOL_SIZE = 2
+// Log the pool hit rate every this many acquired WebViews
+private const val WEBVIEW_POOL_LOG_INTERVAL = 20
+
+const val BLANK_PAGE_URL = "about:blank"
+
+/**
+ * Keeps a few pre-created and pre-configured [AppWebView]s, so that the fragments showing an
+ * article do not have to create a WebView while the user is swiping.
+ *
+ * Creating a WebView is expensive, especially the first one which has to load the WebView
+ * provider. The pool is only filled while the main thread is idle and each WebView has its
+ * renderer started with a blank page.
+ * The WebViews are created with a [MutableContextWrapper] of the application context and get the
+ * context of the acquiring fragment once they are used. They are not returned to the pool but
+ * have to be destroyed by the fragment as before.
+ *
+ * The pooled WebViews are not pre-rendered with upcoming articles: the tazApi JS interface and
+ * the WebViewClient are bound to the fragment showing the article, so a WebView can only load its
+ * content once it is acquired. The pager already renders the articles next to the selected one
+ * offscreen, and the files of the article after those are only indexed in advance.
+ */
+class WebViewPool private constructor(private val applicationContext: Context) {
+    companion object : SingletonHolder<WebViewPool, Context>(::WebViewPool)
+
+    private val log by Log
+
+    private val pool = ArrayDeque<AppWebView>()
+    private var fillIdleHandler: MessageQueue.IdleHandler? = null
+
+    private var hitCount = 0
+    private var missCount = 0
+
+    /**
+     * Start to fill the pool as soon as the main thread is idle.
+     */
+    @UiThread
+    fun warmUp() {
+        scheduleFill()
+    }
+
+    /**
+     * Get a WebView to be used with [context]. A pooled WebView is used if one is ready,
+     * otherwise a new one is created.
+     */
+    @UiThread
+    fun acquire(context: Context): AppWebView {
+        val pooledWebView = pool.removeFirstOrNull()
+        val webView = if (pooledWebView != null) {
+            hitCount++
+            (pooledWebView.context as MutableContextWrapper).baseContext = context
+            pooledWebView
+        } else {
+            missCount++
+            AppWebView(MutableContextWrapper(context))
+        }
+
+        val acquiredCount = hitCount + missCount
+        if (acquiredCount % WEBVIEW_POOL_LOG_INTERVAL == 0) {
+            log.info("WebView pool: $hitCount of $acquiredCount WebViews were taken from the pool")
+        }
+        scheduleFill()
+        return webView
+    }
+
+    /**
+     * Acquire a WebView and add it as the only child filling the [container].
+     */
+    @UiThread
+    fun attachTo(container: ViewGroup): AppWebView {
+        return acquire(container.context).apply {
+            id = R.id.web_view
+            overScrollMode = View.OVER_SCROLL_NEVER
+            container.addView(
+                this,
+                ViewGroup.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT,
+                    ViewGroup.LayoutParams.MATCH_PARENT
+                )
+            )
+        }
+    }
+
+    /**
+     * Destroy all pooled WebViews, for example when the system is low on memory.
+     */
+    @UiThread
+    fun clear() {
+        // Do not fill the pool again in the background
+        fillIdleHandler?.let { Looper.myQueue().removeIdleHandler(it) }
+        fillIdleHandler = null
+        pool.forEach { it.destroy() }
+        pool.clear()
+    }
+
+    @UiThread
+    private fun scheduleFill() {
+        if (fillIdleHandler != null || pool.size >= WEBVIEW_POOL_SIZE) {
+            return
+        }
+        // Create one WebView at a time, so that the main thread is never blocked for long
+        val idleHandler = MessageQueue.IdleHandler {
+            pool.addLast(createWebView())
+            val needsMore = pool.size < WEBVIEW_POOL_SIZE
+            if (!needsMore) {
+                fillIdleHandler = null
+            }
+            needsMore
+        }
+        fillIdleHandler = idleHandler
+        Looper.myQueue().addIdleHandler(idleHandler)
+    }
+
+    @SuppressLint("SetJavaScriptEnabled")
+    private fun createWebView(): AppWebView {
+        return AppWebView(MutableContextWrapper(applicationContext)).apply {
+            settings.apply {
+                allowFileAccess = true
+                useWideViewPort = true
+                loadWithOverviewMode = true
+                domStorageEnabled = true
+                javaScriptEnabled = true
+                cacheMode = WebSettings.LOAD_NO_CACHE
+            }
+            // Start the renderer, so that the first real page can be shown immediately
+            loadUrl(BLANK_PAGE_URL)
+        }
+    }
+}
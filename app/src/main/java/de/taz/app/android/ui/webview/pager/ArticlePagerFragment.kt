@@ -86,6 +86,7 @@ import de.taz.app.android.ui.share.ShareArticleBottomSheet
 import de.taz.app.android.ui.webview.ArticleWebViewFragment.CollapsibleLayoutProvider
 import de.taz.app.android.ui.webview.HelpFabViewModel
 import de.taz.app.android.ui.webview.TapIconsViewModel
+import de.taz.app.android.ui.webview.WebViewPool
 import de.taz.app.android.util.Log
 import de.taz.app.android.monkey.getHideViewOnScrollBehavior
 import de.taz.app.android.monkey.isArticleKey
@@ -103,6 +104,8 @@ import kotlinx.coroutines.flow.onEach
 import kotlinx.coroutines.launch
 import kotlin.math.abs
 
+private const val ARTICLE_PAGER_OFFSCREEN_PAGE_LIMIT = 2
+
 class ArticlePagerFragment : BaseMainFragment<FragmentWebviewArticlePagerBinding>(), BackFragment,
     CollapsibleLayoutProvider {
 
@@ -477,9 +480,31 @@ class ArticlePagerFragment : BaseMainFragment<FragmentWebviewArticlePagerBinding
     private fun setupViewPager() {
         viewBinding?.webviewPagerViewpager?.apply {
             orientation = ViewPager2.ORIENTATION_HORIZONTAL
-            offscreenPageLimit = 2
+            offscreenPageLimit = ARTICLE_PAGER_OFFSCREEN_PAGE_LIMIT
             registerOnPageChangeCallback(pageChangeListener)
         }
+        WebViewPool.getInstance(requireContext().applicationContext).warmUp()
+    }
+
+    /**
+     * The pager already renders the [ARTICLE_PAGER_OFFSCREEN_PAGE_LIMIT] articles next to the
+     * selected one. Index the files of the article following them in the swipe [direction], so
+     * that its WebView can resolve them without querying the database once the pager creates it.
+     */
+    private fun prepareUpcomingArticle(adapter: ArticlePagerAdapter, position: Int, direction: Int) {
+        if (abs(direction) != 1) {
+            return
+        }
+        val upcomingPosition = position + direction * (ARTICLE_PAGER_OFFSCREEN_PAGE_LIMIT + 1)
+        val upcomingItem = adapter.articlePagerItems.getOrNull(upcomingPosition)
+        if (upcomingItem !is ArticlePagerItem.ArticleRepresentation) {
+            return
+        }
+        val applicationContext = requireContext().applicationContext
+        lifecycleScope.launch(Dispatchers.IO) {
+            val upcomingFiles = upcomingItem.art.article.getAllFiles(applicationContext)
+            fileEntryRepository.preloadIndex(upcomingFiles.map { it.name })
+        }
     }
 
     /**
@@ -538,6 +563,7 @@ class ArticlePagerFragment : BaseMainFragment<FragmentWebviewArticlePagerBinding
                 val adapter = (webviewPagerViewpager.adapter as ArticlePagerAdapter)
                 val selectedItem = adapter.articlePagerItems[position]
                 val prevItem = lastPage?.let { adapter.articlePagerItems[it] }
+                lastPage?.let { prepareUpcomingArticle(adapter, position, position - it) }
 
                 when (selectedItem) {
                     is ArticlePagerItem.ArticleRepresentation -> {
@@ -0,0 +1,68 @@
+package de.taz.app.android.util
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * A lock free, process wide aggregate of durations measured for some operation.
+ * It is meant for cheap instrumentation of hot paths: recording a sample only updates a few
+ * atomic counters and every [logInterval] samples a summary is written to the debug log.
+ *
+ * @param name A human readable name of the measured operation, used in the log output
+ * @param logInterval The number of samples after which a summary is logged. 0 disables logging.
+ */
+class LatencyMetric(
+    val name: String,
+    private val logInterval: Long = 0L
+) {
+    private val log by Log
+
+    private val count = AtomicLong(0L)
+    private val totalNanos = AtomicLong(0L)
+    private val maxNanos = AtomicLong(0L)
+
+    /**
+     * The number of recorded samples
+     */
+    val sampleCount: Long
+        get() = count.get()
+
+    /**
+     * The average duration of all recorded samples in microseconds
+     */
+    val averageMicros: Long
+        get() = count.get().let { if (it > 0L) totalNanos.get() / it / 1_000L else 0L }
+
+    /**
+     * The longest recorded duration in microseconds
+     */
+    val maxMicros: Long
+        get() = maxNanos.get() / 1_000L
+
+    /**
+     * Record a single duration
+     * @param durationNanos The measured duration in nanoseconds
+     */
+    fun record(durationNanos: Long) {
+        totalNanos.addAndGet(durationNanos)
+        var currentMax = maxNanos.get()
+        while (durationNanos > currentMax && !maxNanos.compareAndSet(currentMax, durationNanos)) {
+            currentMax = maxNanos.get()
+        }
+        val samples = count.incrementAndGet()
+        if (logInterval > 0L && samples % logInterval == 0L) {
+            log.debug("$name: $samples samples, average ${averageMicros}µs, max ${maxMicros}µs")
+        }
+    }
+
+    /**
+     * Execute [block] and record its duration
+     */
+    inline fun <T> measure(block: () -> T): T {
+        val start = System.nanoTime()
+        try {
+            return block()
+        } finally {
+            record(System.nanoTime() - start)
+        }
+    }
+}
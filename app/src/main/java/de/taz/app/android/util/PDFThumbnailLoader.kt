@@ -15,6 +15,7 @@ import com.bumptech.glide.load.model.MultiModelLoaderFactory
 import com.bumptech.glide.module.AppGlideModule
 import com.bumptech.glide.signature.ObjectKey
 import de.taz.app.android.ui.pdfViewer.MuPDFThumbnail
+import de.taz.app.android.ui.pdfViewer.mupdf.MuPDFDocumentCache
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.withContext
 import java.io.File
@@ -54,17 +55,23 @@ class PDFThumbnailLoader: ModelLoader<String, Bitmap> {
         private val width: Int
     ): DataFetcher<Bitmap> {
         override fun loadData(priority: Priority, callback: DataFetcher.DataCallback<in Bitmap>) {
-            val thumbnail = MuPDFThumbnail(input)
+            // The document is shared with the pdf pager, so it is only parsed once
+            val documentReference = try {
+                MuPDFDocumentCache.acquire(input)
+            } catch (e: Exception) {
+                callback.onLoadFailed(e)
+                return
+            }
             try {
                 // create thumbnail for first page of pdf file
-                val output: Bitmap = thumbnail.thumbnail(width)
+                val output: Bitmap = MuPDFThumbnail(documentReference.core).thumbnail(width)
                 // send output data
                 callback.onDataReady(output)
             } catch (e: Exception) {
                 // if error
                 callback.onLoadFailed(e)
             } finally {
-                thumbnail.onDestroy()
+                documentReference.release()
             }
         }
 
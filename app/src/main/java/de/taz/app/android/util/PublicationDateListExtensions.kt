@@ -1,6 +1,7 @@
 package de.taz.app.android.util
 
 import de.taz.app.android.api.models.PublicationDate
+import de.taz.app.android.api.models.PublicationDateList
 import java.util.Date
 
 /**
@@ -9,6 +10,10 @@ import java.util.Date
  * so that the list remains sorted upon inserting [search]
  */
 private fun List<PublicationDate>.binarySearchDateInDescendingList (search: Date) : Int {
+    // Search the compact list directly without materializing the PublicationDates
+    if (this is PublicationDateList) {
+        return this.binarySearchDate(search)
+    }
     return this.binarySearch { publicationDate ->
         val cmp = publicationDate.date.compareTo(search)
 
@@ -27,7 +32,11 @@ fun List<PublicationDate>.getIndexOfDate(search: Date): Int {
     // we extra check whether [search] is at the beginning of the list,
     // since in that case binarySearch is inefficient.
     // And we have the case often (e.g. skipping to the newest issue in CoverFlow)
-    if (this.getOrNull(0)?.date == search) {
+    if (this is PublicationDateList) {
+        if (epochDays.isNotEmpty() && epochDays[0] == PublicationDateList.dateToEpochDay(search)) {
+            return 0
+        }
+    } else if (this.getOrNull(0)?.date == search) {
         return 0
     }
     val index = this.binarySearchDateInDescendingList(search)
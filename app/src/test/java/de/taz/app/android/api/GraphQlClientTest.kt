@@ -14,18 +14,25 @@ import de.taz.app.android.util.Json
 import de.taz.test.SingletonTestUtil
 import io.ktor.client.HttpClient
 import io.ktor.client.engine.mock.MockEngine
+import io.ktor.client.engine.mock.MockRequestHandler
 import io.ktor.client.engine.mock.respond
 import io.ktor.client.plugins.contentnegotiation.ContentNegotiation
 import io.ktor.http.ContentType
 import io.ktor.http.headersOf
 import io.ktor.serialization.kotlinx.json.json
 import io.ktor.serialization.kotlinx.serialization
+import io.ktor.utils.io.ByteReadChannel
+import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.ObsoleteCoroutinesApi
+import kotlinx.coroutines.async
 import kotlinx.coroutines.newSingleThreadContext
 import kotlinx.coroutines.runBlocking
 import kotlinx.coroutines.test.setMain
+import kotlinx.coroutines.yield
+import kotlinx.serialization.json.decodeFromStream
+import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Rule
@@ -34,6 +41,10 @@ import org.mockito.Mock
 import org.mockito.Mockito.doReturn
 import org.mockito.MockitoAnnotations
 import java.io.File
+import java.util.concurrent.atomic.AtomicInteger
+
+private const val APP_INFO_RESPONSE =
+    "{\"data\":{\"product\":{\"appType\":\"production\",\"appName\":\"taz\"}}}"
 
 class GraphQlClientTest {
 
@@ -64,10 +75,7 @@ class GraphQlClientTest {
             addHandler { request ->
                 if (request.url.toString() == BuildConfig.GRAPHQL_ENDPOINT_PREFIX + BuildConfig.GRAPHQL_ENDPOINT) {
                     val responseHeaders = headersOf("Content-Type" to listOf("application/json"))
-                    respond(
-                        "{\"data\":{\"product\":{\"appType\":\"production\",\"appName\":\"taz\"}}}",
-                        headers = responseHeaders
-                    )
+                    respond(APP_INFO_RESPONSE, headers = responseHeaders)
                 } else {
                     throw IllegalStateException("This mock client does not handle ${request.url}")
                 }
@@ -108,4 +116,97 @@ class GraphQlClientTest {
             assertTrue(wrapperDto.data?.product!!.appType!! == AppTypeDto.production)
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    fun largeResponseIsDecodedFromTheStream() {
+        runBlocking {
+            doReturn(Query("\"query\":\"query { product { feedList { name } } }\""))
+                .`when`(queryServiceMock).get(QueryType.IssueByFeedAndDate)
+            val body = requireNotNull(javaClass.getResourceAsStream("/testIssue.json")).use {
+                it.readBytes()
+            }
+            val graphQlClient = createGraphQlClient {
+                // Provide the body as a channel, so that it is not received as a whole
+                respond(
+                    ByteReadChannel(body),
+                    headers = headersOf("Content-Type" to listOf("application/json"))
+                )
+            }
+
+            val wrapperDto: WrapperDto = graphQlClient.query(QueryType.IssueByFeedAndDate)
+            assertEquals(Json.decodeFromStream<WrapperDto>(body.inputStream()), wrapperDto)
+        }
+    }
+
+    @Test
+    fun concurrentIdenticalQueriesShareOneRequest() {
+        runBlocking {
+            doReturn(Query("\"query\":\"query { product { appType appName }}\""))
+                .`when`(queryServiceMock).get(QueryType.AppInfo)
+            val requestCount = AtomicInteger(0)
+            val response = CompletableDeferred<Unit>()
+            val graphQlClient = createGraphQlClient {
+                requestCount.incrementAndGet()
+                response.await()
+                respond(APP_INFO_RESPONSE, headers = headersOf("Content-Type" to listOf("application/json")))
+            }
+
+            val first = async { graphQlClient.query(QueryType.AppInfo) }
+            val second = async { graphQlClient.query(QueryType.AppInfo) }
+            while (graphQlClient.joinedQueries == 0L) {
+                yield()
+            }
+            response.complete(Unit)
+
+            assertEquals(first.await(), second.await())
+            assertEquals(1, requestCount.get())
+        }
+    }
+
+    @Test
+    fun queryIsRetriedIfTheSharedRequestIsCancelled() {
+        runBlocking {
+            doReturn(Query("\"query\":\"query { product { appType appName }}\""))
+                .`when`(queryServiceMock).get(QueryType.AppInfo)
+            val requestCount = AtomicInteger(0)
+            val firstRequestStarted = CompletableDeferred<Unit>()
+            val graphQlClient = createGraphQlClient {
+                if (requestCount.incrementAndGet() == 1) {
+                    firstRequestStarted.complete(Unit)
+                    // The first request never returns, its caller is cancelled
+                    CompletableDeferred<Unit>().await()
+                }
+                respond(APP_INFO_RESPONSE, headers = headersOf("Content-Type" to listOf("application/json")))
+            }
+
+            val owner = async { graphQlClient.query(QueryType.AppInfo) }
+            firstRequestStarted.await()
+            val waiting = async { graphQlClient.query(QueryType.AppInfo) }
+            while (graphQlClient.joinedQueries == 0L) {
+                yield()
+            }
+            owner.cancel()
+
+            assertTrue(waiting.await().data?.product!!.appName!! == AppNameDto.taz)
+            assertEquals(2, requestCount.get())
+        }
+    }
+
+    private fun createGraphQlClient(handler: MockRequestHandler): GraphQlClient {
+        val httpClient = HttpClient(MockEngine) {
+            install(ContentNegotiation) {
+                json(Json)
+                serialization(ContentType.Any, Json)
+            }
+            engine {
+                addHandler(handler)
+            }
+        }
+        return GraphQlClient(
+            httpClient,
+            BuildConfig.GRAPHQL_ENDPOINT_PREFIX + BuildConfig.GRAPHQL_ENDPOINT,
+            queryService = queryServiceMock,
+            authHelper = AuthHelper(application, dataStore)
+        )
+    }
+}
@@ -0,0 +1,51 @@
+package de.taz.app.android.api
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Test
+
+class QueryCacheTest {
+
+    private var now = 0L
+    private val cache = QueryCache<String, String>(maxSize = 2, clock = { now })
+
+    @Test
+    fun expireAfterTimeToLive() {
+        cache.put("moment", "a", 1_000L)
+        cache.put("feed", "b", 100L)
+
+        now = 500L
+        assertEquals("a", cache.get("moment"))
+        assertNull(cache.get("feed"))
+        assertEquals(1, cache.size)
+
+        now = 1_000L
+        assertNull(cache.get("moment"))
+        assertEquals(1L, cache.hitCount)
+        assertEquals(2L, cache.missCount)
+    }
+
+    @Test
+    fun evictLeastRecentlyUsed() {
+        cache.put("a", "a", 1_000L)
+        cache.put("b", "b", 1_000L)
+        cache.get("a")
+        cache.put("c", "c", 1_000L)
+
+        assertEquals(2, cache.size)
+        assertEquals("a", cache.get("a"))
+        assertNull(cache.get("b"))
+        assertEquals("c", cache.get("c"))
+    }
+
+    @Test
+    fun dropExpiredEntriesOnPut() {
+        cache.put("issue", "a", 100L)
+
+        now = 100L
+        cache.put("moment", "b", 1_000L)
+
+        assertEquals(1, cache.size)
+        assertEquals("b", cache.get("moment"))
+    }
+}
@@ -0,0 +1,79 @@
+package de.taz.app.android.api
+
+import de.taz.app.android.api.dto.WrapperDto
+import de.taz.app.android.util.Json
+import de.taz.test.assumeBenchmarksEnabled
+import kotlinx.serialization.json.decodeFromStream
+import org.junit.Before
+import org.junit.Test
+import java.lang.management.ManagementFactory
+import java.lang.management.MemoryType
+
+private const val WARM_UP_RUNS = 5
+private const val MEASURED_RUNS = 20
+
+/**
+ * Compare decoding the GraphQL responses in the test fixtures from a buffered body text
+ * with decoding them directly from the stream, as done by the [GraphQlClient].
+ * The average parse time, the bytes allocated per decode and the peak heap usage are printed.
+ * Only runs if the benchmarks are enabled, see [assumeBenchmarksEnabled].
+ */
+class WrapperDtoDecodingBenchmarkTest {
+
+    private val fixtures = listOf("/testIssue.json", "/testIssue2.json")
+
+    private val threadMXBean =
+        ManagementFactory.getThreadMXBean() as? com.sun.management.ThreadMXBean
+
+    private val heapPools = ManagementFactory.getMemoryPoolMXBeans()
+        .filter { it.type == MemoryType.HEAP }
+
+    @Before
+    fun setUp() {
+        assumeBenchmarksEnabled()
+    }
+
+    private fun readBytes(fixture: String): ByteArray =
+        requireNotNull(javaClass.getResourceAsStream(fixture)).use { it.readBytes() }
+
+    private fun decodeBuffered(body: ByteArray): WrapperDto {
+        val text = body.inputStream().bufferedReader().use { it.readText() }
+        return Json.decodeFromString(text)
+    }
+
+    private fun decodeStreaming(body: ByteArray): WrapperDto =
+        body.inputStream().buffered().use { Json.decodeFromStream(it) }
+
+    private fun measure(name: String, body: ByteArray, decode: (ByteArray) -> WrapperDto) {
+        repeat(WARM_UP_RUNS) { decode(body) }
+
+        val threadId = Thread.currentThread().id
+        val allocatedBefore = threadMXBean?.getThreadAllocatedBytes(threadId) ?: 0L
+        val start = System.nanoTime()
+        repeat(MEASURED_RUNS) { decode(body) }
+        val durationMicros = (System.nanoTime() - start) / 1_000L / MEASURED_RUNS
+        val allocated = threadMXBean?.getThreadAllocatedBytes(threadId)
+            ?.let { (it - allocatedBefore) / MEASURED_RUNS }
+
+        // The peak is measured for a single decode starting from a collected heap
+        System.gc()
+        val heapBefore = heapPools.sumOf { it.usage.used }
+        heapPools.forEach { it.resetPeakUsage() }
+        decode(body)
+        val peakHeap = heapPools.sumOf { it.peakUsage.used } - heapBefore
+
+        println(
+            "$name: ${body.size} bytes in ${durationMicros}µs, ${allocated ?: "?"} bytes allocated " +
+                "per decode, $peakHeap bytes peak heap"
+        )
+    }
+
+    @Test
+    fun compareBufferedAndStreamingDecoding() {
+        fixtures.forEach { fixture ->
+            val body = readBytes(fixture)
+            measure("buffered $fixture", body, ::decodeBuffered)
+            measure("streaming $fixture", body, ::decodeStreaming)
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package de.taz.app.android.api
+
+import de.taz.app.android.api.dto.WrapperDto
+import de.taz.app.android.util.Json
+import kotlinx.serialization.json.decodeFromStream
+import org.junit.Assert.assertEquals
+import org.junit.Test
+
+/**
+ * Ensure decoding the GraphQL responses in the test fixtures directly from the stream, as done by
+ * the [GraphQlClient], results in the same DTOs as decoding them from a buffered body text.
+ */
+class WrapperDtoDecodingTest {
+
+    private val fixtures = listOf("/testIssue.json", "/testIssue2.json")
+
+    private fun readBytes(fixture: String): ByteArray =
+        requireNotNull(javaClass.getResourceAsStream(fixture)).use { it.readBytes() }
+
+    private fun decodeBuffered(body: ByteArray): WrapperDto {
+        val text = body.inputStream().bufferedReader().use { it.readText() }
+        return Json.decodeFromString(text)
+    }
+
+    private fun decodeStreaming(body: ByteArray): WrapperDto =
+        body.inputStream().buffered().use { Json.decodeFromStream(it) }
+
+    @Test
+    fun streamingDecodesSameDtos() {
+        fixtures.forEach { fixture ->
+            val body = readBytes(fixture)
+            assertEquals(decodeBuffered(body), decodeStreaming(body))
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package de.taz.app.android.content
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.api.models.Article
+import de.taz.app.android.api.models.Sorting
+import de.taz.app.android.persistence.repository.ArticleRepository
+import de.taz.app.android.persistence.search.ArticleSearchDocument
+import de.taz.app.android.persistence.search.ArticleSearchIndex
+import de.taz.app.android.singletons.StorageService
+import de.taz.test.Fixtures
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.SingletonTestUtil
+import io.ktor.utils.io.ByteReadChannel
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class ArticleSearchServiceTest {
+
+    private lateinit var context: Context
+    private lateinit var articleSearchIndex: ArticleSearchIndex
+
+    private val articles = listOf("art1.html", "art2.html").map { createArticle(it) }
+
+    @Before
+    fun setUp() {
+        SingletonTestUtil.resetAll()
+
+        context = ApplicationProvider.getApplicationContext()
+        // A null database name creates an in-memory database
+        articleSearchIndex = ArticleSearchIndex(context, null)
+        ArticleSearchIndex.inject(articleSearchIndex)
+        ArticleRepository.inject(mock {
+            onBlocking { get(any<List<String>>()) } doReturn articles
+        })
+    }
+
+    @After
+    fun tearDown() {
+        articleSearchIndex.close()
+    }
+
+    @Test
+    fun `stale results do not reduce the number of hits`() = runTest {
+        val storageService = StorageService.getInstance(context)
+        articles.forEach {
+            storageService.writeFile(
+                requireNotNull(it.articleHtml),
+                ByteReadChannel("<p>Klimapolitik</p>".toByteArray())
+            )
+        }
+        articleSearchIndex.save(
+            listOf(
+                createDocument("art1.html", "2024-01-02"),
+                createDocument("art2.html", "2024-01-03"),
+                // The newest result has been deleted meanwhile
+                createDocument("deleted.html", "2024-01-04"),
+            )
+        )
+
+        val hits = ArticleSearchService.getInstance(context).search(
+            "klima", null, null, null, null, Sorting.actuality, limit = 2
+        )
+
+        assertEquals(listOf("art2.html", "art1.html"), hits.map { it.articleFileName })
+    }
+
+    private fun createArticle(articleFileName: String): Article = Fixtures.articleBase.copy(
+        articleStub = Fixtures.articleBase.articleStub.copy(articleFileName = articleFileName),
+        articleHtml = Fixtures.fileEntry.copy(
+            name = articleFileName,
+            path = "taz/$articleFileName",
+            storageLocation = StorageLocation.INTERNAL,
+        ),
+    )
+
+    private fun createDocument(articleFileName: String, issueDate: String) = ArticleSearchDocument(
+        articleFileName, "taz", issueDate, "Titel", "", "", "Klimapolitik"
+    )
+}
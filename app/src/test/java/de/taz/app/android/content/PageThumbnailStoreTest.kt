@@ -0,0 +1,97 @@
+package de.taz.app.android.content
+
+import android.content.Context
+import android.graphics.Bitmap
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.singletons.StorageService
+import de.taz.test.Fixtures
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.SingletonTestUtil
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class PageThumbnailStoreTest {
+
+    private lateinit var pageThumbnailStore: PageThumbnailStore
+    private lateinit var thumbnailDir: File
+
+    private val pdfFileEntry = Fixtures.fileEntry.copy(
+        name = "page01.pdf", sha256 = "pageSha256", storageLocation = StorageLocation.INTERNAL
+    )
+
+    @Before
+    fun setUp() {
+        SingletonTestUtil.resetAll()
+
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        pageThumbnailStore = PageThumbnailStore.getInstance(context)
+        thumbnailDir = File(StorageService.getInstance(context).getInternalFilesDir(), THUMBNAIL_DIR)
+            .apply { mkdirs() }
+    }
+
+    private fun createThumbnailFile(size: PageThumbnailSize): File {
+        return File(thumbnailDir, "${pdfFileEntry.sha256}_${size.width}.webp").apply {
+            writeText("Hello World")
+        }
+    }
+
+    @Test
+    fun smallestThumbnailThatIsBigEnoughIsReturned() = runTest {
+        val small = createThumbnailFile(PageThumbnailSize.SMALL)
+        val medium = createThumbnailFile(PageThumbnailSize.MEDIUM)
+
+        assertEquals(small, pageThumbnailStore.getThumbnail(pdfFileEntry, 300))
+        assertEquals(small, pageThumbnailStore.getThumbnail(pdfFileEntry, PageThumbnailSize.SMALL.width))
+        assertEquals(medium, pageThumbnailStore.getThumbnail(pdfFileEntry, 500))
+        assertNull(pageThumbnailStore.getThumbnail(pdfFileEntry, 1_000))
+
+        small.delete()
+        assertEquals(medium, pageThumbnailStore.getThumbnail(pdfFileEntry, 300))
+    }
+
+    @Test
+    fun storedThumbnailIsReturnedWithoutRendering() = runTest {
+        val medium = createThumbnailFile(PageThumbnailSize.MEDIUM)
+
+        // Rendering would fail, as there is no PDF at this path
+        assertEquals(
+            medium, pageThumbnailStore.getOrCreateThumbnail(pdfFileEntry, "missing.pdf", 500)
+        )
+        assertNull(pageThumbnailStore.getOrCreateThumbnail(pdfFileEntry, "missing.pdf", 1_000))
+    }
+
+    @Test
+    fun savedThumbnailIsCompleteAndHasNoTemporaryFile() {
+        val bitmap = Bitmap.createBitmap(40, 60, Bitmap.Config.ARGB_8888)
+        val file = File(thumbnailDir, "${pdfFileEntry.sha256}_${PageThumbnailSize.SMALL.width}.webp")
+
+        pageThumbnailStore.save(bitmap, file)
+
+        assertTrue(file.exists())
+        assertTrue(file.length() > 0L)
+        assertFalse(File(file.path + ".tmp").exists())
+    }
+
+    @Test
+    fun deleteRemovesAllSizes() = runTest {
+        createThumbnailFile(PageThumbnailSize.SMALL)
+        createThumbnailFile(PageThumbnailSize.MEDIUM)
+
+        pageThumbnailStore.delete(pdfFileEntry)
+
+        assertNull(pageThumbnailStore.getThumbnail(pdfFileEntry, 300))
+        assertTrue(pageThumbnailStore.getThumbnailFilesBySha256(StorageLocation.INTERNAL).isEmpty())
+    }
+}
@@ -0,0 +1,103 @@
+package de.taz.app.android.content.cache
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.interfaces.DownloadableCollection
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.download.DownloadPriority
+import de.taz.app.android.persistence.AppDatabase
+import de.taz.app.android.persistence.repository.FileEntryRepository
+import de.taz.app.android.singletons.StoragePathService
+import de.taz.app.android.singletons.StorageService
+import de.taz.test.Fixtures
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.SingletonTestUtil
+import io.ktor.utils.io.ByteReadChannel
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import java.util.Date
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class ContentDownloadTest {
+
+    private lateinit var context: Context
+    private lateinit var db: AppDatabase
+    private lateinit var fileEntryRepository: FileEntryRepository
+    private lateinit var storageService: StorageService
+
+    private val unchangedFile = createFileEntry("unchanged.html")
+    private val changedFile = createFileEntry("changed.html")
+    private val missingFile = createFileEntry("missing.html")
+
+    private val collection = object : DownloadableCollection {
+        override val dateDownload: Date? = null
+        override suspend fun getAllFiles(applicationContext: Context) =
+            listOf(unchangedFile, changedFile.copy(moTime = 2L, sha256 = "changed"), missingFile)
+
+        override suspend fun getDownloadDate(applicationContext: Context): Date? = null
+        override suspend fun setDownloadDate(date: Date?, applicationContext: Context) = Unit
+        override fun getDownloadTag() = "collection"
+    }
+
+    @Before
+    fun setUp() {
+        SingletonTestUtil.resetAll()
+
+        context = ApplicationProvider.getApplicationContext()
+        db = Room.inMemoryDatabaseBuilder(
+            context, AppDatabase::class.java
+        ).build()
+        AppDatabase.inject(db)
+
+        StoragePathService.inject(mock {
+            onBlocking { determineBaseUrls(any(), any()) } doReturn
+                    mapOf(StorageType.issue to "https://example.com")
+        })
+        fileEntryRepository = FileEntryRepository.getInstance(context)
+        storageService = StorageService.getInstance(context)
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun `only changed and missing files are downloaded again`() = runTest {
+        listOf(unchangedFile, changedFile, missingFile).forEach { fileEntry ->
+            fileEntryRepository.save(fileEntry)
+            storageService.writeFile(fileEntry, ByteReadChannel("Hello World".toByteArray()))
+        }
+        File(requireNotNull(storageService.getAbsolutePath(missingFile))).delete()
+
+        val contentDownload = ContentDownload.prepare(context, collection, DownloadPriority.Normal)
+
+        assertEquals(
+            listOf(changedFile.name, missingFile.name),
+            contentDownload.cacheItems.map { it.key }.sorted()
+        )
+    }
+
+    private fun createFileEntry(name: String) = Fixtures.fileEntry.copy(
+        name = name,
+        storageType = StorageType.issue,
+        moTime = 1L,
+        dateDownload = Date(),
+        path = "issue/$name",
+        storageLocation = StorageLocation.INTERNAL,
+    )
+}
@@ -0,0 +1,81 @@
+package de.taz.app.android.data
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import kotlin.random.Random
+
+class CircuitBreakerTest {
+
+    private var nowMs = 0L
+    private val circuitBreaker = CircuitBreaker(
+        initialOpenTimeMs = 100L,
+        maxOpenTimeMs = 400L,
+        backOffFactor = 2f,
+        random = Random(42),
+        currentTimeMs = { nowMs },
+    )
+
+    @Test
+    fun failureOpensForJitteredBackOffTime() {
+        circuitBreaker.onFailure()
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.state.value)
+        val remainingMs = circuitBreaker.getRemainingOpenTimeMs()
+        assertTrue(remainingMs in 50L..100L)
+        assertFalse(circuitBreaker.tryHalfOpen())
+
+        nowMs += remainingMs
+        assertTrue(circuitBreaker.tryHalfOpen())
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state.value)
+        // Only a single probe is allowed
+        assertFalse(circuitBreaker.tryHalfOpen())
+    }
+
+    @Test
+    fun failedProbeIncreasesBackOffTime() {
+        circuitBreaker.onFailure()
+        nowMs += circuitBreaker.getRemainingOpenTimeMs()
+        circuitBreaker.tryHalfOpen()
+
+        circuitBreaker.onProbeFailure()
+
+        assertEquals(1L, circuitBreaker.failedProbes.value)
+        assertTrue(circuitBreaker.getRemainingOpenTimeMs() in 100L..200L)
+    }
+
+    @Test
+    fun concurrentFailuresDoNotProlongBackOffTime() {
+        circuitBreaker.onFailure()
+        val remainingMs = circuitBreaker.getRemainingOpenTimeMs()
+
+        circuitBreaker.onFailure()
+
+        assertEquals(remainingMs, circuitBreaker.getRemainingOpenTimeMs())
+    }
+
+    @Test
+    fun failuresOfOtherRequestsAreNoFailedProbes() {
+        circuitBreaker.onFailure()
+        nowMs += circuitBreaker.getRemainingOpenTimeMs()
+        circuitBreaker.tryHalfOpen()
+
+        circuitBreaker.onFailure()
+
+        assertEquals(0L, circuitBreaker.failedProbes.value)
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state.value)
+    }
+
+    @Test
+    fun newNetworkAllowsProbeImmediately() {
+        circuitBreaker.onFailure()
+
+        circuitBreaker.onNetworkAvailable()
+
+        assertEquals(0L, circuitBreaker.getRemainingOpenTimeMs())
+        assertTrue(circuitBreaker.tryHalfOpen())
+        circuitBreaker.onSuccess()
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state.value)
+    }
+}
@@ -0,0 +1,138 @@
+package de.taz.app.android.data
+
+import de.taz.app.android.api.ConnectivityException
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+import kotlin.test.assertFailsWith
+
+private const val TEST_TIMEOUT_MS = 5_000L
+
+class ConnectionHelperTest {
+
+    private val circuitBreaker = CircuitBreaker(
+        initialOpenTimeMs = 10L,
+        maxOpenTimeMs = 20L,
+        backOffFactor = 2f,
+    )
+
+    private class TestConnectionHelper(
+        connectivityMonitor: ConnectivityMonitor,
+        circuitBreaker: CircuitBreaker,
+        private val probe: suspend () -> Boolean,
+    ) : ConnectionHelper(connectivityMonitor, circuitBreaker) {
+        var probeCount = 0
+
+        override suspend fun checkConnectivity(): Boolean {
+            probeCount++
+            return probe()
+        }
+    }
+
+    private fun createConnectivityMonitor(isConnected: Boolean): ConnectivityMonitor = mock {
+        on { this.isConnected } doReturn MutableStateFlow(isConnected)
+        on { validatedNetworkCount } doReturn MutableStateFlow(0L)
+    }
+
+    @Test
+    fun limitedRetriesFailWithoutNetwork() = runBlocking {
+        val connectionHelper = TestConnectionHelper(
+            createConnectivityMonitor(isConnected = false), circuitBreaker
+        ) { true }
+
+        assertFailsWith<ConnectivityException.Recoverable> {
+            withTimeout(TEST_TIMEOUT_MS) {
+                connectionHelper.retryOnConnectivityFailure(maxRetries = 2) {
+                    throw ConnectivityException.NoInternetException()
+                }
+            }
+        }
+        // Without a network no probe is sent
+        assertEquals(0, connectionHelper.probeCount)
+    }
+
+    @Test
+    fun failureWhileProbingIsNoFailedProbe() = runBlocking {
+        val probeStarted = CompletableDeferred<Unit>()
+        val probeResult = CompletableDeferred<Boolean>()
+        val connectionHelper = TestConnectionHelper(
+            createConnectivityMonitor(isConnected = true), circuitBreaker
+        ) {
+            probeStarted.complete(Unit)
+            probeResult.await()
+        }
+
+        // A slow request sent before the circuit was opened fails while the probe is sent
+        val slowRequestStarted = CompletableDeferred<Unit>()
+        val slowRequestFailing = CompletableDeferred<Unit>()
+        val slowRequestFailed = CompletableDeferred<Unit>()
+        val slowRequest = async {
+            connectionHelper.retryOnConnectivityFailure(
+                onConnectionFailure = { slowRequestFailed.complete(Unit) }
+            ) {
+                if (!slowRequestStarted.isCompleted) {
+                    slowRequestStarted.complete(Unit)
+                    slowRequestFailing.await()
+                    throw ConnectivityException.NoInternetException()
+                }
+                "slow"
+            }
+        }
+        slowRequestStarted.await()
+
+        var hasFailed = false
+        val request = async {
+            connectionHelper.retryOnConnectivityFailure {
+                if (!hasFailed) {
+                    hasFailed = true
+                    throw ConnectivityException.NoInternetException()
+                }
+                "fast"
+            }
+        }
+
+        withTimeout(TEST_TIMEOUT_MS) { probeStarted.await() }
+        slowRequestFailing.complete(Unit)
+        slowRequestFailed.await()
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.state.value)
+        assertEquals(0L, circuitBreaker.failedProbes.value)
+
+        probeResult.complete(true)
+        withTimeout(TEST_TIMEOUT_MS) {
+            assertEquals("slow", slowRequest.await())
+            assertEquals("fast", request.await())
+        }
+        assertEquals(1, connectionHelper.probeCount)
+        assertEquals(0L, circuitBreaker.failedProbes.value)
+    }
+
+    @Test
+    fun failureRightAfterRecoveryIsRecovered() = runBlocking(Dispatchers.Default) {
+        val connectionHelper = TestConnectionHelper(
+            createConnectivityMonitor(isConnected = true), circuitBreaker
+        ) { true }
+
+        // Each failure is sent as soon as the previous recovery closed the circuit, so that some
+        // of them reopen the circuit while the recovery job is just finishing
+        repeat(100) {
+            var hasFailed = false
+            withTimeout(TEST_TIMEOUT_MS) {
+                connectionHelper.retryOnConnectivityFailure {
+                    if (!hasFailed) {
+                        hasFailed = true
+                        throw ConnectivityException.NoInternetException()
+                    }
+                }
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.state.value)
+    }
+}
@@ -0,0 +1,160 @@
+package de.taz.app.android.data
+
+import de.taz.test.RobolectricTestApplication
+import io.ktor.client.request.get
+import io.ktor.client.request.header
+import io.ktor.client.statement.bodyAsText
+import io.ktor.http.HttpHeaders
+import io.ktor.http.HttpStatusCode
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.net.SocketException
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+private const val BODY = "Hello World"
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class HttpTransportTest {
+
+    private lateinit var server: KeepAliveServer
+    private lateinit var url: String
+
+    @Before
+    fun setUp() {
+        server = KeepAliveServer()
+        url = "http://127.0.0.1:${server.port}/file.pdf"
+    }
+
+    @After
+    fun tearDown() {
+        server.close()
+    }
+
+    @Test
+    fun plainRequestAcceptsGzip() = runBlocking {
+        val response = HttpTransport.httpClient.get(url)
+
+        assertEquals(BODY, response.bodyAsText())
+        assertEquals("gzip", server.requests.single()[HttpHeaders.AcceptEncoding.lowercase()])
+    }
+
+    @Test
+    fun rangeRequestIsSentWithoutGzip() = runBlocking {
+        val response = HttpTransport.httpClient.get(url) {
+            header(HttpHeaders.Range, "bytes=6-")
+        }
+
+        assertEquals(HttpStatusCode.PartialContent, response.status)
+        assertEquals("World", response.bodyAsText())
+        val request = server.requests.single()
+        assertEquals("bytes=6-", request[HttpHeaders.Range.lowercase()])
+        assertNull(request[HttpHeaders.AcceptEncoding.lowercase()])
+    }
+
+    @Test
+    fun connectionsAreCountedAsNewOnlyWhenOpened() = runBlocking {
+        // The pool might still hold connections to the servers of other tests
+        HttpTransport.okHttpClient.connectionPool.evictAll()
+        val newConnections = HttpRequestTimings.newConnections
+        val reusedConnections = HttpRequestTimings.reusedConnections
+
+        repeat(3) {
+            assertEquals(BODY, HttpTransport.httpClient.get(url).bodyAsText())
+        }
+
+        assertEquals(1, server.acceptedConnections.get())
+        assertEquals(newConnections + 1, HttpRequestTimings.newConnections)
+        assertEquals(reusedConnections + 2, HttpRequestTimings.reusedConnections)
+    }
+
+    @Test
+    fun failedConnectionIsNotCounted() = runBlocking {
+        server.close()
+        val newConnections = HttpRequestTimings.newConnections
+        val reusedConnections = HttpRequestTimings.reusedConnections
+
+        val result = runCatching { HttpTransport.httpClient.get(url) }
+
+        assertFalse(result.isSuccess)
+        assertEquals(newConnections, HttpRequestTimings.newConnections)
+        assertEquals(reusedConnections, HttpRequestTimings.reusedConnections)
+    }
+
+    /**
+     * A minimal HTTP/1.1 server keeping its connections open. It answers every request with
+     * [BODY], or with the requested part of it for a Range request, and records the headers
+     * (with lowercase names) of all requests.
+     */
+    private class KeepAliveServer : AutoCloseable {
+        private val serverSocket = ServerSocket(0, 0, InetAddress.getLoopbackAddress())
+        private val sockets = ConcurrentLinkedQueue<Socket>()
+
+        val port: Int = serverSocket.localPort
+        val requests = ConcurrentLinkedQueue<Map<String, String>>()
+        val acceptedConnections = AtomicInteger(0)
+
+        init {
+            thread(isDaemon = true) {
+                try {
+                    while (true) {
+                        val socket = serverSocket.accept()
+                        acceptedConnections.incrementAndGet()
+                        sockets.add(socket)
+                        thread(isDaemon = true) { serve(socket) }
+                    }
+                } catch (e: SocketException) {
+                    // The server has been closed
+                }
+            }
+        }
+
+        private fun serve(socket: Socket) {
+            try {
+                val reader = socket.getInputStream().bufferedReader()
+                val output = socket.getOutputStream()
+                while (true) {
+                    reader.readLine() ?: return
+                    val headers = generateSequence { reader.readLine()?.takeIf { it.isNotEmpty() } }
+                        .associate {
+                            it.substringBefore(":").trim().lowercase() to it.substringAfter(":").trim()
+                        }
+                    requests.add(headers)
+
+                    val range = headers[HttpHeaders.Range.lowercase()]
+                    val offset = range?.removePrefix("bytes=")?.removeSuffix("-")?.toInt() ?: 0
+                    val body = BODY.substring(offset)
+                    val status = if (range != null) "206 Partial Content" else "200 OK"
+                    output.write(
+                        ("HTTP/1.1 $status\r\n" +
+                                "Content-Length: ${body.length}\r\n" +
+                                "Content-Type: text/plain\r\n" +
+                                "\r\n" +
+                                body).toByteArray()
+                    )
+                    output.flush()
+                }
+            } catch (e: SocketException) {
+                // The client or the server closed the connection
+            }
+        }
+
+        override fun close() {
+            serverSocket.close()
+            sockets.forEach { it.close() }
+        }
+    }
+}
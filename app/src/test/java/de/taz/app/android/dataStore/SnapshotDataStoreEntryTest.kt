@@ -0,0 +1,164 @@
+package de.taz.app.android.dataStore
+
+import androidx.datastore.core.DataStore
+import androidx.datastore.preferences.core.Preferences
+import androidx.datastore.preferences.core.emptyPreferences
+import androidx.datastore.preferences.core.stringPreferencesKey
+import kotlinx.coroutines.CompletableDeferred
+import kotlinx.coroutines.async
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.emitAll
+import kotlinx.coroutines.flow.filterNotNull
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.test.runTest
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.IOException
+import kotlin.test.assertFailsWith
+
+class SnapshotDataStoreEntryTest {
+
+    private val key = stringPreferencesKey("token")
+
+    /**
+     * A [DataStore] whose emissions are controlled by the test: writes are not emitted on their own.
+     */
+    private class FakeDataStore(initial: Preferences) : DataStore<Preferences> {
+        val emissions = MutableStateFlow(initial)
+        var current = initial
+        var writeGate: CompletableDeferred<Unit>? = null
+        var writeFailure: Exception? = null
+        var readFailure: Exception? = null
+
+        override val data: Flow<Preferences> = flow {
+            readFailure?.let {
+                readFailure = null
+                throw it
+            }
+            emitAll(emissions)
+        }
+
+        override suspend fun updateData(transform: suspend (t: Preferences) -> Preferences): Preferences {
+            writeGate?.await()
+            writeFailure?.let { throw it }
+            return transform(current).also { current = it }
+        }
+    }
+
+    private fun preferencesWith(value: String): Preferences {
+        return emptyPreferences().toMutablePreferences().apply { this[key] = value }
+    }
+
+    private suspend fun awaitEmission(dataStore: FakeDataStore, preferences: Preferences) {
+        DataStoreSnapshot.of(dataStore).preferences.filterNotNull().first { it == preferences }
+    }
+
+    @Test
+    fun `get returns the stored value and the default`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+        awaitEmission(dataStore, preferencesWith("old"))
+
+        assertEquals("old", entry.get())
+
+        dataStore.emissions.value = emptyPreferences()
+        awaitEmission(dataStore, emptyPreferences())
+        assertEquals("", entry.get())
+    }
+
+    @Test
+    fun `a new value is returned while it is written`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+        awaitEmission(dataStore, preferencesWith("old"))
+
+        val writeGate = CompletableDeferred<Unit>()
+        dataStore.writeGate = writeGate
+        val write = async { entry.set("new") }
+        yield()
+
+        assertEquals("new", entry.get())
+        writeGate.complete(Unit)
+        write.await()
+        assertEquals("new", entry.get())
+    }
+
+    @Test
+    fun `an older emission after the write does not return the previous value`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+        awaitEmission(dataStore, preferencesWith("old"))
+
+        entry.set("new")
+        // Emit the previous value again, as if it had been delivered late along with another key
+        val olderPreferences = preferencesWith("old").toMutablePreferences().apply {
+            this[stringPreferencesKey("other")] = "other"
+        }
+        dataStore.emissions.value = olderPreferences
+        awaitEmission(dataStore, olderPreferences)
+        assertEquals("new", entry.get())
+
+        // Once the DataStore emitted the new value, it is no longer pending
+        dataStore.emissions.value = dataStore.current
+        awaitEmission(dataStore, preferencesWith("new"))
+        dataStore.emissions.value = preferencesWith("other")
+        awaitEmission(dataStore, preferencesWith("other"))
+        assertEquals("other", entry.get())
+    }
+
+    @Test
+    fun `a failed write returns the previous value again`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+        awaitEmission(dataStore, preferencesWith("old"))
+
+        dataStore.writeFailure = IOException("Disk full")
+        assertFailsWith<IOException> { entry.set("new") }
+
+        assertEquals("old", entry.get())
+    }
+
+    @Test
+    fun `setting the stored value again does not hide later changes`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+        awaitEmission(dataStore, preferencesWith("old"))
+
+        // The value does not change, so the DataStore emits nothing
+        entry.set("old")
+        dataStore.emissions.value = preferencesWith("other")
+        awaitEmission(dataStore, preferencesWith("other"))
+
+        assertEquals("other", entry.get())
+    }
+
+    @Test
+    fun `a value replaced before it was emitted does not hide the new value`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+        awaitEmission(dataStore, preferencesWith("old"))
+
+        // The emission of the written value is skipped as it is replaced right away
+        entry.set("new")
+        dataStore.emissions.value = preferencesWith("other")
+        awaitEmission(dataStore, preferencesWith("other"))
+
+        assertEquals("other", entry.get())
+    }
+
+    @Test
+    fun `reading the snapshot is retried after a read error`() = runTest {
+        val dataStore = FakeDataStore(preferencesWith("old"))
+        dataStore.readFailure = IOException("Could not read")
+        val entry = SnapshotDataStoreEntry(dataStore, key, "")
+
+        awaitEmission(dataStore, preferencesWith("old"))
+        dataStore.emissions.value = preferencesWith("new")
+        awaitEmission(dataStore, preferencesWith("new"))
+
+        assertEquals("new", entry.get())
+    }
+}
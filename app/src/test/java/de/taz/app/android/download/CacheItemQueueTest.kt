@@ -0,0 +1,112 @@
+package de.taz.app.android.download
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.content.TestFileDownloader
+import de.taz.app.android.content.cache.ContentDownload
+import de.taz.app.android.content.cache.FileCacheItem
+import de.taz.app.android.content.cache.FileEntryOperation
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.SingletonTestUtil
+import kotlinx.coroutines.test.runTest
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class CacheItemQueueTest {
+
+    private lateinit var context: Context
+
+    @Before
+    fun setUp() {
+        SingletonTestUtil.resetAll()
+        context = ApplicationProvider.getApplicationContext()
+        FileDownloader.inject(object : TestFileDownloader() {
+            override suspend fun fakeDownloadItem(item: FileCacheItem, operation: ContentDownload) = Unit
+        })
+    }
+
+    private fun createItem(name: String, size: Long): FileCacheItem {
+        val fileEntry = FileEntry(
+            name, StorageType.issue, 0L, "sha256", size, null, "issue/$name", StorageLocation.INTERNAL
+        )
+        return FileCacheItem(
+            name,
+            { DownloadPriority.Normal },
+            FileEntryOperation(fileEntry, "/tmp/$name", "https://example.com/$name")
+        )
+    }
+
+    private fun createOperation(
+        tag: String,
+        priority: DownloadPriority,
+        vararg items: FileCacheItem
+    ): ContentDownload {
+        return ContentDownload(context, items.toList(), tag, null, priority)
+    }
+
+    private suspend fun receiveNames(count: Int): List<String> {
+        return List(count) { CacheItemQueue.receive().first.key }
+    }
+
+    @Test
+    fun filesNeededForFirstRenderAreHandedOutBeforePdfsAndAudio() = runTest {
+        val operation = createOperation(
+            "issue",
+            DownloadPriority.Normal,
+            createItem("s0001.pdf", 2_000_000L),
+            createItem("section.html", 10_000L),
+            createItem("audio.mp3", 500_000L),
+            createItem("image.jpg", 200_000L),
+            createItem("huge.jpg", 3_000_000L),
+            createItem("tazApi.css", 5_000L),
+        )
+        CacheItemQueue.sendOrNotify(operation, false)
+
+        assertEquals(
+            listOf("tazApi.css", "section.html", "image.jpg", "audio.mp3", "s0001.pdf", "huge.jpg"),
+            receiveNames(6)
+        )
+    }
+
+    @Test
+    fun higherPriorityIsHandedOutFirst() = runTest {
+        val normal = createOperation(
+            "normal", DownloadPriority.Normal, createItem("normal.html", 1_000L)
+        )
+        val high = createOperation(
+            "high", DownloadPriority.High, createItem("high.pdf", 2_000_000L)
+        )
+        CacheItemQueue.sendOrNotify(normal, false)
+        CacheItemQueue.sendOrNotify(high, false)
+
+        assertEquals(listOf("high.pdf", "normal.html"), receiveNames(2))
+    }
+
+    @Test
+    fun itemGivenBackIsHandedOutNext() = runTest {
+        val operation = createOperation(
+            "issue",
+            DownloadPriority.Normal,
+            createItem("section.html", 10_000L),
+            createItem("image.jpg", 200_000L),
+        )
+        CacheItemQueue.sendOrNotify(operation, false)
+
+        val (item, operations) = CacheItemQueue.receive()
+        CacheItemQueue.giveBack(item, operations)
+
+        val (receivedAgain, operationsAgain) = CacheItemQueue.receive()
+        assertEquals(item.key, receivedAgain.key)
+        assertEquals(listOf(operation), operationsAgain)
+        assertEquals(listOf("image.jpg"), receiveNames(1))
+    }
+}
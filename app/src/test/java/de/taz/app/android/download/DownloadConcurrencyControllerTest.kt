@@ -0,0 +1,72 @@
+package de.taz.app.android.download
+
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class DownloadConcurrencyControllerTest {
+
+    private var now = 0L
+    private val controller = DownloadConcurrencyController(
+        minLimit = 2,
+        maxLimit = 16,
+        initialLimit = 4,
+        clock = { now }
+    )
+
+    private fun completeWindow(bytesPerDownload: Long, latencyMs: Long) {
+        now += 1_000L
+        repeat(controller.limit.value) {
+            controller.onDownloadFinished(bytesPerDownload, latencyMs)
+        }
+    }
+
+    @Test
+    fun increaseLimitWhileThroughputGrows() {
+        completeWindow(1_000L, 100L)
+        assertEquals(5, controller.limit.value)
+        assertEquals(4_000L, controller.throughput.value)
+
+        completeWindow(1_000L, 100L)
+        assertEquals(6, controller.limit.value)
+        assertEquals(5_000L, controller.throughput.value)
+    }
+
+    @Test
+    fun halveLimitOnConnectionFailure() {
+        completeWindow(1_000L, 100L)
+        completeWindow(1_000L, 100L)
+        assertEquals(6, controller.limit.value)
+
+        now += 1_000L
+        repeat(6) { controller.onConnectionFailure() }
+        assertEquals(3, controller.limit.value)
+        assertTrue(controller.isAgentEnabled(2))
+        assertFalse(controller.isAgentEnabled(3))
+    }
+
+    @Test
+    fun decreaseLimitOnCongestion() {
+        completeWindow(1_000L, 100L)
+        assertEquals(5, controller.limit.value)
+
+        // Same throughput as before but with every file taking far longer
+        now += 1_000L
+        repeat(4) { controller.onDownloadFinished(1_000L, 400L) }
+        controller.onDownloadFinished(0L, 400L)
+        assertEquals(4, controller.limit.value)
+    }
+
+    @Test
+    fun limitStaysWithinBounds() {
+        repeat(5) {
+            now += 1_000L
+            repeat(controller.limit.value) { controller.onConnectionFailure() }
+        }
+        assertEquals(2, controller.limit.value)
+
+        repeat(30) { i -> completeWindow(1_000L * (i + 1), 100L) }
+        assertEquals(16, controller.limit.value)
+    }
+}
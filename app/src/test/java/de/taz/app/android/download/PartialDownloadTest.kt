@@ -0,0 +1,99 @@
+package de.taz.app.android.download
+
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.security.MessageDigest
+
+class PartialDownloadTest {
+
+    @get:Rule
+    val tmpFolder = TemporaryFolder()
+
+    private val content = ByteArray(1000) { it.toByte() }
+    private val expectedHash = MessageDigest.getInstance("SHA-256").digest(content)
+
+    @Test
+    fun restoreDigestFromPartFile() {
+        val partialDownload = PartialDownload(tmpFolder.root.absolutePath + "/file.pdf")
+        partialDownload.partFile.writeBytes(content.copyOfRange(0, 400))
+
+        assertEquals(400L, partialDownload.offset)
+        val digest = partialDownload.restoreDigest()
+        digest.update(content, 400, 600)
+        assertArrayEquals(expectedHash, digest.digest())
+    }
+
+    @Test
+    fun restoreSavedDigest() {
+        val partialDownload = PartialDownload(tmpFolder.root.absolutePath + "/file.pdf")
+        partialDownload.partFile.writeBytes(content.copyOfRange(0, 400))
+        val savedDigest = MessageDigest.getInstance("SHA-256")
+        savedDigest.update(content, 0, 400)
+        partialDownload.saveDigest(savedDigest, 400L)
+
+        val digest = partialDownload.restoreDigest()
+        assertTrue(savedDigest === digest)
+        digest.update(content, 400, 600)
+        assertArrayEquals(expectedHash, digest.digest())
+    }
+
+    @Test
+    fun ignoreSavedDigestIfPartFileChanged() {
+        val partialDownload = PartialDownload(tmpFolder.root.absolutePath + "/file.pdf")
+        partialDownload.partFile.writeBytes(content.copyOfRange(0, 300))
+        val savedDigest = MessageDigest.getInstance("SHA-256")
+        savedDigest.update(content, 0, 400)
+        partialDownload.saveDigest(savedDigest, 400L)
+
+        val digest = partialDownload.restoreDigest()
+        assertFalse(savedDigest === digest)
+        digest.update(content, 300, 700)
+        assertArrayEquals(expectedHash, digest.digest())
+    }
+
+    @Test
+    fun completeMovesPartFile() {
+        val partialDownload = PartialDownload(tmpFolder.root.absolutePath + "/file.pdf")
+        partialDownload.file.writeBytes(ByteArray(10))
+        partialDownload.partFile.writeBytes(content)
+
+        assertTrue(partialDownload.complete())
+        assertFalse(partialDownload.partFile.exists())
+        assertArrayEquals(content, partialDownload.file.readBytes())
+    }
+
+    @Test
+    fun resetDeletesPartFile() {
+        val partialDownload = PartialDownload(tmpFolder.root.absolutePath + "/file.pdf")
+        partialDownload.partFile.writeBytes(content)
+
+        partialDownload.reset()
+        assertFalse(partialDownload.partFile.exists())
+        assertEquals(0L, partialDownload.offset)
+    }
+
+    @Test
+    fun droppedDigestIsNotRestored() {
+        val partialDownload = PartialDownload(tmpFolder.root.absolutePath + "/file.pdf")
+        partialDownload.partFile.writeBytes(content.copyOfRange(0, 400))
+        val savedDigest = MessageDigest.getInstance("SHA-256")
+        savedDigest.update(content, 0, 400)
+
+        partialDownload.saveDigest(savedDigest, 400L)
+        partialDownload.dropDigest()
+        assertFalse(savedDigest === partialDownload.restoreDigest())
+
+        // Deleting the part file, e.g. by the Scrubber, drops the digest state, too
+        partialDownload.saveDigest(savedDigest, 400L)
+        PartialDownload.dropDigest(partialDownload.partFile)
+        val digest = partialDownload.restoreDigest()
+        assertFalse(savedDigest === digest)
+        digest.update(content, 400, 600)
+        assertArrayEquals(expectedHash, digest.digest())
+    }
+}
@@ -0,0 +1,243 @@
+package de.taz.app.android.persistence.dao
+
+import android.content.Context
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.sqlite.db.SupportSQLiteStatement
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.models.IssueStatus
+import de.taz.app.android.persistence.AppDatabase
+import de.taz.app.android.util.LatencyMetric
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.assumeBenchmarksEnabled
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.time.LocalDate
+import java.util.concurrent.Executor
+
+private const val FEED_NAME = "taz"
+private const val YEARS = 3L
+private const val SECTIONS_PER_ISSUE = 5
+private const val ARTICLES_PER_SECTION = 4
+// Every this many articles is bookmarked
+private const val BOOKMARK_INTERVAL = 97
+private const val MEASURED_RUNS = 50
+
+/**
+ * Seed a database with some years of daily issues and check that the frequently used DAO queries
+ * are answered with an index instead of a full table scan.
+ * The plans are determined for the SQL the DAOs actually execute, as captured by a
+ * [RoomDatabase.QueryCallback].
+ * If the benchmarks are enabled, see [assumeBenchmarksEnabled], the average and maximum latency
+ * of each DAO method is printed, too.
+ */
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class DaoQueryPlanTest {
+
+    private lateinit var appDatabase: AppDatabase
+    private lateinit var db: SupportSQLiteDatabase
+    private val executedQueries = mutableListOf<Pair<String, List<Any?>>>()
+
+    private val lastDate = LocalDate.of(2024, 6, 30)
+    private val firstDate = lastDate.minusYears(YEARS)
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        appDatabase = Room.inMemoryDatabaseBuilder(context, AppDatabase::class.java)
+            .setQueryCallback(
+                { sql, args -> synchronized(executedQueries) { executedQueries.add(sql to args) } },
+                Executor(Runnable::run)
+            )
+            .build()
+        db = appDatabase.openHelper.writableDatabase
+        seed()
+    }
+
+    @After
+    fun tearDown() {
+        appDatabase.close()
+    }
+
+    private fun seed() {
+        db.execSQL("PRAGMA foreign_keys = OFF")
+        db.beginTransaction()
+        try {
+            val insertIssue = db.compileStatement(
+                "INSERT INTO Issue (feedName, date, version, baseUrl, status, minResourceVersion, isWeekend, moTime, dateDownload) VALUES (?, ?, 1, '', ?, 1, 0, '', ?)"
+            )
+            val insertIssueSection = db.compileStatement(
+                "INSERT INTO IssueSectionJoin (issueFeedName, issueDate, issueStatus, sectionFileName, `index`) VALUES (?, ?, ?, ?, ?)"
+            )
+            val insertSectionArticle = db.compileStatement(
+                "INSERT INTO SectionArticleJoin (sectionFileName, articleFileName, `index`) VALUES (?, ?, ?)"
+            )
+            val insertArticle = db.compileStatement(
+                "INSERT INTO Article (articleFileName, issueFeedName, issueDate, pageNameList, bookmarkedTime, articleType, position, percentage, dateDownload, mediaSyncId) VALUES (?, ?, ?, '[]', ?, 'STANDARD', 0, 0, ?, ?)"
+            )
+
+            var articleCount = 0L
+            var date = firstDate
+            while (!date.isAfter(lastDate)) {
+                val dateString = date.toString()
+                insertIssue.bindAll(FEED_NAME, dateString, IssueStatus.regular.name, "$dateString 06:00:00")
+                insertIssue.executeInsert()
+
+                for (section in 0 until SECTIONS_PER_ISSUE) {
+                    val sectionFileName = "seite_${dateString}_$section.html"
+                    insertIssueSection.bindAll(FEED_NAME, dateString, IssueStatus.regular.name, sectionFileName, section.toLong())
+                    insertIssueSection.executeInsert()
+
+                    for (article in 0 until ARTICLES_PER_SECTION) {
+                        articleCount++
+                        val articleFileName = "art$articleCount.html"
+                        val bookmarkedTime = if (articleCount % BOOKMARK_INTERVAL == 0L) "$dateString 12:00:00" else null
+                        insertArticle.bindAll(articleFileName, FEED_NAME, dateString, bookmarkedTime, "$dateString 06:00:00", articleCount)
+                        insertArticle.executeInsert()
+                        insertSectionArticle.bindAll(sectionFileName, articleFileName, article.toLong())
+                        insertSectionArticle.executeInsert()
+                    }
+                }
+                date = date.plusDays(1)
+            }
+            db.setTransactionSuccessful()
+        } finally {
+            db.endTransaction()
+        }
+        db.execSQL("PRAGMA foreign_keys = ON")
+    }
+
+    private fun SupportSQLiteStatement.bindAll(vararg values: Any?) {
+        clearBindings()
+        values.forEachIndexed { index, value ->
+            when (value) {
+                null -> bindNull(index + 1)
+                is Long -> bindLong(index + 1, value)
+                else -> bindString(index + 1, value.toString())
+            }
+        }
+    }
+
+    private fun queryPlan(sql: String, args: List<Any?>): String {
+        return db.query("EXPLAIN QUERY PLAN $sql", args.toTypedArray()).use { cursor ->
+            buildList {
+                while (cursor.moveToNext()) {
+                    add(cursor.getString(cursor.getColumnIndexOrThrow("detail")))
+                }
+            }.joinToString("\n")
+        }
+    }
+
+    /**
+     * Run the DAO [query] and return its result along with the plan of the first SELECT it executed.
+     */
+    private suspend fun <T> withQueryPlan(query: suspend () -> T): Pair<T, String> {
+        synchronized(executedQueries) { executedQueries.clear() }
+        val result = query()
+        val (sql, args) = synchronized(executedQueries) {
+            executedQueries.first { it.first.trimStart().startsWith("SELECT", ignoreCase = true) }
+        }
+        return result to queryPlan(sql, args)
+    }
+
+    private suspend fun benchmark(name: String, block: suspend () -> Any?) {
+        val metric = LatencyMetric(name)
+        block()
+        repeat(MEASURED_RUNS) {
+            val start = System.nanoTime()
+            block()
+            metric.record(System.nanoTime() - start)
+        }
+        println("$name: average ${metric.averageMicros}µs, max ${metric.maxMicros}µs")
+    }
+
+    private fun assertUsesIndex(plan: String, index: String) {
+        assertTrue("Expected $index to be used:\n$plan", plan.contains(index))
+    }
+
+    @Test
+    fun getLatestByFeedDateAndStatus() = runTest {
+        val (issue, plan) = withQueryPlan {
+            appDatabase.issueDao().getLatestByFeedDateAndStatus(FEED_NAME, "2023-01-01", IssueStatus.regular)
+        }
+
+        assertUsesIndex(plan, "index_Issue_feedName_status_date")
+        assertTrue(plan, !plan.contains("TEMP B-TREE"))
+        assertEquals("2023-01-01", issue?.date)
+    }
+
+    @Test
+    fun getLastDisplayable() = runTest {
+        val (_, plan) = withQueryPlan {
+            appDatabase.issueDao().getLastDisplayable(FEED_NAME, "2023-01-01", IssueStatus.regular)
+        }
+
+        assertTrue(plan, plan.contains("USING INDEX") || plan.contains("USING PRIMARY KEY"))
+    }
+
+    @Test
+    fun getByMediaSyncId() = runTest {
+        val (article, plan) = withQueryPlan {
+            appDatabase.articleDao().getByMediaSyncId(1000)
+        }
+
+        assertUsesIndex(plan, "index_Article_mediaSyncId_dateDownload")
+        assertTrue(plan, !plan.contains("TEMP B-TREE"))
+        assertEquals("art1000.html", article?.articleFileName)
+    }
+
+    @Test
+    fun getBookmarkedArticles() = runTest {
+        val (bookmarkedArticles, plan) = withQueryPlan {
+            appDatabase.articleDao().getBookmarkedArticles()
+        }
+
+        assertUsesIndex(plan, "index_Article_bookmarkedTime")
+        val articleCount = db.query("SELECT COUNT(*) FROM Article").use {
+            it.moveToFirst()
+            it.getLong(0)
+        }
+        assertEquals(articleCount / BOOKMARK_INTERVAL, bookmarkedArticles.size.toLong())
+    }
+
+    @Test
+    fun getDownloadedIssueStorageInfos() = runTest {
+        val (storageInfos, plan) = withQueryPlan {
+            appDatabase.issueDao().getDownloadedIssueStorageInfos()
+        }
+
+        assertUsesIndex(plan, "COVERING INDEX index_Article_issueFeedName_issueDate_bookmarkedTime")
+        assertNotNull(storageInfos.firstOrNull { it.isPinned })
+    }
+
+    @Test
+    fun recordLatencies() = runTest {
+        assumeBenchmarksEnabled()
+
+        benchmark("IssueDao.getLatestByFeedDateAndStatus") {
+            appDatabase.issueDao().getLatestByFeedDateAndStatus(FEED_NAME, "2023-01-01", IssueStatus.regular)
+        }
+        benchmark("IssueDao.getLastDisplayable") {
+            appDatabase.issueDao().getLastDisplayable(FEED_NAME, "2023-01-01", IssueStatus.regular)
+        }
+        benchmark("ArticleDao.getByMediaSyncId") {
+            appDatabase.articleDao().getByMediaSyncId(1000)
+        }
+        benchmark("ArticleDao.getBookmarkedArticles") {
+            appDatabase.articleDao().getBookmarkedArticles()
+        }
+        benchmark("IssueDao.getDownloadedIssueStorageInfos") {
+            appDatabase.issueDao().getDownloadedIssueStorageInfos()
+        }
+    }
+}
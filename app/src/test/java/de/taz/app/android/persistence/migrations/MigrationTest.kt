@@ -15,10 +15,13 @@ import de.taz.app.android.api.models.AppType
 import de.taz.app.android.api.models.AudioSpeaker
 import de.taz.app.android.api.models.IssueStatus
 import de.taz.app.android.api.models.IssueStub
+import de.taz.app.android.api.models.PublicationDate
 import de.taz.app.android.api.models.SectionType
 import de.taz.app.android.persistence.AppDatabase
 import de.taz.app.android.persistence.allMigrations
 import de.taz.app.android.persistence.typeconverters.AudioSpeakerConverter
+import de.taz.app.android.persistence.typeconverters.PublicationDateListTypeConverter
+import de.taz.app.android.simpleDateFormat
 import de.taz.test.RobolectricTestApplication
 import kotlinx.coroutines.test.runTest
 import org.junit.Assert
@@ -532,4 +535,58 @@ class MigrationTest {
 
         db.close()
     }
+
+    @Test
+    fun migrate42to43() {
+        val values = ContentValues()
+        var db = helper.createDatabase(testDb, 42)
+
+        db.apply {
+            values.apply {
+                clear()
+                put("name", "taz")
+                put("displayName", "taz")
+                put("cycle", "daily")
+                put("momentRatio", 0.67f)
+                put("publicationDates", """[["2024-01-03"],["2024-01-02","2024-01-03"],["invalid"]]""")
+                put("issueMinDate", "2024-01-02")
+                put("issueMaxDate", "2024-01-03")
+            }
+            insert("Feed", CONFLICT_ABORT, values)
+        }
+
+        db = helper.runMigrationsAndValidate(testDb, 43, true, Migration42to43())
+
+        db.query("SELECT name, publicationDates FROM `Feed`").use { cursor ->
+            assertTrue(cursor.moveToFirst())
+            assertEquals("taz", cursor.getString(0))
+
+            val publicationDates = PublicationDateListTypeConverter().toDateList(cursor.getBlob(1))
+            assertEquals(
+                listOf(
+                    PublicationDate(simpleDateFormat.parse("2024-01-03")!!, null),
+                    PublicationDate(
+                        simpleDateFormat.parse("2024-01-02")!!,
+                        simpleDateFormat.parse("2024-01-03")!!
+                    ),
+                ),
+                publicationDates
+            )
+        }
+
+        db.close()
+    }
+
+    @Test
+    fun migrate43to44() {
+        var db = helper.createDatabase(testDb, 43)
+        db = helper.runMigrationsAndValidate(testDb, 44, true, Migration43to44())
+
+        db.query("EXPLAIN QUERY PLAN SELECT * FROM Issue WHERE feedName = 'taz' AND status = 'public' AND date <= '2024-01-01' ORDER BY date DESC LIMIT 1").use { cursor ->
+            assertTrue(cursor.moveToFirst())
+            assertTrue(cursor.getString(3).contains("index_Issue_feedName_status_date"))
+        }
+
+        db.close()
+    }
 }
@@ -2,6 +2,7 @@ package de.taz.app.android.persistence.repository
 
 import android.content.Context
 import androidx.room.Room
+import androidx.room.withTransaction
 import androidx.test.core.app.ApplicationProvider
 import de.taz.app.android.api.interfaces.StorageLocation
 import de.taz.app.android.api.models.FileEntry
@@ -12,7 +13,9 @@ import de.taz.test.SingletonTestUtil
 import kotlinx.coroutines.test.runTest
 import org.junit.After
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -97,6 +100,87 @@ class FileEntryRepositoryTest {
         val fromDBAfter = fileEntryRepository.get(fileEntryTest.name)
         assertNull(fromDBAfter)
     }
+
+    @Test
+    @Throws(Exception::class)
+    fun indexFollowsWrites() = runTest {
+        assertNull(fileEntryRepository.getIndexed(fileEntryTest.name))
+        assertNull(fileEntryRepository.getIndexedOrNull(fileEntryTest.name)?.fileEntry)
+
+        fileEntryRepository.save(fileEntryTest)
+        assertNull(fileEntryRepository.getIndexedOrNull(fileEntryTest.name))
+        assertEquals(fileEntryTest, fileEntryRepository.getIndexed(fileEntryTest.name))
+
+        fileEntryRepository.save(fileEntryTestWithHigherMoTime)
+        assertEquals(fileEntryTestWithHigherMoTime, fileEntryRepository.getIndexed(fileEntryTest.name))
+
+        fileEntryRepository.delete(fileEntryTestWithHigherMoTime)
+        assertNull(fileEntryRepository.getIndexed(fileEntryTest.name))
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun preloadIndex() = runTest {
+        fileEntryRepository.save(fileEntryTest)
+        fileEntryRepository.preloadIndex(listOf(fileEntryTest.name, fileEntryTest2.name))
+
+        assertEquals(fileEntryTest, fileEntryRepository.getIndexedOrNull(fileEntryTest.name)?.fileEntry)
+        assertNull(fileEntryRepository.getIndexedOrNull(fileEntryTest2.name)?.fileEntry)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun missesAreOnlyIndexedByPreload() = runTest {
+        assertNull(fileEntryRepository.getIndexed("https://example.com/image.png"))
+        assertNull(fileEntryRepository.getIndexedOrNull("https://example.com/image.png"))
+
+        fileEntryRepository.preloadIndex(listOf(fileEntryTest2.name))
+        assertNotNull(fileEntryRepository.getIndexedOrNull(fileEntryTest2.name))
+    }
+
+    @Test
+    fun indexEvictsLeastRecentlyUsed() {
+        val index = FileEntryIndex(maxSize = 2)
+        index.put("a", null, index.version("a"))
+        index.put("b", null, index.version("b"))
+        index.get("a")
+        index.put("c", null, index.version("c"))
+
+        assertEquals(2, index.size)
+        assertNotNull(index.get("a"))
+        assertNull(index.get("b"))
+        assertNotNull(index.get("c"))
+    }
+
+    @Test
+    fun writesInTransactionAreNotIndexedUntilCleared() {
+        val index = FileEntryIndex()
+        index.invalidate(fileEntryTest.name, isInTransaction = true)
+        assertTrue(index.isPending(fileEntryTest.name))
+
+        // A reader racing with the open transaction must not index the previous row
+        index.put(fileEntryTest.name, fileEntryTestWithLowerMoTime, index.version(fileEntryTest.name))
+        assertNull(index.get(fileEntryTest.name))
+
+        index.clearPending(fileEntryTest.name)
+        index.put(fileEntryTest.name, fileEntryTest, index.version(fileEntryTest.name))
+        assertEquals(fileEntryTest, index.get(fileEntryTest.name)?.fileEntry)
+    }
+
+    @Test
+    @Throws(Exception::class)
+    fun pendingNameIsReadAfterTransaction() = runTest {
+        fileEntryRepository.save(fileEntryTest)
+        db.withTransaction {
+            fileEntryRepository.save(fileEntryTestWithHigherMoTime)
+        }
+
+        assertEquals(fileEntryTestWithHigherMoTime, fileEntryRepository.getIndexed(fileEntryTest.name))
+        assertEquals(
+            fileEntryTestWithHigherMoTime,
+            fileEntryRepository.getIndexedOrNull(fileEntryTest.name)?.fileEntry
+        )
+    }
 }
 
 val fileEntryTestWithLowerMoTime = FileEntry("Ⓐ", StorageType.global, 0L, "sha256", 0, null, "folder1/Ⓐ", StorageLocation.INTERNAL)
@@ -30,6 +30,7 @@ class IssueRepositoryTest {
     private lateinit var context: Context
     private lateinit var db: AppDatabase
     private lateinit var issueRepository: IssueRepository
+    private lateinit var sectionRepository: SectionRepository
 
     private val issue = TestDataUtil.getIssue()
     private val issue2 = TestDataUtil.getIssue("testIssue2")
@@ -52,7 +53,7 @@ class IssueRepositoryTest {
         articleRepository.appDatabase = db
         val pageRepository = PageRepository.getInstance(context)
         pageRepository.appDatabase = db
-        val sectionRepository = SectionRepository.getInstance(context)
+        sectionRepository = SectionRepository.getInstance(context)
         sectionRepository.appDatabase = db
         val momentRepository = MomentRepository.getInstance(context)
         momentRepository.appDatabase = db
@@ -82,6 +83,23 @@ class IssueRepositoryTest {
         assertEquals(expected, retrievedIssue)
     }
 
+    @Test
+    fun `batched loading of the sections of an issue equals loading them one by one`() = runTest {
+        issueRepository.save(issue)
+        issueRepository.save(issue2)
+
+        val sectionStubs = sectionRepository.getSectionStubsForIssue(issue.issueKey)
+        val loadedOneByOne = sectionStubs.mapNotNull { sectionRepository.get(it.sectionFileName) }
+        val loadedBatched = sectionRepository.getSectionsForIssue(issue.issueKey)
+
+        assertEquals(issue.sectionList.map { it.key }, loadedBatched.map { it.key })
+        assertEquals(loadedOneByOne, loadedBatched)
+        loadedOneByOne.zip(loadedBatched).forEach { (oneByOne, batched) ->
+            assertEquals(oneByOne.imageList, batched.imageList)
+            assertEquals(oneByOne.articleList.map { it.key }, batched.articleList.map { it.key })
+        }
+    }
+
     @Test
     @Throws(Exception::class)
     fun readBase() = runTest {
@@ -11,6 +11,7 @@ import de.taz.test.TestDataUtil
 import kotlinx.coroutines.test.runTest
 import org.junit.After
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
 import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
@@ -25,6 +26,7 @@ class PageRepositoryTest {
 
     private lateinit var db: AppDatabase
     private lateinit var pageRepository: PageRepository
+    private lateinit var fileEntryRepository: FileEntryRepository
 
     private val issue = TestDataUtil.getIssue()
     private val pages = issue.pageList
@@ -39,7 +41,7 @@ class PageRepositoryTest {
         db = Room.inMemoryDatabaseBuilder(
             context, AppDatabase::class.java
         ).build()
-        val fileEntryRepository = FileEntryRepository.getInstance(context)
+        fileEntryRepository = FileEntryRepository.getInstance(context)
         fileEntryRepository.appDatabase = db
 
         val imageRepository = ImageRepository.getInstance(context)
@@ -84,4 +86,13 @@ class PageRepositoryTest {
         }
     }
 
+    @Test
+    @Throws(Exception::class)
+    fun deleteIfNoIssueRelatedInvalidatesFileEntryIndex() = runTest {
+        pageRepository.saveInternal(page)
+        assertEquals(page.pagePdf, fileEntryRepository.getIndexed(page.pagePdf.name))
+
+        pageRepository.deleteIfNoIssueRelated(listOf(page))
+        assertNull(fileEntryRepository.getIndexed(page.pagePdf.name))
+    }
 }
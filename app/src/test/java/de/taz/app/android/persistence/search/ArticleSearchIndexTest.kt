@@ -0,0 +1,91 @@
+package de.taz.app.android.persistence.search
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import de.taz.test.RobolectricTestApplication
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class ArticleSearchIndexTest {
+
+    private lateinit var articleSearchIndex: ArticleSearchIndex
+
+    private val bodyMatch = ArticleSearchDocument(
+        "art1.html", "taz", "2024-01-02",
+        "Wetter", "Regen am Wochenende", "Anna Autorin",
+        "In der Hauptstadt wird am Sonntag Klimapolitik diskutiert."
+    )
+    private val titleMatch = ArticleSearchDocument(
+        "art2.html", "taz", "2024-01-03",
+        "Klimapolitik im Bundestag", "Eine Debatte", "Bert Autor",
+        "Die Abgeordneten streiten."
+    )
+    private val noMatch = ArticleSearchDocument(
+        "art3.html", "taz", "2024-01-04",
+        "Fußball", "Ein Spiel", "Anna Autorin",
+        "Das Spiel endete unentschieden."
+    )
+
+    @Before
+    fun setUp() {
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        // A null database name creates an in-memory database
+        articleSearchIndex = ArticleSearchIndex(context, null)
+    }
+
+    @After
+    fun tearDown() {
+        articleSearchIndex.close()
+    }
+
+    @Test
+    fun titleMatchesAreRankedFirst() = runTest {
+        articleSearchIndex.save(listOf(bodyMatch, titleMatch, noMatch))
+
+        val results = articleSearchIndex.search("klima")
+
+        assertEquals(listOf("art2.html", "art1.html"), results.map { it.articleFileName })
+        assertTrue(results[1].snippet!!.contains(SNIPPET_START))
+    }
+
+    @Test
+    fun searchByAuthorAndDate() = runTest {
+        articleSearchIndex.save(listOf(bodyMatch, titleMatch, noMatch))
+
+        val results = articleSearchIndex.search(null, author = "anna", fromDate = "2024-01-03")
+
+        assertEquals(listOf("art3.html"), results.map { it.articleFileName })
+    }
+
+    @Test
+    fun replaceAndDeleteArticles() = runTest {
+        articleSearchIndex.save(listOf(bodyMatch, titleMatch))
+        articleSearchIndex.save(listOf(bodyMatch.copy(body = "Kein Treffer mehr.")))
+
+        assertEquals(listOf("art2.html"), articleSearchIndex.search("klima").map { it.articleFileName })
+
+        articleSearchIndex.delete(listOf("art2.html"))
+
+        assertTrue(articleSearchIndex.search("klima").isEmpty())
+        assertEquals(setOf("art1.html"), articleSearchIndex.getIndexed(listOf("art1.html", "art2.html")))
+    }
+
+    @Test
+    fun backfillIsRecorded() = runTest {
+        assertFalse(articleSearchIndex.isBackfilled())
+
+        articleSearchIndex.setBackfilled()
+
+        assertTrue(articleSearchIndex.isBackfilled())
+    }
+}
@@ -0,0 +1,66 @@
+package de.taz.app.android.persistence.typeconverters
+
+import de.taz.app.android.api.models.PublicationDate
+import de.taz.app.android.api.models.PublicationDateList
+import de.taz.app.android.simpleDateFormat
+import de.taz.app.android.util.getIndexOfDate
+import de.taz.app.android.util.getSuccessor
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class PublicationDateListTypeConverterTest {
+
+    private val converter = PublicationDateListTypeConverter()
+
+    private fun date(value: String) = requireNotNull(simpleDateFormat.parse(value))
+
+    private val publicationDates = listOf(
+        PublicationDate(date("2024-03-01"), date("2024-03-07")),
+        PublicationDate(date("2024-02-29")),
+        PublicationDate(date("2024-02-27")),
+        PublicationDate(date("1986-04-17"), date("1986-04-17")),
+    )
+
+    @Test
+    fun encodeAndDecode() {
+        val encoded = converter.toByteArray(publicationDates)
+        val decoded = converter.toDateList(encoded)
+
+        assertTrue(decoded is PublicationDateList)
+        assertEquals(publicationDates, decoded)
+    }
+
+    @Test
+    fun decodeInvalidDataLeniently() {
+        assertEquals(emptyList<PublicationDate>(), converter.toDateList(ByteArray(0)))
+        assertEquals(emptyList<PublicationDate>(), converter.toDateList(byteArrayOf(1, 10, 2)))
+    }
+
+    @Test
+    fun searchDecodedList() {
+        val decoded = converter.toDateList(converter.toByteArray(publicationDates))
+
+        assertEquals(0, decoded.getIndexOfDate(date("2024-03-01")))
+        assertEquals(2, decoded.getIndexOfDate(date("2024-02-27")))
+        assertEquals(-1, decoded.getIndexOfDate(date("2024-02-28")))
+
+        assertEquals(date("2024-02-29"), decoded.getSuccessor(date("2024-02-28")))
+        assertNull(decoded.getSuccessor(date("2024-03-02")))
+    }
+
+    @Test
+    fun compareDecodedLists() {
+        val decoded = converter.toDateList(converter.toByteArray(publicationDates))
+        val decodedAgain = converter.toDateList(converter.toByteArray(publicationDates))
+        val other = converter.toDateList(converter.toByteArray(publicationDates.drop(1)))
+
+        assertEquals(decoded, decodedAgain)
+        assertEquals(decoded.hashCode(), decodedAgain.hashCode())
+        assertNotEquals(decoded, other)
+        // The hash code is consistent with any other list of the same publication dates
+        assertEquals(publicationDates.hashCode(), decoded.hashCode())
+    }
+}
@@ -8,14 +8,19 @@ import de.taz.app.android.TAZ_API_JS_FILENAME
 import de.taz.app.android.api.interfaces.StorageLocation
 import de.taz.app.android.api.models.AuthorJoinWithFile
 import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.GLOBAL_FOLDER
 import de.taz.app.android.api.models.ImageStub
 import de.taz.app.android.api.models.ImageWithFile
+import de.taz.app.android.api.models.RESOURCE_FOLDER
 import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.content.THUMBNAIL_DIR
+import de.taz.app.android.dataStore.StorageDataStore
 import de.taz.app.android.persistence.AppDatabase
 import de.taz.app.android.persistence.repository.FileEntryRepository
 import de.taz.app.android.persistence.repository.IssueRepository
 import de.taz.app.android.persistence.repository.ResourceInfoRepository
 import de.taz.app.android.persistence.repository.SectionRepository
+import de.taz.app.android.singletons.CONVERTED_FONT_FOLDER
 import de.taz.app.android.singletons.StorageService
 import de.taz.test.Fixtures
 import de.taz.test.RobolectricTestApplication
@@ -35,8 +40,10 @@ import org.mockito.kotlin.doAnswer
 import org.mockito.kotlin.mock
 import org.robolectric.RobolectricTestRunner
 import org.robolectric.annotation.Config
+import java.io.File
 import java.io.IOException
 import java.util.Calendar
+import java.util.concurrent.TimeUnit
 
 @RunWith(RobolectricTestRunner::class)
 @Config(application = RobolectricTestApplication::class)
@@ -338,6 +345,79 @@ class ScrubberFileEntryTest {
         assertEquals(fileEntry, fileEntryRepository.get(fileEntry.name))
     }
 
+    @Test
+    fun `Old files without FileEntry are swept from disk`() = runTest {
+        val globalFolder = File(storageService.getInternalFilesDir(), GLOBAL_FOLDER).apply { mkdirs() }
+        val oldFile = File(globalFolder, "unreferenced.txt").apply {
+            writeText("Hello World")
+            setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        }
+        val recentFile = File(globalFolder, "recent.txt").apply { writeText("Hello World") }
+
+        scrubber.scrub()
+
+        assertFalse(oldFile.exists())
+        assertTrue(recentFile.exists())
+    }
+
+    @Test
+    fun `Converted fonts are not swept from disk`() = runTest {
+        val convertedFontFolder = File(
+            storageService.getInternalFilesDir(), "$RESOURCE_FOLDER/$CONVERTED_FONT_FOLDER"
+        ).apply { mkdirs() }
+        val convertedFont = File(convertedFontFolder, "Aktiv-Grotesk.ttf").apply {
+            writeText("Hello World")
+            setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+        }
+
+        scrubber.scrub()
+
+        assertTrue(convertedFont.exists())
+    }
+
+    @Test
+    fun `Thumbnails without page FileEntry are swept from disk`() = runTest {
+        val pageFileEntry = Fixtures.pageBase.pagePdf.copy(
+            sha256 = "keptSha256", storageLocation = StorageLocation.INTERNAL
+        )
+        issueRepository.save(
+            Fixtures.issueBase.copy(pageList = listOf(Fixtures.pageBase.copy(pdfFile = pageFileEntry)))
+        )
+        val thumbnailFolder = File(storageService.getInternalFilesDir(), THUMBNAIL_DIR).apply { mkdirs() }
+        val (keptThumbnail, orphanedThumbnail) = listOf("keptSha256", "orphanedSha256").map {
+            File(thumbnailFolder, "${it}_400.webp").apply {
+                writeText("Hello World")
+                setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+            }
+        }
+
+        scrubber.scrub()
+
+        assertTrue(keptThumbnail.exists())
+        assertFalse(orphanedThumbnail.exists())
+    }
+
+    @Test
+    fun `Interrupted slices are resumed by the next slice`() = runTest {
+        val storageDataStore = StorageDataStore.getInstance(context)
+        val fileEntry1 = Fixtures.fileEntry
+        fileEntryRepository.save(fileEntry1)
+
+        val interruptedSlice = requireNotNull(scrubber.scrubSlice(durationMs = 0L))
+
+        assertFalse(interruptedSlice.isCycleComplete)
+        assertEquals(fileEntry1, fileEntryRepository.get(fileEntry1.name))
+        assertEquals("ISSUES", storageDataStore.scrubberPhase.get())
+
+        val resumedSlice = requireNotNull(Scrubber(context).scrubSlice(TimeUnit.HOURS.toMillis(1)))
+
+        assertTrue(resumedSlice.isCycleComplete)
+        assertNull(fileEntryRepository.get(fileEntry1.name))
+        assertEquals("", storageDataStore.scrubberPhase.get())
+        // No further cycle is due right after one was completed
+        assertNull(scrubber.scrubSlice(TimeUnit.HOURS.toMillis(1)))
+    }
+
 
     private suspend fun createFileEntryWithContent(name: String): FileEntry {
         val dataString = "Hello World"
@@ -0,0 +1,65 @@
+package de.taz.app.android.singletons
+
+import de.taz.app.android.api.models.IssueStatus
+import de.taz.app.android.api.models.IssueStorageInfo
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Date
+
+class IssueEvictionPlannerTest {
+
+    private val planner = IssueEvictionPlanner(minCount = 2)
+
+    private fun issue(
+        date: String,
+        downloaded: Long,
+        viewed: Long? = null,
+        isPinned: Boolean = false,
+    ) = IssueStorageInfo(
+        "taz", date, IssueStatus.regular, Date(downloaded), viewed?.let(::Date), isPinned
+    )
+
+    private val old = issue("2024-01-01", downloaded = 1)
+    private val viewed = issue("2024-01-02", downloaded = 2, viewed = 10)
+    private val pinned = issue("2024-01-03", downloaded = 3, isPinned = true)
+    private val recent = issue("2024-01-04", downloaded = 4)
+    private val large = issue("2024-01-05", downloaded = 5)
+
+    private val issues = listOf(old, viewed, pinned, recent, large)
+    private val sizes = mapOf(old to 10L, viewed to 10L, pinned to 10L, recent to 10L, large to 100L)
+
+    @Test
+    fun keepWithinLimits() {
+        assertEquals(emptyList<IssueStorageInfo>(), planner.plan(issues, sizes, 5, 140L))
+    }
+
+    @Test
+    fun evictLeastRecentlyUsedForCount() {
+        assertEquals(listOf(old), planner.plan(issues, sizes, 3, Long.MAX_VALUE))
+    }
+
+    @Test
+    fun evictUntilWithinByteBudget() {
+        assertEquals(listOf(old, recent, large), planner.plan(issues, sizes, 5, 30L))
+    }
+
+    @Test
+    fun keepPinnedAndMinimumCount() {
+        assertEquals(listOf(old, recent), planner.plan(issues, sizes, 1, 0L))
+    }
+
+    @Test
+    fun neverEvictPinned() {
+        val plannerWithoutMinimum = IssueEvictionPlanner(minCount = 0)
+        assertEquals(listOf(old, recent, large), plannerWithoutMinimum.plan(issues, sizes, 0, 0L))
+
+        // Pinned issues do not count towards the limits, so they cannot force a fresh download out
+        val pinnedIssues = (1..4).map { issue("2023-12-0$it", downloaded = it.toLong(), isPinned = true) }
+        val download = issue("2024-01-06", downloaded = 6)
+        val pinnedSizes = (pinnedIssues + download).associateWith { 10L }
+        assertEquals(
+            emptyList<IssueStorageInfo>(),
+            plannerWithoutMinimum.plan(pinnedIssues + download, pinnedSizes, 3, 30L)
+        )
+    }
+}
@@ -0,0 +1,130 @@
+package de.taz.app.android.singletons
+
+import android.content.Context
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.interfaces.StorageLocation
+import de.taz.app.android.api.models.FileEntry
+import de.taz.app.android.api.models.StorageType
+import de.taz.app.android.monkey.toHex
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.SingletonTestUtil
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.async
+import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withTimeout
+import kotlinx.coroutines.yield
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+import java.security.MessageDigest
+import kotlin.test.assertFailsWith
+
+private const val TEST_TIMEOUT_MS = 5_000L
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class StorageServiceTest {
+
+    private lateinit var storageService: StorageService
+
+    @Before
+    fun setUp() {
+        SingletonTestUtil.resetAll()
+        val context = ApplicationProvider.getApplicationContext<Context>()
+        storageService = StorageService.getInstance(context)
+    }
+
+    // The hex encoding used before the hashes were streamed
+    private fun ByteArray.toFormattedHex(): String = fold("") { str, it -> str + "%02x".format(it) }
+
+    private fun createFileEntry(name: String, content: ByteArray, sha256: String? = null): FileEntry {
+        val fileEntry = FileEntry(
+            name,
+            StorageType.global,
+            0L,
+            sha256 ?: MessageDigest.getInstance("SHA-256").digest(content).toHex(),
+            content.size.toLong(),
+            null,
+            "integrity/$name",
+            StorageLocation.INTERNAL
+        )
+        checkNotNull(storageService.getFile(fileEntry)).apply {
+            parentFile?.mkdirs()
+            writeBytes(content)
+        }
+        return fileEntry
+    }
+
+    @Test
+    fun hexMatchesThePreviousFormat() {
+        val allBytes = ByteArray(256) { it.toByte() }
+        assertEquals(allBytes.toFormattedHex(), allBytes.toHex())
+    }
+
+    @Test
+    fun streamedHashMatchesTheHashOfTheWholeFile() = runBlocking {
+        // Spans several read buffers and ends within one
+        val content = ByteArray(3 * COPY_BUFFER_SIZE + 17) { (it * 31).toByte() }
+        val file = File(storageService.getInternalFilesDir(), "large.pdf").apply { writeBytes(content) }
+
+        assertEquals(
+            MessageDigest.getInstance("SHA-256").digest(content).toFormattedHex(),
+            storageService.getSHA256(file)
+        )
+    }
+
+    @Test
+    fun missingAndModifiedFilesAreCorrupted() = runBlocking {
+        val intact = createFileEntry("intact.html", "Hello World".toByteArray())
+        val modified = createFileEntry("modified.html", "Hello World".toByteArray(), sha256 = "sha256")
+        val missing = createFileEntry("missing.html", "Hello World".toByteArray())
+        storageService.getFile(missing)?.delete()
+
+        assertEquals(
+            listOf(modified, missing),
+            storageService.getCorruptedFilesFromList(listOf(intact, modified, missing))
+        )
+    }
+
+    @Test
+    fun filesAreOnlyCheckedWithAPermit() = runBlocking {
+        val fileEntries = (0 until 2 * INTEGRITY_CHECK_PARALLELISM).map {
+            createFileEntry("file$it.html", "Hello World".toByteArray())
+        }
+        val semaphore = storageService.integrityCheckSemaphore
+        repeat(INTEGRITY_CHECK_PARALLELISM) { semaphore.acquire() }
+
+        val check = async { storageService.getCorruptedFilesFromList(fileEntries) }
+        repeat(10) { yield() }
+        assertFalse(check.isCompleted)
+
+        // A single permit is enough to check all files one after another
+        semaphore.release()
+        assertEquals(emptyList<FileEntry>(), withTimeout(TEST_TIMEOUT_MS) { check.await() })
+        repeat(INTEGRITY_CHECK_PARALLELISM - 1) { semaphore.release() }
+    }
+
+    @Test
+    fun checkIsCancelledWithTheCaller() = runBlocking {
+        val fileEntries = (0 until INTEGRITY_CHECK_PARALLELISM).map {
+            createFileEntry("file$it.html", "Hello World".toByteArray())
+        }
+        val semaphore = storageService.integrityCheckSemaphore
+        repeat(INTEGRITY_CHECK_PARALLELISM) { semaphore.acquire() }
+
+        val check = async { storageService.getCorruptedFilesFromList(fileEntries) }
+        yield()
+        check.cancel()
+
+        assertFailsWith<CancellationException> { check.await() }
+        assertTrue(check.isCancelled)
+        repeat(INTEGRITY_CHECK_PARALLELISM) { semaphore.release() }
+        assertEquals(INTEGRITY_CHECK_PARALLELISM, semaphore.availablePermits)
+    }
+}
@@ -0,0 +1,125 @@
+package de.taz.app.android.ui.home.page
+
+import android.content.Context
+import androidx.room.Room
+import androidx.test.core.app.ApplicationProvider
+import de.taz.app.android.api.ApiService
+import de.taz.app.android.api.ConnectivityException
+import de.taz.app.android.api.models.Cycle
+import de.taz.app.android.api.models.Feed
+import de.taz.app.android.api.models.IssueStatus
+import de.taz.app.android.api.models.PublicationDate
+import de.taz.app.android.persistence.AppDatabase
+import de.taz.app.android.persistence.repository.MomentPublication
+import de.taz.app.android.simpleDateFormat
+import de.taz.app.android.singletons.AuthHelper
+import de.taz.test.RobolectricTestApplication
+import de.taz.test.SingletonTestUtil
+import kotlinx.coroutines.test.runTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.doThrow
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.never
+import org.mockito.kotlin.times
+import org.mockito.kotlin.verifyBlocking
+import org.mockito.kotlin.wheneverBlocking
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.net.ConnectException
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class CoverMetadataPrefetcherTest {
+
+    private lateinit var context: Context
+    private lateinit var db: AppDatabase
+    private lateinit var apiService: ApiService
+
+    private val feed = Feed(
+        name = "taz",
+        displayName = "taz",
+        cycle = Cycle.daily,
+        momentRatio = 0.67f,
+        publicationDates = (27 downTo 8).map {
+            PublicationDate(requireNotNull(simpleDateFormat.parse("2020-04-$it")))
+        },
+        issueMinDate = "2020-04-08",
+        issueMaxDate = "2020-04-27",
+    )
+
+    @Before
+    fun setUp() {
+        SingletonTestUtil.resetAll()
+
+        context = ApplicationProvider.getApplicationContext()
+        db = Room.inMemoryDatabaseBuilder(
+            context, AppDatabase::class.java
+        ).build()
+        AppDatabase.inject(db)
+
+        apiService = mock()
+        ApiService.inject(apiService)
+        AuthHelper.inject(mock {
+            onBlocking { getMinStatus() }.doReturn(IssueStatus.public)
+        })
+    }
+
+    @After
+    fun tearDown() {
+        db.close()
+    }
+
+    @Test
+    fun `unexpected failures of the prefetch fall back to loading the cover on its own`() = runTest {
+        wheneverBlocking { apiService.getMomentsByFeedAndDate(eq(feed.name), any(), any()) }
+            .doThrow(IllegalStateException("Unexpected response"))
+        val prefetcher = CoverMetadataPrefetcher(context, feed, backgroundScope)
+
+        // Must not throw, so that the cover downloads its metadata itself
+        prefetcher.prefetch(MomentPublication(feed.name, "2020-04-27"))
+        // The failed window is prefetched again for the next cover
+        prefetcher.prefetch(MomentPublication(feed.name, "2020-04-26"))
+
+        verifyBlocking(apiService, times(2)) {
+            getMomentsByFeedAndDate(eq(feed.name), any(), eq(10))
+        }
+    }
+
+    @Test
+    fun `connectivity failures of the prefetch fall back to loading the cover on its own`() = runTest {
+        wheneverBlocking { apiService.getMomentsByFeedAndDate(eq(feed.name), any(), any()) }
+            .doThrow(ConnectivityException.NoInternetException(cause = ConnectException()))
+        val prefetcher = CoverMetadataPrefetcher(context, feed, backgroundScope)
+
+        prefetcher.prefetch(MomentPublication(feed.name, "2020-04-20"))
+
+        verifyBlocking(apiService, times(1)) {
+            getMomentsByFeedAndDate(eq(feed.name), any(), eq(10))
+        }
+    }
+
+    @Test
+    fun `each window is only prefetched once`() = runTest {
+        wheneverBlocking { apiService.getMomentsByFeedAndDate(eq(feed.name), any(), any()) }
+            .doReturn(emptyList())
+        val prefetcher = CoverMetadataPrefetcher(context, feed, backgroundScope)
+
+        prefetcher.prefetch(MomentPublication(feed.name, "2020-04-27"))
+        prefetcher.prefetch(MomentPublication(feed.name, "2020-04-20"))
+        prefetcher.prefetch(MomentPublication(feed.name, "2020-04-17"))
+
+        // 2020-04-17 is the first date of the second window
+        verifyBlocking(apiService, times(2)) {
+            getMomentsByFeedAndDate(eq(feed.name), any(), eq(10))
+        }
+        verifyBlocking(apiService, never()) {
+            getMomentByFeedAndDate(any(), any())
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package de.taz.app.android.ui.pdfViewer.mupdf
+
+import android.os.Looper
+import de.taz.test.RobolectricTestApplication
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.Shadows.shadowOf
+import org.robolectric.annotation.Config
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+private const val TIMEOUT_MS = 5_000L
+
+@RunWith(RobolectricTestRunner::class)
+@Config(application = RobolectricTestApplication::class)
+class RenderSchedulerTest {
+
+    private val renderedTags: MutableList<String> = Collections.synchronizedList(mutableListOf())
+    private val doneTags = mutableListOf<String>()
+    private val cancelledTags = mutableListOf<String>()
+
+    private fun schedule(
+        priority: RenderPriority,
+        tag: String,
+        onRender: () -> Unit = {},
+    ): RenderScheduler.RenderTask {
+        val definition = object : CancellableTaskDefinition<Void?, Void?> {
+            override fun doInBackground(vararg params: Void?): Void? {
+                onRender()
+                renderedTags.add(tag)
+                return null
+            }
+
+            override fun doCancel() = Unit
+            override fun doCleanup() = Unit
+        }
+        return RenderScheduler.schedule(priority, definition) { isCancelled ->
+            if (isCancelled) cancelledTags.add(tag) else doneTags.add(tag)
+        }
+    }
+
+    /**
+     * Schedule a task that keeps the render thread busy until the returned latch is released,
+     * so that the following tasks are queued.
+     */
+    private fun blockRenderThread(): CountDownLatch {
+        val latch = CountDownLatch(1)
+        schedule(RenderPriority.VISIBLE, "blocker") {
+            latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        }
+        return latch
+    }
+
+    private fun awaitDone(count: Int) {
+        val deadline = System.currentTimeMillis() + TIMEOUT_MS
+        while (doneTags.size + cancelledTags.size < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+            shadowOf(Looper.getMainLooper()).idle()
+        }
+        assertEquals(count, doneTags.size + cancelledTags.size)
+    }
+
+    @Test
+    fun higherPriorityIsRenderedFirst() {
+        val latch = blockRenderThread()
+        schedule(RenderPriority.PREFETCH, "prefetch")
+        schedule(RenderPriority.NEIGHBOUR_PAGE, "neighbour")
+        schedule(RenderPriority.VISIBLE, "visible1")
+        schedule(RenderPriority.VISIBLE, "visible2")
+        latch.countDown()
+
+        awaitDone(5)
+        assertEquals(
+            listOf("blocker", "visible1", "visible2", "neighbour", "prefetch"),
+            renderedTags.toList()
+        )
+    }
+
+    @Test
+    fun updatedPriorityIsApplied() {
+        val latch = blockRenderThread()
+        val prefetchTask = schedule(RenderPriority.PREFETCH, "prefetch")
+        schedule(RenderPriority.NEIGHBOUR_PAGE, "neighbour")
+        prefetchTask.updatePriority(RenderPriority.VISIBLE)
+        latch.countDown()
+
+        awaitDone(3)
+        assertEquals(listOf("blocker", "prefetch", "neighbour"), renderedTags.toList())
+    }
+
+    @Test
+    fun cancelledTaskIsNotRendered() {
+        val latch = blockRenderThread()
+        val task = schedule(RenderPriority.VISIBLE, "cancelled")
+        task.cancel()
+        assertTrue(cancelledTags.contains("cancelled"))
+        latch.countDown()
+
+        awaitDone(2)
+        assertEquals(listOf("blocker"), renderedTags.toList())
+        assertEquals(listOf("blocker"), doneTags)
+    }
+}
@@ -0,0 +1,11 @@
+package de.taz.test
+
+import org.junit.Assume.assumeTrue
+
+/**
+ * Skip the calling benchmark unless the benchmarks are enabled with
+ * `./gradlew testDebugUnitTest -Pbenchmark`, so that the default test runs stay fast and quiet.
+ */
+fun assumeBenchmarksEnabled() {
+    assumeTrue("Benchmarks are disabled", System.getProperty("benchmark").toBoolean())
+}
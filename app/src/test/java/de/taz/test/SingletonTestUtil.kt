@@ -4,8 +4,10 @@ import de.taz.app.android.api.ApiService
 import de.taz.app.android.api.GraphQlClient
 import de.taz.app.android.api.QueryService
 import de.taz.app.android.audioPlayer.AudioPlayerService
+import de.taz.app.android.content.ArticleSearchService
 import de.taz.app.android.content.ContentService
 import de.taz.app.android.content.FeedService
+import de.taz.app.android.content.PageThumbnailStore
 import de.taz.app.android.data.DownloadScheduler
 import de.taz.app.android.dataStore.AudioPlayerDataStore
 import de.taz.app.android.dataStore.DownloadDataStore
@@ -29,6 +31,7 @@ import de.taz.app.android.persistence.repository.PageRepository
 import de.taz.app.android.persistence.repository.ResourceInfoRepository
 import de.taz.app.android.persistence.repository.SectionRepository
 import de.taz.app.android.persistence.repository.ViewerStateRepository
+import de.taz.app.android.persistence.search.ArticleSearchIndex
 import de.taz.app.android.singletons.AuthHelper
 import de.taz.app.android.singletons.FontHelper
 import de.taz.app.android.singletons.IssueCountHelper
@@ -49,8 +52,10 @@ object SingletonTestUtil {
         GraphQlClient,
         QueryService,
         AudioPlayerService,
+        ArticleSearchService,
         ContentService,
         FeedService,
+        PageThumbnailStore,
         DownloadScheduler,
         AudioPlayerDataStore,
         DownloadDataStore,
@@ -61,6 +66,7 @@ object SingletonTestUtil {
         FirebaseDataStore,
         FirebaseHelper,
         AppDatabase,
+        ArticleSearchIndex,
         AppInfoRepository,
         ArticleRepository,
         AudioRepository,